@@ -0,0 +1,109 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.FixedBoundaryVictoriaMetricsHistogram;
+import io.micrometer.core.instrument.distribution.Histogram;
+import io.micrometer.core.instrument.distribution.PercentileHistogramBuckets;
+import io.micrometer.core.instrument.distribution.TimeWindowFixedBoundaryHistogram;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the record path of fixed boundary histograms, which is dominated by finding the bucket of a sample.
+ * {@code percentileHistogram} and {@code slaBuckets} have exactly the same buckets, but only the former can look
+ * buckets up from the percentile bucket of a sample. The latter has to fall back to binary search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BucketIndexBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(BucketIndexBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    private static final int SAMPLES = 1 << 16;
+
+    @Param({"percentileHistogram", "slaBuckets", "victoriaMetrics"})
+    String histogramType;
+
+    private Histogram histogram;
+
+    /**
+     * Log-normally distributed latencies in nanoseconds around a median of 10ms.
+     */
+    private long[] samples;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        DistributionStatisticConfig percentileHistogram = DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                .maximumExpectedValue((double) Duration.ofSeconds(30).toNanos())
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+
+        switch (histogramType) {
+            case "slaBuckets":
+                double[] sla = PercentileHistogramBuckets.buckets(percentileHistogram).stream()
+                        .mapToDouble(Double::doubleValue).toArray();
+                histogram = new TimeWindowFixedBoundaryHistogram(Clock.SYSTEM, DistributionStatisticConfig.builder()
+                        .sla(sla)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false);
+                break;
+            case "victoriaMetrics":
+                histogram = new FixedBoundaryVictoriaMetricsHistogram();
+                break;
+            default:
+                histogram = new TimeWindowFixedBoundaryHistogram(Clock.SYSTEM, percentileHistogram, false);
+        }
+
+        Random random = new Random(0);
+        samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = (long) (Duration.ofMillis(10).toNanos() * Math.exp(random.nextGaussian()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        histogram.close();
+    }
+
+    @Benchmark
+    public void record() {
+        histogram.recordLong(samples[next++ & (SAMPLES - 1)]);
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead of recording through a composite registry with one or three child registries, compared to
+ * recording directly to a registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CompositeRegistryBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(CompositeRegistryBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Param({"direct", "composite1", "composite3"})
+    String registryType;
+
+    private Counter counter;
+    private Timer timer;
+
+    @Setup
+    public void setup() {
+        MeterRegistry registry;
+        switch (registryType) {
+            case "composite1":
+                registry = new CompositeMeterRegistry().add(new SimpleMeterRegistry());
+                break;
+            case "composite3":
+                registry = new CompositeMeterRegistry()
+                        .add(new SimpleMeterRegistry())
+                        .add(new SimpleMeterRegistry())
+                        .add(new SimpleMeterRegistry());
+                break;
+            default:
+                registry = new SimpleMeterRegistry();
+        }
+
+        counter = registry.counter("counter");
+        timer = registry.timer("timer");
+    }
+
+    @Benchmark
+    public void increment() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void record() {
+        timer.record(10, TimeUnit.MILLISECONDS);
+    }
+}
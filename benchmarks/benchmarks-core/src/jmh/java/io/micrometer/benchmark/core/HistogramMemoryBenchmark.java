@@ -0,0 +1,121 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap retained by 10k timers that have each seen a realistic, log-normally distributed
+ * set of latencies. The retained bytes are reported as the {@code retainedBytes} secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+// a single invocation per iteration, so that the secondary result is the bytes retained by one registry
+@Warmup(iterations = 1, time = 1, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HistogramMemoryBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HistogramMemoryBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    private static final int TIMERS = 10_000;
+    private static final int SAMPLES_PER_TIMER = 200;
+
+    @Param({"percentileHistogram", "hdrPercentiles", "sketchPercentiles"})
+    String distribution;
+
+    /**
+     * Each timer has its own median latency between 1ms and 100ms, and samples are spread log-normally around it.
+     */
+    private long[][] latencies;
+
+    private MeterRegistry registry;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Retained {
+        public long retainedBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setupLatencies() {
+        Random random = new Random(0);
+        latencies = new long[TIMERS][SAMPLES_PER_TIMER];
+        for (int i = 0; i < TIMERS; i++) {
+            double medianNanos = TimeUnit.MILLISECONDS.toNanos(1 + random.nextInt(100));
+            for (int j = 0; j < SAMPLES_PER_TIMER; j++) {
+                latencies[i][j] = (long) (medianNanos * Math.exp(0.6 * random.nextGaussian()));
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        registry.close();
+        registry = null;
+    }
+
+    @Benchmark
+    public MeterRegistry tenThousandTimers(Retained retained) {
+        long before = usedHeap();
+
+        registry = new SimpleMeterRegistry();
+        for (int i = 0; i < TIMERS; i++) {
+            Timer timer = timer(Timer.builder("timer").tag("index", Integer.toString(i)));
+            for (long latency : latencies[i]) {
+                timer.record(latency, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        retained.retainedBytes = usedHeap() - before;
+        return registry;
+    }
+
+    private Timer timer(Timer.Builder builder) {
+        switch (distribution) {
+            case "hdrPercentiles":
+                return builder.publishPercentiles(0.5, 0.99).register(registry);
+            case "sketchPercentiles":
+                return builder.publishPercentiles(0.5, 0.99).percentileRelativeAccuracy(0.01).register(registry);
+            default:
+                return builder.publishPercentileHistogram().register(registry);
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
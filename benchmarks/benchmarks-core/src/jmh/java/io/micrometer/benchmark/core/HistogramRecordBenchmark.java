@@ -0,0 +1,90 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record throughput and latency distribution of every {@link Histogram} implementation. Run through
+ * {@link HotPathBenchmarks} to measure them under contention as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HistogramRecordBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HistogramRecordBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Param({"fixedBoundary", "percentile", "sketch", "victoriaMetrics", "base2Exponential"})
+    String histogramType;
+
+    private Histogram histogram;
+
+    @Setup
+    public void setup() {
+        histogram = histogram(histogramType);
+    }
+
+    static Histogram histogram(String histogramType) {
+        DistributionStatisticConfig.Builder config = DistributionStatisticConfig.builder()
+                .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                .maximumExpectedValue((double) Duration.ofSeconds(30).toNanos());
+
+        switch (histogramType) {
+            case "percentile":
+                return new TimeWindowPercentileHistogram(Clock.SYSTEM, config.percentiles(0.5, 0.99).build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false);
+            case "sketch":
+                return new TimeWindowSketchHistogram(Clock.SYSTEM, config.percentiles(0.5, 0.99)
+                        .percentileRelativeAccuracy(0.01).build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false);
+            case "victoriaMetrics":
+                return new FixedBoundaryVictoriaMetricsHistogram();
+            case "base2Exponential":
+                return new Base2ExponentialHistogram(3, 160, 0);
+            default:
+                return new TimeWindowFixedBoundaryHistogram(Clock.SYSTEM, config.percentilesHistogram(true).build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        histogram.close();
+    }
+
+    @Benchmark
+    public void record(Samples samples) {
+        histogram.recordLong(samples.next());
+    }
+}
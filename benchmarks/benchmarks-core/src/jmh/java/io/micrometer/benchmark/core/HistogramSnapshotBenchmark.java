@@ -0,0 +1,100 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of a snapshot as the number of histogram buckets grows. {@code idle} snapshots follow one another with
+ * nothing recorded in between, as is the case for most meters on most publishes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HistogramSnapshotBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HistogramSnapshotBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Param({"8", "64", "256", "1024"})
+    int buckets;
+
+    @Param({"false", "true"})
+    boolean percentiles;
+
+    private Histogram histogram;
+
+    @Setup
+    public void setup() {
+        double min = Duration.ofMillis(1).toNanos();
+        double max = Duration.ofSeconds(30).toNanos();
+
+        // log-spaced boundaries between the minimum and maximum expected values
+        double[] sla = new double[buckets];
+        for (int i = 0; i < buckets; i++) {
+            sla[i] = Math.ceil(min * Math.pow(max / min, (double) i / (buckets - 1)));
+        }
+
+        DistributionStatisticConfig config = DistributionStatisticConfig.builder()
+                .sla(sla)
+                .percentiles(percentiles ? new double[]{0.5, 0.9, 0.95, 0.99, 0.999} : null)
+                .minimumExpectedValue(min)
+                .maximumExpectedValue(max)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+
+        histogram = percentiles ?
+                new TimeWindowPercentileHistogram(Clock.SYSTEM, config, false) :
+                new TimeWindowFixedBoundaryHistogram(Clock.SYSTEM, config, false);
+
+        Samples samples = new Samples();
+        for (int i = 0; i < 10_000; i++) {
+            histogram.recordLong(samples.next());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        histogram.close();
+    }
+
+    @Benchmark
+    public HistogramSnapshot idle() {
+        return histogram.takeSnapshot(0, 0, 0);
+    }
+
+    @Benchmark
+    public HistogramSnapshot afterRecord(Samples samples) {
+        histogram.recordLong(samples.next());
+        return histogram.takeSnapshot(0, 0, 0);
+    }
+}
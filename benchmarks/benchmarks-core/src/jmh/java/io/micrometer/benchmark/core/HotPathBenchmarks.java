@@ -0,0 +1,57 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the record path benchmarks with 1, 4, 16 and 64 threads contending on the same meter, and the snapshot
+ * benchmarks single-threaded, all with the GC profiler to report allocation rates. Results are written as
+ * JSON, one file per thread count, so that they can be compared across builds to catch regressions.
+ */
+public class HotPathBenchmarks {
+    private static final int[] THREADS = {1, 4, 16, 64};
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            run(new OptionsBuilder()
+                    .include(HistogramRecordBenchmark.class.getSimpleName())
+                    .include(TimeWindowMaxBenchmark.class.getSimpleName())
+                    .include(TimerRecordBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .result("hot-paths-" + threads + "-threads.json"));
+        }
+
+        run(new OptionsBuilder()
+                .include(HistogramSnapshotBenchmark.class.getSimpleName())
+                .result("snapshots.json"));
+    }
+
+    private static void run(ChainedOptionsBuilder options) throws RunnerException {
+        Options opt = options
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
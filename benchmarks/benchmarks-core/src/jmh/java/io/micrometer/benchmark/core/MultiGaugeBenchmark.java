@@ -0,0 +1,83 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshing 10k rows of a multi-gauge, e.g. one per partition, where {@code churn} rows are replaced by new ones
+ * on every refresh and all others report a new value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MultiGaugeBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(MultiGaugeBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    private static final int ROWS = 10_000;
+
+    @Param({"0", "100", "1000"})
+    int churn;
+
+    private MultiGauge multiGauge;
+
+    /**
+     * Two generations of rows, which differ by {@code churn} rows.
+     */
+    private final List<List<MultiGauge.Row<?>>> generations = new ArrayList<>();
+
+    private int refreshes;
+
+    @Setup
+    public void setup() {
+        multiGauge = MultiGauge.builder("partition.lag").register(new SimpleMeterRegistry());
+
+        for (int generation = 0; generation < 2; generation++) {
+            List<MultiGauge.Row<?>> rows = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                String partition = i < churn ? generation + "-" + i : Integer.toString(i);
+                rows.add(MultiGauge.Row.of(Tags.of("partition", partition), i * generation));
+            }
+            generations.add(rows);
+        }
+        multiGauge.register(generations.get(0));
+    }
+
+    @Benchmark
+    public void refresh() {
+        multiGauge.register(generations.get(++refreshes & 1), true);
+    }
+}
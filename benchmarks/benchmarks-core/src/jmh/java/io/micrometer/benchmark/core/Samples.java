@@ -0,0 +1,46 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Log-normally distributed latencies in nanoseconds around a median of 10ms, which each benchmark thread cycles
+ * through independently so that threads only contend on the meter or histogram being measured.
+ */
+@State(Scope.Thread)
+public class Samples {
+    private static final int SAMPLES = 1 << 16;
+
+    private static final long[] LATENCIES = new long[SAMPLES];
+
+    static {
+        Random random = new Random(0);
+        for (int i = 0; i < SAMPLES; i++) {
+            LATENCIES[i] = (long) (Duration.ofMillis(10).toNanos() * Math.exp(random.nextGaussian()));
+        }
+    }
+
+    private int next;
+
+    long next() {
+        return LATENCIES[next++ & (SAMPLES - 1)];
+    }
+}
@@ -73,4 +73,13 @@ public interface DatadogConfig extends StepRegistryConfig {
         String v = get(prefix() + ".descriptions");
         return v == null || Boolean.parseBoolean(v);
     }
+
+    /**
+     * @return {@code true} if series requests should be GZIP compressed, {@code false} otherwise.
+     * @since 1.5.0
+     */
+    default boolean compressed() {
+        String v = get(prefix() + ".compressed");
+        return v != null && Boolean.parseBoolean(v);
+    }
 }
@@ -17,6 +17,7 @@ package io.micrometer.datadog;
 
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.config.MissingRequiredConfigurationException;
+import io.micrometer.core.instrument.push.ConcurrentRequestSender;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.instrument.util.MeterPartition;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
@@ -30,16 +31,14 @@ import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
 
 import static io.micrometer.core.instrument.util.StringEscapeUtils.escapeJson;
-import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.joining;
-import static java.util.stream.StreamSupport.stream;
 
 /**
  * @author Jon Schneider
@@ -47,6 +46,8 @@ import static java.util.stream.StreamSupport.stream;
  */
 public class DatadogMeterRegistry extends StepMeterRegistry {
     private static final ThreadFactory DEFAULT_THREAD_FACTORY = new NamedThreadFactory("datadog-metrics-publisher");
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFER_SIZE = 4 * 1024 * 1024;
     private final Logger logger = LoggerFactory.getLogger(DatadogMeterRegistry.class);
     private final DatadogConfig config;
     private final HttpSender httpClient;
@@ -56,6 +57,18 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
      */
     private final Set<String> verifiedMetadata = ConcurrentHashMap.newKeySet();
 
+    /**
+     * Posts series on up to {@link DatadogConfig#numThreads()} threads. Each body's buffer returns to
+     * {@link #bodyBuffers} once its request starts, so a publish has no more buffers in use than there are threads,
+     * plus the one being written.
+     */
+    private final ConcurrentRequestSender seriesRequestSender;
+
+    /**
+     * Request bodies are built into buffers that are reused once their request has been sent.
+     */
+    private final Queue<StringBuilder> bodyBuffers = new ConcurrentLinkedQueue<>();
+
     /**
      * @param config Configuration options for the registry that are describable as properties.
      * @param clock  The clock to use for timings.
@@ -89,9 +102,17 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
         this.config = config;
         this.httpClient = httpClient;
 
+        this.seriesRequestSender = new ConcurrentRequestSender(config.numThreads(), "datadog-series-request");
+
         start(threadFactory);
     }
 
+    @Override
+    public void close() {
+        super.close();
+        seriesRequestSender.close();
+    }
+
     @Override
     public void start(ThreadFactory threadFactory) {
         if (config.enabled()) {
@@ -105,11 +126,17 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
     @Override
     protected void publish() {
         Map<String, DatadogMetricMetadata> metadataToSend = new HashMap<>();
+        // we can't set metadata correctly without the application key, and only descriptions are ever sent
+        Map<String, DatadogMetricMetadata> metadata = config.applicationKey() != null && config.descriptions() ?
+                metadataToSend : null;
 
         String datadogEndpoint = config.uri() + "/api/v1/series?api_key=" + config.apiKey();
+        long timestamp = clock.wallTime() / 1000;
 
-        try {
-            for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
+        ConcurrentRequestSender.Requests requests = seriesRequestSender.newRequests();
+        for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
+            SeriesBody body = new SeriesBody(acquireBuffer());
+            try {
                 /*
                 Example post body from Datadog API docs. Host and tags are optional.
                 "{ \"series\" :
@@ -122,140 +149,187 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
                         ]
                 }"
                 */
-                String body = batch.stream().flatMap(meter -> meter.match(
-                        m -> writeMeter(m, metadataToSend), // visitGauge
-                        m -> writeMeter(m, metadataToSend), // visitCounter
-                        timer -> writeTimer(timer, metadataToSend), // visitTimer
-                        summary -> writeSummary(summary, metadataToSend), // visitSummary
-                        m -> writeMeter(m, metadataToSend), // visitLongTaskTimer
-                        m -> writeMeter(m, metadataToSend), // visitTimeGauge
-                        m -> writeMeter(m, metadataToSend), // visitFunctionCounter
-                        timer -> writeTimer(timer, metadataToSend), // visitFunctionTimer
-                        m -> writeMeter(m, metadataToSend)) // visitMeter
-                ).collect(joining(",", "{\"series\":[", "]}"));
-
-                logger.trace("sending metrics batch to datadog:{}{}", System.lineSeparator(), body);
-
-                httpClient.post(datadogEndpoint)
-                        .withJsonContent(
-                                body)
-                        .send()
-                        .onSuccess(response -> logger.debug("successfully sent {} metrics to datadog", batch.size()))
-                        .onError(response -> logger.error("failed to send metrics to datadog: {}", response.body()));
+                body.builder.append("{\"series\":[");
+                for (Meter meter : batch) {
+                    meter.use(
+                            m -> writeMeter(body, m, timestamp, metadata), // visitGauge
+                            m -> writeMeter(body, m, timestamp, metadata), // visitCounter
+                            timer -> writeTimer(body, timer, timestamp, metadata), // visitTimer
+                            summary -> writeSummary(body, summary, timestamp, metadata), // visitSummary
+                            m -> writeMeter(body, m, timestamp, metadata), // visitLongTaskTimer
+                            m -> writeMeter(body, m, timestamp, metadata), // visitTimeGauge
+                            m -> writeMeter(body, m, timestamp, metadata), // visitFunctionCounter
+                            timer -> writeTimer(body, timer, timestamp, metadata), // visitFunctionTimer
+                            m -> writeMeter(body, m, timestamp, metadata)); // visitMeter
+                }
+                body.builder.append("]}");
+
+                requests.send(() -> sendSeries(datadogEndpoint, body, batch.size()));
+            } catch (InterruptedException e) {
+                releaseBuffer(body.builder);
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable e) {
+                releaseBuffer(body.builder);
+                logger.warn("failed to send metrics to datadog", e);
             }
-        } catch (Throwable e) {
-            logger.warn("failed to send metrics to datadog", e);
+        }
+
+        try {
+            requests.await(e -> logger.warn("failed to send metrics to datadog", e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
         }
 
         metadataToSend.forEach(this::postMetricDescriptionMetadata);
     }
 
-    private Stream<String> writeTimer(FunctionTimer timer, Map<String, DatadogMetricMetadata> metadata) {
-        long wallTime = clock.wallTime();
+    private void sendSeries(String datadogEndpoint, SeriesBody body, int numberOfMeters) {
+        try {
+            String json = body.builder.toString();
+            releaseBuffer(body.builder);
 
-        Meter.Id id = timer.getId();
+            logger.trace("sending metrics batch to datadog:{}{}", System.lineSeparator(), json);
 
-        addToMetadataList(metadata, id, "count");
-        addToMetadataList(metadata, id, "avg");
-        addToMetadataList(metadata, id, "sum");
+            httpClient.post(datadogEndpoint)
+                    .withJsonContent(json)
+                    .compressWhen(config::compressed)
+                    .send()
+                    .onSuccess(response -> logger.debug("successfully sent {} metrics to datadog", numberOfMeters))
+                    .onError(response -> logger.error("failed to send metrics to datadog: {}", response.body()));
+        } catch (Throwable e) {
+            logger.warn("failed to send metrics to datadog", e);
+        }
+    }
 
-        // we can't know anything about max and percentiles originating from a function timer
-        return Stream.of(
-                writeMetric(id, "count", wallTime, timer.count(), Statistic.COUNT, "occurrence"),
-                writeMetric(id, "avg", wallTime, timer.mean(getBaseTimeUnit()), Statistic.VALUE, null),
-                writeMetric(id, "sum", wallTime, timer.totalTime(getBaseTimeUnit()), Statistic.TOTAL_TIME, null));
+    private StringBuilder acquireBuffer() {
+        StringBuilder buffer = bodyBuffers.poll();
+        return buffer == null ? new StringBuilder(INITIAL_BUFFER_SIZE) : buffer;
     }
 
-    private Stream<String> writeTimer(Timer timer, Map<String, DatadogMetricMetadata> metadata) {
-        final long wallTime = clock.wallTime();
-        final Stream.Builder<String> metrics = Stream.builder();
+    private void releaseBuffer(StringBuilder buffer) {
+        if (buffer.capacity() <= MAX_POOLED_BUFFER_SIZE) {
+            buffer.setLength(0);
+            bodyBuffers.offer(buffer);
+        }
+    }
 
+    private void writeTimer(SeriesBody body, FunctionTimer timer, long timestamp,
+                            @Nullable Map<String, DatadogMetricMetadata> metadata) {
         Meter.Id id = timer.getId();
-        metrics.add(writeMetric(id, "sum", wallTime, timer.totalTime(getBaseTimeUnit()), Statistic.TOTAL_TIME, null));
-        metrics.add(writeMetric(id, "count", wallTime, timer.count(), Statistic.COUNT, "occurrence"));
-        metrics.add(writeMetric(id, "avg", wallTime, timer.mean(getBaseTimeUnit()), Statistic.VALUE, null));
-        metrics.add(writeMetric(id, "max", wallTime, timer.max(getBaseTimeUnit()), Statistic.MAX, null));
+        SeriesTags tags = seriesTags(id);
 
-        addToMetadataList(metadata, id, "sum");
-        addToMetadataList(metadata, id, "count");
-        addToMetadataList(metadata, id, "avg");
-        addToMetadataList(metadata, id, "max");
-
-        return metrics.build();
+        // we can't know anything about max and percentiles originating from a function timer
+        writeMetric(body, id, "count", timestamp, timer.count(), Statistic.COUNT, "occurrence", tags, metadata);
+        writeMetric(body, id, "avg", timestamp, timer.mean(getBaseTimeUnit()), Statistic.VALUE, null, tags, metadata);
+        writeMetric(body, id, "sum", timestamp, timer.totalTime(getBaseTimeUnit()), Statistic.TOTAL_TIME, null, tags, metadata);
     }
 
-    private Stream<String> writeSummary(DistributionSummary summary, Map<String, DatadogMetricMetadata> metadata) {
-        final long wallTime = clock.wallTime();
-        final Stream.Builder<String> metrics = Stream.builder();
+    private void writeTimer(SeriesBody body, Timer timer, long timestamp,
+                            @Nullable Map<String, DatadogMetricMetadata> metadata) {
+        Meter.Id id = timer.getId();
+        SeriesTags tags = seriesTags(id);
 
-        Meter.Id id = summary.getId();
-        metrics.add(writeMetric(id, "sum", wallTime, summary.totalAmount(), Statistic.TOTAL, null));
-        metrics.add(writeMetric(id, "count", wallTime, summary.count(), Statistic.COUNT, "occurrence"));
-        metrics.add(writeMetric(id, "avg", wallTime, summary.mean(), Statistic.VALUE, null));
-        metrics.add(writeMetric(id, "max", wallTime, summary.max(), Statistic.MAX, null));
+        writeMetric(body, id, "sum", timestamp, timer.totalTime(getBaseTimeUnit()), Statistic.TOTAL_TIME, null, tags, metadata);
+        writeMetric(body, id, "count", timestamp, timer.count(), Statistic.COUNT, "occurrence", tags, metadata);
+        writeMetric(body, id, "avg", timestamp, timer.mean(getBaseTimeUnit()), Statistic.VALUE, null, tags, metadata);
+        writeMetric(body, id, "max", timestamp, timer.max(getBaseTimeUnit()), Statistic.MAX, null, tags, metadata);
+    }
 
-        addToMetadataList(metadata, id, "sum");
-        addToMetadataList(metadata, id, "count");
-        addToMetadataList(metadata, id, "avg");
-        addToMetadataList(metadata, id, "max");
+    private void writeSummary(SeriesBody body, DistributionSummary summary, long timestamp,
+                              @Nullable Map<String, DatadogMetricMetadata> metadata) {
+        Meter.Id id = summary.getId();
+        SeriesTags tags = seriesTags(id);
 
-        return metrics.build();
+        writeMetric(body, id, "sum", timestamp, summary.totalAmount(), Statistic.TOTAL, null, tags, metadata);
+        writeMetric(body, id, "count", timestamp, summary.count(), Statistic.COUNT, "occurrence", tags, metadata);
+        writeMetric(body, id, "avg", timestamp, summary.mean(), Statistic.VALUE, null, tags, metadata);
+        writeMetric(body, id, "max", timestamp, summary.max(), Statistic.MAX, null, tags, metadata);
     }
 
-    private Stream<String> writeMeter(Meter m, Map<String, DatadogMetricMetadata> metadata) {
-        long wallTime = clock.wallTime();
-        return stream(m.measure().spliterator(), false)
-                .map(ms -> {
-                    Meter.Id id = m.getId().withTag(ms.getStatistic());
-                    addToMetadataList(metadata, id, null);
-                    return writeMetric(id, null, wallTime, ms.getValue(), ms.getStatistic(), null);
-                });
+    private void writeMeter(SeriesBody body, Meter m, long timestamp,
+                            @Nullable Map<String, DatadogMetricMetadata> metadata) {
+        for (Measurement ms : m.measure()) {
+            Meter.Id id = m.getId().withTag(ms.getStatistic());
+            writeMetric(body, id, null, timestamp, ms.getValue(), ms.getStatistic(), null, seriesTags(id), metadata);
+        }
     }
 
-    private void addToMetadataList(Map<String, DatadogMetricMetadata> metadata, Meter.Id id, @Nullable String suffix) {
-        if (config.applicationKey() == null)
-            return; // we can't set metadata correctly without the application key
-
-        Meter.Id fullId = id;
-        if (suffix != null)
-            fullId = idWithSuffix(id, suffix);
-
-        String metricName = getConventionName(fullId);
-        if (!verifiedMetadata.contains(metricName)) {
+    /**
+     * Queue the metadata of a metric to be posted, unless it has been posted already or has nothing to post.
+     */
+    private void addToMetadataList(Map<String, DatadogMetricMetadata> metadata, String metricName, Meter.Id fullId) {
+        if (fullId.getDescription() != null && !verifiedMetadata.contains(metricName)) {
             metadata.put(metricName, new DatadogMetricMetadata(fullId, config.descriptions()));
         }
     }
 
     //VisibleForTesting
     String writeMetric(Meter.Id id, @Nullable String suffix, long wallTime, double value, Statistic statistic, @Nullable String overrideBaseUnit) {
+        SeriesBody body = new SeriesBody(new StringBuilder());
+        writeMetric(body, id, suffix, wallTime / 1000, value, statistic, overrideBaseUnit, seriesTags(id), null);
+        return body.builder.toString();
+    }
+
+    private void writeMetric(SeriesBody body, Meter.Id id, @Nullable String suffix, long timestamp, double value,
+                             Statistic statistic, @Nullable String overrideBaseUnit, SeriesTags tags,
+                             @Nullable Map<String, DatadogMetricMetadata> metadata) {
         Meter.Id fullId = id;
         if (suffix != null)
             fullId = idWithSuffix(id, suffix);
 
-        Iterable<Tag> tags = getConventionTags(fullId);
+        String metricName = getConventionName(fullId);
 
-        // Create host attribute
-        String host = config.hostTag() == null ? "" : stream(tags.spliterator(), false)
-                .filter(t -> requireNonNull(config.hostTag()).equals(t.getKey()))
-                .findAny()
-                .map(t -> ",\"host\":\"" + escapeJson(t.getValue()) + "\"")
-                .orElse("");
-        // Create type attribute
-        String type = ",\"type\":\"" + DatadogMetricMetadata.sanitizeType(statistic) + "\"";
-        // Create unit attribute
-        String unit = "";
+        StringBuilder builder = body.startSeries();
+        builder.append("{\"metric\":\"").append(escapeJson(metricName)).append("\",")
+                .append("\"points\":[[").append(timestamp).append(", ").append(value).append("]]")
+                .append(tags.host)
+                .append(",\"type\":\"").append(DatadogMetricMetadata.sanitizeType(statistic)).append('"');
         if (id.getBaseUnit() != null || overrideBaseUnit != null) {
-            unit = ",\"unit\":\"" + DatadogMetricMetadata.sanitizeBaseUnit(id.getBaseUnit(), overrideBaseUnit) + "\"";
+            builder.append(",\"unit\":\"")
+                    .append(DatadogMetricMetadata.sanitizeBaseUnit(id.getBaseUnit(), overrideBaseUnit)).append('"');
+        }
+        builder.append(tags.tags).append('}');
+
+        if (metadata != null) {
+            addToMetadataList(metadata, metricName, fullId);
         }
+    }
+
+    /**
+     * The host and tags attributes are the same for every metric written for a meter, whatever its suffix.
+     */
+    private SeriesTags seriesTags(Meter.Id id) {
+        List<Tag> tags = getConventionTags(id);
+
+        // Create host attribute
+        String host = "";
+        String hostTag = config.hostTag();
+        if (hostTag != null) {
+            for (Tag tag : tags) {
+                if (hostTag.equals(tag.getKey())) {
+                    host = ",\"host\":\"" + escapeJson(tag.getValue()) + "\"";
+                    break;
+                }
+            }
+        }
+
         // Create tags attribute
-        String tagsArray = tags.iterator().hasNext()
-                ? stream(tags.spliterator(), false)
-                .map(t -> "\"" + escapeJson(t.getKey()) + ":" + escapeJson(t.getValue()) + "\"")
-                .collect(joining(",", ",\"tags\":[", "]"))
-                : "";
-
-        return "{\"metric\":\"" + escapeJson(getConventionName(fullId)) + "\"," +
-                "\"points\":[[" + (wallTime / 1000) + ", " + value + "]]" + host + type + unit + tagsArray + "}";
+        String tagsArray = "";
+        if (!tags.isEmpty()) {
+            StringBuilder builder = new StringBuilder(",\"tags\":[");
+            for (int i = 0; i < tags.size(); i++) {
+                Tag tag = tags.get(i);
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append('"').append(escapeJson(tag.getKey())).append(':').append(escapeJson(tag.getValue())).append('"');
+            }
+            tagsArray = builder.append(']').toString();
+        }
+
+        return new SeriesTags(host, tagsArray);
     }
 
     /**
@@ -339,4 +413,30 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
             return new DatadogMeterRegistry(config, clock, threadFactory, httpClient);
         }
     }
+
+    private static class SeriesBody {
+        final StringBuilder builder;
+        int series;
+
+        SeriesBody(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        StringBuilder startSeries() {
+            if (series++ > 0) {
+                builder.append(',');
+            }
+            return builder;
+        }
+    }
+
+    private static class SeriesTags {
+        final String host;
+        final String tags;
+
+        SeriesTags(String host, String tags) {
+            this.host = host;
+            this.tags = tags;
+        }
+    }
 }
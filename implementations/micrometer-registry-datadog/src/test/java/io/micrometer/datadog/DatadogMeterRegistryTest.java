@@ -27,9 +27,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import ru.lanwen.wiremock.ext.WiremockResolver;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verifyNoInteractions;
 
@@ -167,4 +171,109 @@ class DatadogMeterRegistryTest {
         registry.postMetricDescriptionMetadata("my.meter", new DatadogMetricMetadata(id, true));
         verifyNoInteractions(httpSender);
     }
+
+    @Test
+    void postMetadataOnlyUntilVerifiedAndOnlyForDescribedMeters() {
+        DatadogConfig config = new DatadogConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public String apiKey() {
+                return "fake";
+            }
+
+            @Override
+            public String applicationKey() {
+                return "fake";
+            }
+
+            @Override
+            public boolean enabled() {
+                return false;
+            }
+        };
+
+        List<HttpSender.Request> requests = new CopyOnWriteArrayList<>();
+        DatadogMeterRegistry registry = DatadogMeterRegistry.builder(config)
+                .clock(new MockClock())
+                .httpClient(request -> {
+                    requests.add(request);
+                    return new HttpSender.Response(200, "{}");
+                })
+                .build();
+
+        Counter.builder("my.counter").description("metric description").register(registry);
+        Counter.builder("my.undescribed.counter").register(registry);
+        registry.publish();
+        registry.publish();
+
+        assertThat(requests)
+                .filteredOn(request -> request.getMethod() == HttpSender.Method.PUT)
+                .extracting(request -> request.getUrl().getPath())
+                .containsExactly("/api/v1/metrics/my.counter");
+
+        registry.close();
+    }
+
+    @Test
+    void sendBatchesConcurrentlyAndCompressed() throws InterruptedException {
+        DatadogConfig config = new DatadogConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public String apiKey() {
+                return "fake";
+            }
+
+            @Override
+            public int batchSize() {
+                return 1;
+            }
+
+            @Override
+            public int numThreads() {
+                return 3;
+            }
+
+            @Override
+            public boolean compressed() {
+                return true;
+            }
+
+            @Override
+            public boolean enabled() {
+                return false;
+            }
+        };
+
+        CountDownLatch allInFlight = new CountDownLatch(3);
+        List<HttpSender.Request> requests = new CopyOnWriteArrayList<>();
+        DatadogMeterRegistry registry = DatadogMeterRegistry.builder(config)
+                .clock(new MockClock())
+                .httpClient(request -> {
+                    requests.add(request);
+                    allInFlight.countDown();
+                    // returns once three requests are in flight at the same time
+                    allInFlight.await(10, TimeUnit.SECONDS);
+                    return new HttpSender.Response(200, "{}");
+                })
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            Counter.builder("my.counter").tag("index", Integer.toString(i)).register(registry);
+        }
+        registry.publish();
+
+        assertThat(allInFlight.getCount()).isZero();
+        assertThat(requests).hasSize(5)
+                .allSatisfy(request -> assertThat(request.getRequestHeaders()).containsEntry("Content-Encoding", "gzip"));
+
+        registry.close();
+    }
 }
@@ -17,6 +17,7 @@ package io.micrometer.elastic;
 
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.push.ConcurrentRequestSender;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.instrument.util.MeterPartition;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
@@ -41,7 +42,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static io.micrometer.core.instrument.util.StringEscapeUtils.escapeJson;
-import static java.util.stream.Collectors.joining;
 
 /**
  * {@link MeterRegistry} for Elasticsearch.
@@ -102,8 +102,8 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
 
     private static final Pattern MAJOR_VERSION_PATTERN = Pattern.compile("\"number\" *: *\"([\\d]+)");
 
-    private static final String ERROR_RESPONSE_BODY_SIGNATURE = "\"errors\":true";
-    private static final Pattern STATUS_CREATED_PATTERN = Pattern.compile("\"status\":201");
+    private static final String ERRORS_FIELD = "\"errors\"";
+    private static final String STATUS_CREATED = "\"status\":201";
 
     private final Logger logger = LoggerFactory.getLogger(ElasticMeterRegistry.class);
 
@@ -114,6 +114,12 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
 
     private final String indexLine;
 
+    /**
+     * Sends bulk requests on up to {@link ElasticConfig#numThreads()} threads, so that indexing one batch overlaps
+     * with serializing the next.
+     */
+    private final ConcurrentRequestSender bulkRequestSender;
+
     private volatile Integer majorVersion;
     private volatile boolean checkedForIndexTemplate = false;
 
@@ -144,9 +150,17 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
             indexLine = "{ \"index\" : {} }\n";
         }
 
+        this.bulkRequestSender = new ConcurrentRequestSender(config.numThreads(), "elastic-bulk-request");
+
         start(threadFactory);
     }
 
+    @Override
+    public void close() {
+        super.close();
+        bulkRequestSender.close();
+    }
+
     public static Builder builder(ElasticConfig config) {
         return new Builder(config);
     }
@@ -195,47 +209,70 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
         createIndexTemplateIfNeeded();
 
         String uri = config.host() + "/" + indexName() + getTypePath() + "/_bulk";
+        String timestamp = generateTimestamp();
+        int capacity = 1024;
+
+        ConcurrentRequestSender.Requests requests = bulkRequestSender.newRequests();
         for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
             try {
-                String requestBody = batch.stream()
-                        .map(m -> m.match(
-                                this::writeGauge,
-                                this::writeCounter,
-                                this::writeTimer,
-                                this::writeSummary,
-                                this::writeLongTaskTimer,
-                                this::writeTimeGauge,
-                                this::writeFunctionCounter,
-                                this::writeFunctionTimer,
-                                this::writeMeter))
-                        .filter(Optional::isPresent)
-                        .map(Optional::get)
-                        .collect(joining("\n", "", "\n"));
-                httpClient
-                        .post(uri)
-                        .withBasicAuthentication(config.userName(), config.password())
-                        .withJsonContent(requestBody)
-                        .send()
-                        .onSuccess(response -> {
-                            int numberOfSentItems = batch.size();
-                            String responseBody = response.body();
-                            if (responseBody.contains(ERROR_RESPONSE_BODY_SIGNATURE)) {
-                                int numberOfCreatedItems = countCreatedItems(responseBody);
-                                logger.debug("failed metrics payload: {}", requestBody);
-                                logger.error("failed to send metrics to elastic (sent {} metrics but created {} metrics): {}",
-                                        numberOfSentItems, numberOfCreatedItems, responseBody);
-                            } else {
-                                logger.debug("successfully sent {} metrics to elastic", numberOfSentItems);
-                            }
-                        })
-                        .onError(response -> {
-                            logger.debug("failed metrics payload: {}", requestBody);
-                            logger.error("failed to send metrics to elastic: {}", response.body());
-                        });
+                BulkRequestBody body = new BulkRequestBody(timestamp, capacity);
+                for (Meter meter : batch) {
+                    meter.use(
+                            gauge -> writeGauge(body, gauge),
+                            counter -> writeCounter(body, counter),
+                            timer -> writeTimer(body, timer),
+                            summary -> writeSummary(body, summary),
+                            longTaskTimer -> writeLongTaskTimer(body, longTaskTimer),
+                            timeGauge -> writeTimeGauge(body, timeGauge),
+                            functionCounter -> writeFunctionCounter(body, functionCounter),
+                            functionTimer -> writeFunctionTimer(body, functionTimer),
+                            m -> writeMeter(body, m));
+                }
+                // batches are similar in size, so the next one is likely to fit without growing
+                capacity = Math.max(capacity, body.builder.length());
+
+                String requestBody = body.builder.toString();
+                requests.send(() -> sendBulkRequest(uri, requestBody, body.documents));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             } catch (Throwable e) {
                 logger.error("failed to send metrics to elastic", e);
             }
         }
+
+        try {
+            requests.await(e -> logger.error("failed to send metrics to elastic", e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sendBulkRequest(String uri, String requestBody, int numberOfSentItems) {
+        try {
+            httpClient
+                    .post(uri)
+                    .withBasicAuthentication(config.userName(), config.password())
+                    .withJsonContent(requestBody)
+                    .send()
+                    .onSuccess(response -> {
+                        String responseBody = response.body();
+                        if (hasErrors(responseBody)) {
+                            int numberOfCreatedItems = countCreatedItems(responseBody);
+                            logger.debug("failed metrics payload: {}", requestBody);
+                            logger.error("failed to send metrics to elastic (sent {} metrics but created {} metrics): {}",
+                                    numberOfSentItems, numberOfCreatedItems, responseBody);
+                        } else {
+                            logger.debug("successfully sent {} metrics to elastic", numberOfSentItems);
+                        }
+                    })
+                    .onError(response -> {
+                        logger.debug("failed metrics payload: {}", requestBody);
+                        logger.error("failed to send metrics to elastic: {}", response.body());
+                    });
+        } catch (Throwable e) {
+            logger.error("failed to send metrics to elastic", e);
+        }
     }
 
     private void determineMajorVersionIfNeeded() {
@@ -266,11 +303,27 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
         return majorVersion < 7 ? "/" + config.documentType() : TYPE_PATH_AFTER_VERSION_7;
     }
 
+    /**
+     * Whether any item of a bulk request failed, according to the {@code errors} flag which precedes the items in
+     * the response body, so that the items are only looked at when some failed.
+     */
+    // VisibleForTesting
+    static boolean hasErrors(String responseBody) {
+        int errors = responseBody.indexOf(ERRORS_FIELD);
+        if (errors < 0) {
+            return false;
+        }
+        int i = errors + ERRORS_FIELD.length();
+        while (i < responseBody.length() && (responseBody.charAt(i) == ':' || Character.isWhitespace(responseBody.charAt(i)))) {
+            i++;
+        }
+        return responseBody.startsWith("true", i);
+    }
+
     // VisibleForTesting
     static int countCreatedItems(String responseBody) {
-        Matcher matcher = STATUS_CREATED_PATTERN.matcher(responseBody);
         int count = 0;
-        while (matcher.find()) {
+        for (int i = responseBody.indexOf(STATUS_CREATED); i >= 0; i = responseBody.indexOf(STATUS_CREATED, i + STATUS_CREATED.length())) {
             count++;
         }
         return count;
@@ -289,89 +342,121 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
 
     // VisibleForTesting
     Optional<String> writeCounter(Counter counter) {
-        return writeCounter(counter, counter.count());
+        return writeStandalone(body -> writeCounter(body, counter));
+    }
+
+    private void writeCounter(BulkRequestBody body, Counter counter) {
+        writeCounter(body, counter, counter.count());
     }
 
     // VisibleForTesting
     Optional<String> writeFunctionCounter(FunctionCounter counter) {
-        return writeCounter(counter, counter.count());
+        return writeStandalone(body -> writeFunctionCounter(body, counter));
+    }
+
+    private void writeFunctionCounter(BulkRequestBody body, FunctionCounter counter) {
+        writeCounter(body, counter, counter.count());
     }
 
-    private Optional<String> writeCounter(Meter meter, Double value) {
+    private void writeCounter(BulkRequestBody body, Meter meter, double value) {
         if (Double.isFinite(value)) {
-            return Optional.of(writeDocument(meter, builder -> {
+            writeDocument(body, meter, builder -> {
                 builder.append(",\"count\":").append(value);
-            }));
+            });
         }
-        return Optional.empty();
     }
 
     // VisibleForTesting
     Optional<String> writeGauge(Gauge gauge) {
-        Double value = gauge.value();
+        return writeStandalone(body -> writeGauge(body, gauge));
+    }
+
+    private void writeGauge(BulkRequestBody body, Gauge gauge) {
+        double value = gauge.value();
         if (Double.isFinite(value)) {
-            return Optional.of(writeDocument(gauge, builder -> {
+            writeDocument(body, gauge, builder -> {
                 builder.append(",\"value\":").append(value);
-            }));
+            });
         }
-        return Optional.empty();
     }
 
     // VisibleForTesting
     Optional<String> writeTimeGauge(TimeGauge gauge) {
-        Double value = gauge.value(getBaseTimeUnit());
+        return writeStandalone(body -> writeTimeGauge(body, gauge));
+    }
+
+    private void writeTimeGauge(BulkRequestBody body, TimeGauge gauge) {
+        double value = gauge.value(getBaseTimeUnit());
         if (Double.isFinite(value)) {
-            return Optional.of(writeDocument(gauge, builder -> {
+            writeDocument(body, gauge, builder -> {
                 builder.append(",\"value\":").append(value);
-            }));
+            });
         }
-        return Optional.empty();
     }
 
     // VisibleForTesting
     Optional<String> writeFunctionTimer(FunctionTimer timer) {
+        return writeStandalone(body -> writeFunctionTimer(body, timer));
+    }
+
+    private void writeFunctionTimer(BulkRequestBody body, FunctionTimer timer) {
         double sum = timer.totalTime(getBaseTimeUnit());
         if (Double.isFinite(sum)) {
-            return Optional.of(writeDocument(timer, builder -> {
+            writeDocument(body, timer, builder -> {
                 builder.append(",\"count\":").append(timer.count());
                 builder.append(",\"sum\":").append(sum);
                 builder.append(",\"mean\":").append(timer.mean(getBaseTimeUnit()));
-            }));
+            });
         }
-        return Optional.empty();
     }
 
     // VisibleForTesting
     Optional<String> writeLongTaskTimer(LongTaskTimer timer) {
-        return Optional.of(writeDocument(timer, builder -> {
+        return writeStandalone(body -> writeLongTaskTimer(body, timer));
+    }
+
+    private void writeLongTaskTimer(BulkRequestBody body, LongTaskTimer timer) {
+        writeDocument(body, timer, builder -> {
             builder.append(",\"activeTasks\":").append(timer.activeTasks());
             builder.append(",\"duration\":").append(timer.duration(getBaseTimeUnit()));
-        }));
+        });
     }
 
     // VisibleForTesting
     Optional<String> writeTimer(Timer timer) {
-        return Optional.of(writeDocument(timer, builder -> {
+        return writeStandalone(body -> writeTimer(body, timer));
+    }
+
+    private void writeTimer(BulkRequestBody body, Timer timer) {
+        writeDocument(body, timer, builder -> {
             builder.append(",\"count\":").append(timer.count());
             builder.append(",\"sum\":").append(timer.totalTime(getBaseTimeUnit()));
             builder.append(",\"mean\":").append(timer.mean(getBaseTimeUnit()));
             builder.append(",\"max\":").append(timer.max(getBaseTimeUnit()));
-        }));
+        });
     }
 
     // VisibleForTesting
     Optional<String> writeSummary(DistributionSummary summary) {
+        return writeStandalone(body -> writeSummary(body, summary));
+    }
+
+    private void writeSummary(BulkRequestBody body, DistributionSummary summary) {
         HistogramSnapshot histogramSnapshot = summary.takeSnapshot();
-        return Optional.of(writeDocument(summary, builder -> {
+        writeDocument(body, summary, builder -> {
             builder.append(",\"count\":").append(histogramSnapshot.count());
             builder.append(",\"sum\":").append(histogramSnapshot.total());
             builder.append(",\"mean\":").append(histogramSnapshot.mean());
             builder.append(",\"max\":").append(histogramSnapshot.max());
-        }));
+        });
     }
 
     // VisibleForTesting
     Optional<String> writeMeter(Meter meter) {
+        return writeStandalone(body -> writeMeter(body, meter));
+    }
+
+    private void writeMeter(BulkRequestBody body, Meter meter) {
         Iterable<Measurement> measurements = meter.measure();
         List<String> names = new ArrayList<>();
         // Snapshot values should be used throughout this method as there are chances for values to be changed in-between.
@@ -385,13 +470,13 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
             values.add(value);
         }
         if (names.isEmpty()) {
-            return Optional.empty();
+            return;
         }
-        return Optional.of(writeDocument(meter, builder -> {
+        writeDocument(body, meter, builder -> {
             for (int i = 0; i < names.size(); i++) {
                 builder.append(",\"").append(names.get(i)).append("\":\"").append(values.get(i)).append("\"");
             }
-        }));
+        });
     }
 
     /**
@@ -404,13 +489,24 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
         return TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(config().clock().wallTime()));
     }
 
-    // VisibleForTesting
-    String writeDocument(Meter meter, Consumer<StringBuilder> consumer) {
-        StringBuilder sb = new StringBuilder(indexLine);
-        String timestamp = generateTimestamp();
+    /**
+     * Write a single document, as the bulk request body would contain it but without its trailing newline.
+     */
+    private Optional<String> writeStandalone(Consumer<BulkRequestBody> write) {
+        BulkRequestBody body = new BulkRequestBody(generateTimestamp(), 256);
+        write.accept(body);
+        if (body.documents == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(body.builder.substring(0, body.builder.length() - 1));
+    }
+
+    private void writeDocument(BulkRequestBody body, Meter meter, Consumer<StringBuilder> consumer) {
+        StringBuilder sb = body.builder;
         String name = getConventionName(meter.getId());
         String type = meter.getId().getType().toString().toLowerCase();
-        sb.append("{\"").append(config.timestampFieldName()).append("\":\"").append(timestamp).append('"')
+        sb.append(indexLine);
+        sb.append("{\"").append(config.timestampFieldName()).append("\":\"").append(body.timestamp).append('"')
                 .append(",\"name\":\"").append(escapeJson(name)).append('"')
                 .append(",\"type\":\"").append(type).append('"');
 
@@ -421,9 +517,23 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
         }
 
         consumer.accept(sb);
-        sb.append("}");
+        sb.append("}\n");
+        body.documents++;
+    }
 
-        return sb.toString();
+    /**
+     * The NDJSON body of a bulk request, which the documents of a batch are appended to as they are written. All
+     * documents of a publication share the same timestamp.
+     */
+    private static class BulkRequestBody {
+        private final String timestamp;
+        private final StringBuilder builder;
+        private int documents;
+
+        BulkRequestBody(String timestamp, int capacity) {
+            this.timestamp = timestamp;
+            this.builder = new StringBuilder(capacity);
+        }
     }
 
     @Override
@@ -17,11 +17,15 @@ package io.micrometer.elastic;
 
 import io.micrometer.core.Issue;
 import io.micrometer.core.instrument.*;
+import io.micrometer.core.ipc.http.HttpSender;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -299,5 +303,51 @@ class ElasticMeterRegistryTest {
         assertThat(registry.indexName()).isEqualTo("my-metrics");
     }
 
+    @Test
+    void hasErrors() {
+        assertThat(ElasticMeterRegistry.hasErrors("{\"took\":254,\"errors\":true,\"items\":[]}")).isTrue();
+        assertThat(ElasticMeterRegistry.hasErrors("{\n  \"took\" : 254,\n  \"errors\" : true,\n  \"items\" : []\n}")).isTrue();
+        assertThat(ElasticMeterRegistry.hasErrors("{\"took\":254,\"errors\":false,\"items\":[]}")).isFalse();
+        assertThat(ElasticMeterRegistry.hasErrors("{}")).isFalse();
+    }
+
+    @Test
+    void publishSendsBatchesConcurrentlyWithOneTimestamp() {
+        Queue<String> bulkRequests = new ConcurrentLinkedQueue<>();
+        HttpSender httpClient = request -> {
+            String url = request.getUrl().toString();
+            if (url.endsWith("/_bulk")) {
+                bulkRequests.add(new String(request.getEntity(), StandardCharsets.UTF_8));
+                return new HttpSender.Response(200, "{\"took\":1,\"errors\":false,\"items\":[]}");
+            }
+            return new HttpSender.Response(200, "{\"version\":{\"number\":\"7.0.1\"}}");
+        };
+        ElasticMeterRegistry registry = ElasticMeterRegistry.builder(new ElasticConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public int batchSize() {
+                return 1;
+            }
 
+            @Override
+            public int numThreads() {
+                return 2;
+            }
+        }).clock(clock).httpClient(httpClient).build();
+
+        for (int i = 0; i < 10; i++) {
+            registry.counter("my.counter", "i", Integer.toString(i)).increment();
+        }
+        registry.publish();
+        registry.close();
+
+        assertThat(bulkRequests).hasSize(20);
+        assertThat(bulkRequests).allSatisfy(body -> assertThat(body)
+                .startsWith("{ \"index\" : {} }\n{\"@timestamp\":\"1970-01-01T00:00:00.001Z\",\"name\":\"my_counter\"")
+                .endsWith("}\n"));
+    }
 }
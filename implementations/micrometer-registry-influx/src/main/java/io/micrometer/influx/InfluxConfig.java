@@ -106,7 +106,10 @@ public interface InfluxConfig extends StepRegistryConfig {
 
 
     /**
-     * @return The URI for the Influx backend. The default is {@code http://localhost:8086}.
+     * @return The URI for the Influx backend. The default is {@code http://localhost:8086}. A {@code udp://host:port}
+     * URI sends line protocol to the UDP listener of InfluxDB instead, without confirming receipt. The database,
+     * retention policy and precision are then those configured for the listener, which must use the default
+     * nanosecond precision.
      */
     default String uri() {
         String v = get(prefix() + ".uri");
@@ -129,4 +132,16 @@ public interface InfluxConfig extends StepRegistryConfig {
         String v = get(prefix() + ".autoCreateDb");
         return v == null || Boolean.parseBoolean(v);
     }
+
+    /**
+     * The maximum length of the datagrams sent when {@link #uri()} is a UDP URI. As many whole lines as fit are
+     * packed into each datagram. Keep it within your network's MTU, and within the read buffer of the UDP listener.
+     *
+     * @return The max length of the payload of a datagram.
+     * @since 1.5.0
+     */
+    default int maxPacketLength() {
+        String v = get(prefix() + ".maxPacketLength");
+        return v == null ? 1400 : Integer.parseInt(v);
+    }
 }
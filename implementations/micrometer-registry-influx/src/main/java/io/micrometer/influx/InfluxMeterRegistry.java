@@ -16,23 +16,28 @@
 package io.micrometer.influx;
 
 import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.config.NamingConvention;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.instrument.util.*;
 import io.micrometer.core.ipc.http.HttpSender;
 import io.micrometer.core.ipc.http.HttpUrlConnectionSender;
+import io.micrometer.core.lang.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
-import static java.util.stream.Collectors.joining;
-
 /**
  * {@link MeterRegistry} for InfluxDB.
  *
@@ -41,11 +46,35 @@ import static java.util.stream.Collectors.joining;
  */
 public class InfluxMeterRegistry extends StepMeterRegistry {
     private static final ThreadFactory DEFAULT_THREAD_FACTORY = new NamedThreadFactory("influx-metrics-publisher");
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final Map<Statistic, String> FIELD_KEYS = new EnumMap<>(Statistic.class);
+
+    static {
+        for (Statistic statistic : Statistic.values()) {
+            FIELD_KEYS.put(statistic, statistic.getTagValueRepresentation()
+                    .replaceAll("(.)(\\p{Upper})", "$1_$2").toLowerCase());
+        }
+    }
+
     private final InfluxConfig config;
     private final HttpSender httpClient;
     private final Logger logger = LoggerFactory.getLogger(InfluxMeterRegistry.class);
     private boolean databaseExists = false;
 
+    /**
+     * The escaped measurement and tags of each meter, which only change with the naming convention.
+     */
+    private final Map<Meter.Id, SeriesKey> seriesKeys = new ConcurrentHashMap<>();
+
+    /**
+     * The capacity the line protocol buffer of the previous publish grew to. Each publish has a buffer of its own,
+     * because closing the registry publishes once more while a scheduled publish may still be running.
+     */
+    private volatile int bufferSize = INITIAL_BUFFER_SIZE;
+
+    @Nullable
+    private final UdpLineSender udpSender;
+
     @SuppressWarnings("deprecation")
     public InfluxMeterRegistry(InfluxConfig config, Clock clock) {
         this(config, clock, DEFAULT_THREAD_FACTORY,
@@ -66,8 +95,13 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
     private InfluxMeterRegistry(InfluxConfig config, Clock clock, ThreadFactory threadFactory, HttpSender httpClient) {
         super(config, clock);
         config().namingConvention(new InfluxNamingConvention());
+        config().onMeterRemoved(meter -> seriesKeys.remove(meter.getId()));
         this.config = config;
         this.httpClient = httpClient;
+
+        URI uri = URI.create(config.uri());
+        this.udpSender = "udp".equalsIgnoreCase(uri.getScheme()) ? new UdpLineSender(uri, config.maxPacketLength()) : null;
+
         start(threadFactory);
     }
 
@@ -101,6 +135,11 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
 
     @Override
     protected void publish() {
+        if (udpSender != null) {
+            publishUdp(udpSender);
+            return;
+        }
+
         createDatabaseIfNecessary();
 
         try {
@@ -109,21 +148,17 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
                 influxEndpoint += "&rp=" + config.retentionPolicy();
             }
 
+            long timestamp = clock.wallTime();
+            LineProtocolBuffer lines = new LineProtocolBuffer(bufferSize);
             for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
+                lines.reset();
+                for (Meter meter : batch) {
+                    write(lines, meter, timestamp);
+                }
+
                 httpClient.post(influxEndpoint)
                         .withBasicAuthentication(config.userName(), config.password())
-                        .withPlainText(batch.stream()
-                                .flatMap(m -> m.match(
-                                        gauge -> writeGauge(gauge.getId(), gauge.value()),
-                                        counter -> writeCounter(counter.getId(), counter.count()),
-                                        this::writeTimer,
-                                        this::writeSummary,
-                                        this::writeLongTaskTimer,
-                                        gauge -> writeGauge(gauge.getId(), gauge.value(getBaseTimeUnit())),
-                                        counter -> writeCounter(counter.getId(), counter.count()),
-                                        this::writeFunctionTimer,
-                                        this::writeMeter))
-                                .collect(joining("\n")))
+                        .withContent("text/plain", lines.toByteArray())
                         .compressWhen(config::compressed)
                         .send()
                         .onSuccess(response -> {
@@ -132,6 +167,7 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
                         })
                         .onError(response -> logger.error("failed to send metrics to influx: {}", response.body()));
             }
+            bufferSize = lines.capacity();
         } catch (MalformedURLException e) {
             throw new IllegalArgumentException("Malformed InfluxDB publishing endpoint, see '" + config.prefix() + ".uri'", e);
         } catch (Throwable e) {
@@ -139,91 +175,155 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
         }
     }
 
+    private void publishUdp(UdpLineSender udpSender) {
+        try {
+            // the UDP listener only accepts the precision it is configured with, nanoseconds by default
+            long timestamp = TimeUnit.MILLISECONDS.toNanos(clock.wallTime());
+            LineProtocolBuffer lines = new LineProtocolBuffer(bufferSize);
+            for (Meter meter : getMeters()) {
+                write(lines, meter, timestamp);
+            }
+            bufferSize = lines.capacity();
+            int datagrams = udpSender.send(lines);
+            logger.debug("successfully sent {} metrics to InfluxDB in {} datagrams.", getMeters().size(), datagrams);
+        } catch (Throwable e) {
+            logger.error("failed to send metrics to influx", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (udpSender != null) {
+            udpSender.close();
+        }
+    }
+
+    private void write(LineProtocolBuffer lines, Meter meter, long timestamp) {
+        meter.use(
+                gauge -> writeGauge(lines, gauge.getId(), gauge.value(), timestamp),
+                counter -> writeCounter(lines, counter.getId(), counter.count(), timestamp),
+                timer -> writeTimer(lines, timer, timestamp),
+                summary -> writeSummary(lines, summary, timestamp),
+                timer -> writeLongTaskTimer(lines, timer, timestamp),
+                gauge -> writeGauge(lines, gauge.getId(), gauge.value(getBaseTimeUnit()), timestamp),
+                counter -> writeCounter(lines, counter.getId(), counter.count(), timestamp),
+                timer -> writeFunctionTimer(lines, timer, timestamp),
+                m -> writeMeter(lines, m, timestamp));
+    }
+
+    /**
+     * @return The line written on its own, timestamped with the current time.
+     */
+    private Stream<String> writeStandalone(Consumer<LineProtocolBuffer> write) {
+        LineProtocolBuffer lines = new LineProtocolBuffer(256);
+        write.accept(lines);
+        return lines.isEmpty() ? Stream.empty() : Stream.of(lines.toString());
+    }
+
     // VisibleForTesting
     Stream<String> writeMeter(Meter m) {
-        List<Field> fields = new ArrayList<>();
+        return writeStandalone(lines -> writeMeter(lines, m, clock.wallTime()));
+    }
+
+    private void writeMeter(LineProtocolBuffer lines, Meter m, long timestamp) {
+        Meter.Id id = m.getId();
+        boolean started = false;
         for (Measurement measurement : m.measure()) {
             double value = measurement.getValue();
             if (!Double.isFinite(value)) {
                 continue;
             }
-            String fieldKey = measurement.getStatistic().getTagValueRepresentation()
-                    .replaceAll("(.)(\\p{Upper})", "$1_$2").toLowerCase();
-            fields.add(new Field(fieldKey, value));
+            Field field = new Field(FIELD_KEYS.get(measurement.getStatistic()), value);
+            if (!started) {
+                lines.startLine(seriesKey(id, id.getType().name().toLowerCase()));
+                started = true;
+            }
+            lines.field(field.key, field.value);
         }
-        if (fields.isEmpty()) {
-            return Stream.empty();
+        if (started) {
+            lines.endLine(timestamp);
         }
-        Meter.Id id = m.getId();
-        return Stream.of(influxLineProtocol(id, id.getType().name().toLowerCase(), fields.stream()));
     }
 
-    private Stream<String> writeLongTaskTimer(LongTaskTimer timer) {
-        Stream<Field> fields = Stream.of(
-                new Field("active_tasks", timer.activeTasks()),
-                new Field("duration", timer.duration(getBaseTimeUnit()))
-        );
-        return Stream.of(influxLineProtocol(timer.getId(), "long_task_timer", fields));
+    private void writeLongTaskTimer(LineProtocolBuffer lines, LongTaskTimer timer, long timestamp) {
+        lines.startLine(seriesKey(timer.getId(), "long_task_timer"));
+        lines.field("active_tasks", timer.activeTasks());
+        lines.field("duration", timer.duration(getBaseTimeUnit()));
+        lines.endLine(timestamp);
     }
 
     // VisibleForTesting
     Stream<String> writeCounter(Meter.Id id, double count) {
+        return writeStandalone(lines -> writeCounter(lines, id, count, clock.wallTime()));
+    }
+
+    private void writeCounter(LineProtocolBuffer lines, Meter.Id id, double count, long timestamp) {
         if (Double.isFinite(count)) {
-            return Stream.of(influxLineProtocol(id, "counter", Stream.of(new Field("value", count))));
+            lines.startLine(seriesKey(id, "counter"));
+            lines.field("value", count);
+            lines.endLine(timestamp);
         }
-        return Stream.empty();
     }
 
     // VisibleForTesting
     Stream<String> writeGauge(Meter.Id id, Double value) {
+        return writeStandalone(lines -> writeGauge(lines, id, value, clock.wallTime()));
+    }
+
+    private void writeGauge(LineProtocolBuffer lines, Meter.Id id, double value, long timestamp) {
         if (Double.isFinite(value)) {
-            return Stream.of(influxLineProtocol(id, "gauge", Stream.of(new Field("value", value))));
+            lines.startLine(seriesKey(id, "gauge"));
+            lines.field("value", value);
+            lines.endLine(timestamp);
         }
-        return Stream.empty();
     }
 
-    private Stream<String> writeFunctionTimer(FunctionTimer timer) {
-        Stream<Field> fields = Stream.of(
-                new Field("sum", timer.totalTime(getBaseTimeUnit())),
-                new Field("count", timer.count()),
-                new Field("mean", timer.mean(getBaseTimeUnit()))
-        );
-
-        return Stream.of(influxLineProtocol(timer.getId(), "histogram", fields));
+    private void writeFunctionTimer(LineProtocolBuffer lines, FunctionTimer timer, long timestamp) {
+        lines.startLine(seriesKey(timer.getId(), "histogram"));
+        lines.field("sum", timer.totalTime(getBaseTimeUnit()));
+        lines.field("count", timer.count());
+        lines.field("mean", timer.mean(getBaseTimeUnit()));
+        lines.endLine(timestamp);
     }
 
-    private Stream<String> writeTimer(Timer timer) {
-        final Stream<Field> fields = Stream.of(
-                new Field("sum", timer.totalTime(getBaseTimeUnit())),
-                new Field("count", timer.count()),
-                new Field("mean", timer.mean(getBaseTimeUnit())),
-                new Field("upper", timer.max(getBaseTimeUnit()))
-        );
-
-        return Stream.of(influxLineProtocol(timer.getId(), "histogram", fields));
+    private void writeTimer(LineProtocolBuffer lines, Timer timer, long timestamp) {
+        lines.startLine(seriesKey(timer.getId(), "histogram"));
+        lines.field("sum", timer.totalTime(getBaseTimeUnit()));
+        lines.field("count", timer.count());
+        lines.field("mean", timer.mean(getBaseTimeUnit()));
+        lines.field("upper", timer.max(getBaseTimeUnit()));
+        lines.endLine(timestamp);
     }
 
-    private Stream<String> writeSummary(DistributionSummary summary) {
-        final Stream<Field> fields = Stream.of(
-                new Field("sum", summary.totalAmount()),
-                new Field("count", summary.count()),
-                new Field("mean", summary.mean()),
-                new Field("upper", summary.max())
-        );
-
-        return Stream.of(influxLineProtocol(summary.getId(), "histogram", fields));
+    private void writeSummary(LineProtocolBuffer lines, DistributionSummary summary, long timestamp) {
+        lines.startLine(seriesKey(summary.getId(), "histogram"));
+        lines.field("sum", summary.totalAmount());
+        lines.field("count", summary.count());
+        lines.field("mean", summary.mean());
+        lines.field("upper", summary.max());
+        lines.endLine(timestamp);
     }
 
-    private String influxLineProtocol(Meter.Id id, String metricType, Stream<Field> fields) {
-        String tags = getConventionTags(id).stream()
-                .filter(t -> StringUtils.isNotBlank(t.getValue()))
-                .map(t -> "," + t.getKey() + "=" + t.getValue())
-                .collect(joining(""));
+    /**
+     * @return The measurement and tags of a line, followed by the space that separates them from the fields.
+     */
+    private byte[] seriesKey(Meter.Id id, String metricType) {
+        NamingConvention namingConvention = config().namingConvention();
+        SeriesKey key = seriesKeys.get(id);
+        if (key == null || key.namingConvention != namingConvention || !key.metricType.equals(metricType)) {
+            StringBuilder sb = new StringBuilder(getConventionName(id));
+            for (Tag tag : getConventionTags(id)) {
+                if (StringUtils.isNotBlank(tag.getValue())) {
+                    sb.append(',').append(tag.getKey()).append('=').append(tag.getValue());
+                }
+            }
+            sb.append(",metric_type=").append(metricType).append(' ');
 
-        return getConventionName(id)
-                + tags + ",metric_type=" + metricType + " "
-                + fields.map(Field::toString).collect(joining(","))
-                + " " + clock.wallTime();
+            key = new SeriesKey(namingConvention, metricType, sb.toString().getBytes(StandardCharsets.UTF_8));
+            seriesKeys.put(id, key);
+        }
+        return key.bytes;
     }
 
     @Override
@@ -264,6 +364,18 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
         }
     }
 
+    private static class SeriesKey {
+        final NamingConvention namingConvention;
+        final String metricType;
+        final byte[] bytes;
+
+        SeriesKey(NamingConvention namingConvention, String metricType, byte[] bytes) {
+            this.namingConvention = namingConvention;
+            this.metricType = metricType;
+            this.bytes = bytes;
+        }
+    }
+
     static class Field {
         final String key;
         final double value;
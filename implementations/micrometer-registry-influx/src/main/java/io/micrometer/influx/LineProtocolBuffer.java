@@ -0,0 +1,152 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.influx;
+
+import io.micrometer.core.instrument.util.DoubleFormat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A buffer of UTF-8 encoded line protocol, reusable by one thread at a time, which lines are written into field by
+ * field. Lines are separated by a newline.
+ */
+class LineProtocolBuffer {
+    /**
+     * Whole numbers beyond this magnitude may not be exactly representable as a long.
+     */
+    private static final double MAX_EXACT_WHOLE = 1e15;
+
+    private byte[] bytes;
+    private int length;
+    private int fields;
+
+    LineProtocolBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    void reset() {
+        length = 0;
+    }
+
+    /**
+     * Start a line with its series key, the escaped measurement and tags followed by a space.
+     */
+    void startLine(byte[] seriesKey) {
+        if (length > 0) {
+            appendAscii('\n');
+        }
+        append(seriesKey);
+        fields = 0;
+    }
+
+    void field(String key, double value) {
+        if (fields++ > 0) {
+            appendAscii(',');
+        }
+        appendAscii(key);
+        appendAscii('=');
+        appendValue(value);
+    }
+
+    void endLine(long timestamp) {
+        appendAscii(' ');
+        appendLong(timestamp);
+    }
+
+    /**
+     * Formats the same as {@link DoubleFormat#decimalOrNan(double)}, but writes whole numbers such as counts
+     * directly.
+     */
+    private void appendValue(double value) {
+        if (value == (long) value && Math.abs(value) < MAX_EXACT_WHOLE &&
+                (value != 0 || Double.doubleToRawLongBits(value) == 0)) {
+            appendLong((long) value);
+        } else {
+            appendAscii(DoubleFormat.decimalOrNan(value));
+        }
+    }
+
+    private void appendLong(long value) {
+        if (value < 0) {
+            appendAscii('-');
+            if (value == Long.MIN_VALUE) {
+                appendAscii("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void appendAscii(char c) {
+        ensureCapacity(1);
+        bytes[length++] = (byte) c;
+    }
+
+    private void appendAscii(String s) {
+        ensureCapacity(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            bytes[length++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void append(byte[] b) {
+        ensureCapacity(b.length);
+        System.arraycopy(b, 0, bytes, length, b.length);
+        length += b.length;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (length + additional > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + additional));
+        }
+    }
+
+    boolean isEmpty() {
+        return length == 0;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    int capacity() {
+        return bytes.length;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
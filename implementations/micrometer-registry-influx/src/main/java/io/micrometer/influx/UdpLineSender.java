@@ -0,0 +1,96 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.influx;
+
+import io.micrometer.core.lang.Nullable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Sends line protocol to the UDP listener of InfluxDB, packing as many whole lines into each datagram as fit in
+ * the maximum packet length. Lines longer than that are sent in a datagram of their own. Lines can be sent from
+ * several threads at once.
+ */
+class UdpLineSender implements AutoCloseable {
+    private final InetSocketAddress address;
+    private final int maxPacketLength;
+
+    @Nullable
+    private DatagramChannel channel;
+
+    UdpLineSender(URI uri, int maxPacketLength) {
+        this.address = new InetSocketAddress(uri.getHost(), uri.getPort() == -1 ? 8089 : uri.getPort());
+        this.maxPacketLength = maxPacketLength;
+    }
+
+    /**
+     * @return The number of datagrams sent.
+     */
+    int send(LineProtocolBuffer lines) throws IOException {
+        byte[] bytes = lines.bytes();
+        int length = lines.length();
+
+        int datagrams = 0;
+        int packetStart = 0;
+        int lastLineEnd = -1;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && bytes[i] != '\n') {
+                continue;
+            }
+            // i is the end of a line
+            if (i - packetStart > maxPacketLength && lastLineEnd > packetStart) {
+                sendDatagram(bytes, packetStart, lastLineEnd);
+                datagrams++;
+                packetStart = lastLineEnd + 1;
+            }
+            lastLineEnd = i;
+        }
+        if (packetStart < length) {
+            sendDatagram(bytes, packetStart, length);
+            datagrams++;
+        }
+        return datagrams;
+    }
+
+    private void sendDatagram(byte[] bytes, int from, int to) throws IOException {
+        channel().send(ByteBuffer.wrap(bytes, from, to - from), address);
+    }
+
+    private synchronized DatagramChannel channel() throws IOException {
+        DatagramChannel channel = this.channel;
+        if (channel == null) {
+            channel = DatagramChannel.open();
+            this.channel = channel;
+        }
+        return channel;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing more to send
+            }
+            channel = null;
+        }
+    }
+}
@@ -16,8 +16,14 @@
 package io.micrometer.influx;
 
 import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.config.NamingConvention;
 import org.junit.jupiter.api.Test;
 
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -155,4 +161,70 @@ class InfluxMeterRegistryTest {
         Meter meter = Meter.builder("my.meter", Meter.Type.GAUGE, measurements).register(this.meterRegistry);
         assertThat(meterRegistry.writeMeter(meter)).containsExactly("my_meter,metric_type=gauge value=1,value=2 1");
     }
+
+    @Test
+    void writeWholeNumbersWithoutDecimalFormatting() {
+        Gauge gauge = Gauge.builder("my.gauge", () -> 1d).register(meterRegistry);
+        assertThat(meterRegistry.writeGauge(gauge.getId(), 1234567d)).containsExactly("my_gauge,metric_type=gauge value=1234567 1");
+        assertThat(meterRegistry.writeGauge(gauge.getId(), -3d)).containsExactly("my_gauge,metric_type=gauge value=-3 1");
+        assertThat(meterRegistry.writeGauge(gauge.getId(), 0.5)).containsExactly("my_gauge,metric_type=gauge value=0.5 1");
+        assertThat(meterRegistry.writeGauge(gauge.getId(), 1e16)).containsExactly("my_gauge,metric_type=gauge value=10000000000000000 1");
+    }
+
+    @Test
+    void seriesKeyFollowsNamingConventionChanges() {
+        Gauge gauge = Gauge.builder("my.gauge", () -> 1d).tag("foo", "bar").register(meterRegistry);
+        assertThat(meterRegistry.writeGauge(gauge.getId(), 1d)).containsExactly("my_gauge,foo=bar,metric_type=gauge value=1 1");
+
+        meterRegistry.config().namingConvention(NamingConvention.dot);
+        assertThat(meterRegistry.writeGauge(gauge.getId(), 1d)).containsExactly("my.gauge,foo=bar,metric_type=gauge value=1 1");
+    }
+
+    @Test
+    void publishOverUdpPacksLinesIntoDatagrams() throws Exception {
+        try (DatagramSocket listener = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            listener.setSoTimeout(5000);
+            InfluxConfig udpConfig = new InfluxConfig() {
+                @Override
+                public String get(String key) {
+                    return null;
+                }
+
+                @Override
+                public String uri() {
+                    return "udp://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + listener.getLocalPort();
+                }
+
+                @Override
+                public int maxPacketLength() {
+                    return 120;
+                }
+            };
+            InfluxMeterRegistry udpRegistry = InfluxMeterRegistry.builder(udpConfig).clock(clock).build();
+            for (int i = 0; i < 10; i++) {
+                udpRegistry.gauge("my.gauge", Tags.of("index", Integer.toString(i)), i);
+            }
+
+            udpRegistry.publish();
+
+            List<String> lines = new ArrayList<>();
+            int datagrams = 0;
+            byte[] buffer = new byte[1024];
+            while (lines.size() < 10) {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                listener.receive(packet);
+                datagrams++;
+                assertThat(packet.getLength()).isLessThanOrEqualTo(120);
+                String datagram = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+                lines.addAll(Arrays.asList(datagram.split("\n")));
+            }
+            udpRegistry.close();
+
+            // lines of 51 bytes, timestamped in nanoseconds, fit two to a datagram
+            assertThat(datagrams).isEqualTo(5);
+            assertThat(lines).hasSize(10)
+                    .contains("my_gauge,index=0,metric_type=gauge value=0 1000000")
+                    .contains("my_gauge,index=9,metric_type=gauge value=9 1000000");
+        }
+    }
 }
@@ -74,6 +74,22 @@ public class OpenTSDBDistributionSummary extends AbstractDistributionSummary {
             histogram.recordDouble(amount);
     }
 
+    @Override
+    protected void recordNonNegative(double[] amounts) {
+        double totalAmount = 0;
+        double maxAmount = 0;
+        for (double amount : amounts) {
+            totalAmount += amount;
+            maxAmount = Math.max(maxAmount, amount);
+        }
+        count.add(amounts.length);
+        this.amount.add(totalAmount);
+        max.record(maxAmount);
+
+        if (histogram != null)
+            histogram.recordDoubles(amounts);
+    }
+
     @Override
     public long count() {
         return count.longValue();
@@ -77,6 +77,22 @@ public class OpenTSDBTimer extends AbstractTimer {
             histogram.recordLong(TimeUnit.NANOSECONDS.convert(amount, unit));
     }
 
+    @Override
+    protected void recordNonNegative(long[] nanoAmounts) {
+        long totalNanos = 0;
+        long maxNanos = 0;
+        for (long nanoAmount : nanoAmounts) {
+            totalNanos += nanoAmount;
+            maxNanos = Math.max(maxNanos, nanoAmount);
+        }
+        count.add(nanoAmounts.length);
+        totalTime.add(totalNanos);
+        max.record(maxNanos, TimeUnit.NANOSECONDS);
+
+        if (histogram != null)
+            histogram.recordLongs(nanoAmounts);
+    }
+
     @Override
     public long count() {
         return count.longValue();
@@ -20,5 +20,16 @@ package io.micrometer.prometheus;
  */
 public enum HistogramFlavor {
     Prometheus,
-    VictoriaMetrics
+    VictoriaMetrics,
+
+    /**
+     * Base-2 exponential buckets, exposed as a single native histogram per time series when scraped in the
+     * protobuf format. See {@link PrometheusConfig#nativeHistogramSchema()} and
+     * {@link PrometheusConfig#nativeHistogramMaxBuckets()}. In the text format, the histogram is exposed as
+     * classic {@code le} buckets at the boundaries the {@link #Prometheus} flavor would use, so that the same series
+     * are exposed on every scrape. Their counts are exact only where a native bucket boundary falls on them.
+     *
+     * @since 1.5.0
+     */
+    PrometheusNative
 }
@@ -18,6 +18,7 @@ package io.micrometer.prometheus;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.config.NamingConvention;
+import io.micrometer.core.instrument.distribution.Base2ExponentialHistogram;
 import io.prometheus.client.Collector;
 
 import java.util.*;
@@ -68,12 +69,15 @@ class MicrometerCollector extends Collector {
         for (Child child : children.values()) {
             child.samples(conventionName, tagKeys).forEach(family -> {
                 families.compute(family.getConventionName(), (name, matchingFamily) -> matchingFamily != null ?
-                        matchingFamily.addSamples(family.samples) : family);
+                        matchingFamily.addSamples(family.samples).addNativeHistograms(family.nativeHistograms) : family);
             });
         }
 
         return families.values().stream()
-                .map(family -> new MetricFamilySamples(family.conventionName, family.type, help, family.samples))
+                .map(family -> family.nativeHistograms.isEmpty() ?
+                        new MetricFamilySamples(family.conventionName, family.type, help, family.samples) :
+                        new NativeHistogramFamilySamples(family.conventionName, family.type, help, family.samples,
+                                family.nativeHistograms))
                 .collect(toList());
     }
 
@@ -86,6 +90,11 @@ class MicrometerCollector extends Collector {
         final String conventionName;
         final List<MetricFamilySamples.Sample> samples = new ArrayList<>();
 
+        /**
+         * Native histogram buckets by the tag values of the meter they belong to.
+         */
+        final Map<List<String>, Base2ExponentialHistogram.Buckets> nativeHistograms = new HashMap<>();
+
         Family(Type type, String conventionName, MetricFamilySamples.Sample... samples) {
             this.type = type;
             this.conventionName = conventionName;
@@ -106,5 +115,24 @@ class MicrometerCollector extends Collector {
             this.samples.addAll(samples);
             return this;
         }
+
+        Family addNativeHistograms(Map<List<String>, Base2ExponentialHistogram.Buckets> nativeHistograms) {
+            this.nativeHistograms.putAll(nativeHistograms);
+            return this;
+        }
+    }
+
+    /**
+     * Samples of a histogram family that also carries native histogram buckets, which can only be exposed in the
+     * protobuf format.
+     */
+    static class NativeHistogramFamilySamples extends MetricFamilySamples {
+        final Map<List<String>, Base2ExponentialHistogram.Buckets> nativeHistograms;
+
+        NativeHistogramFamilySamples(String name, Type type, String help, List<Sample> samples,
+                                     Map<List<String>, Base2ExponentialHistogram.Buckets> nativeHistograms) {
+            super(name, type, help, samples);
+            this.nativeHistograms = nativeHistograms;
+        }
     }
 }
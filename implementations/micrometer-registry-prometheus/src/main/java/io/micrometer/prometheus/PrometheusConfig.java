@@ -73,4 +73,28 @@ public interface PrometheusConfig extends MeterRegistryConfig {
 
         throw new IllegalArgumentException("Unrecognized histogram flavor '" + v + "' (check property " + prefix() + ".histogramFlavor)");
     }
+
+    /**
+     * The initial resolution of {@link HistogramFlavor#PrometheusNative} histograms. Bucket boundaries grow by a
+     * factor of {@code 2^(2^-schema)}. The default of 3 yields buckets about 9% wider than the previous one.
+     *
+     * @return A schema between -4 and 8.
+     * @since 1.5.0
+     */
+    default int nativeHistogramSchema() {
+        String v = get(prefix() + ".nativeHistogramSchema");
+        return v == null ? 3 : Integer.parseInt(v);
+    }
+
+    /**
+     * The maximum number of buckets of a {@link HistogramFlavor#PrometheusNative} histogram. When exceeded,
+     * the resolution of the histogram is halved until its buckets fit again.
+     *
+     * @return The maximum number of buckets per histogram.
+     * @since 1.5.0
+     */
+    default int nativeHistogramMaxBuckets() {
+        String v = get(prefix() + ".nativeHistogramMaxBuckets");
+        return v == null ? 160 : Integer.parseInt(v);
+    }
 }
@@ -18,11 +18,12 @@ package io.micrometer.prometheus;
 import io.micrometer.core.instrument.AbstractMeter;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.cumulative.CumulativeState;
 import io.micrometer.core.instrument.util.MeterEquivalence;
 
 import java.util.concurrent.atomic.DoubleAdder;
 
-public class PrometheusCounter extends AbstractMeter implements Counter {
+public class PrometheusCounter extends AbstractMeter implements Counter, CumulativeState {
     private DoubleAdder count = new DoubleAdder();
 
     PrometheusCounter(Meter.Id id) {
@@ -40,6 +41,18 @@ public class PrometheusCounter extends AbstractMeter implements Counter {
         return count.doubleValue();
     }
 
+    @Override
+    public long[] checkpointState() {
+        return new long[]{Double.doubleToRawLongBits(count.doubleValue())};
+    }
+
+    @Override
+    public void restoreState(long[] state) {
+        if (state.length == 1) {
+            count.add(Double.longBitsToDouble(state[0]));
+        }
+    }
+
     @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
     @Override
     public boolean equals(Object o) {
@@ -17,25 +17,38 @@ package io.micrometer.prometheus;
 
 import io.micrometer.core.instrument.AbstractDistributionSummary;
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.cumulative.CumulativeState;
 import io.micrometer.core.instrument.distribution.*;
 import io.micrometer.core.instrument.util.MeterEquivalence;
 import io.micrometer.core.lang.Nullable;
 
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.concurrent.atomic.DoubleAdder;
 import java.util.concurrent.atomic.LongAdder;
 
-public class PrometheusDistributionSummary extends AbstractDistributionSummary {
+public class PrometheusDistributionSummary extends AbstractDistributionSummary implements CumulativeState {
     private static final CountAtBucket[] EMPTY_HISTOGRAM = new CountAtBucket[0];
     @Nullable
     private final Histogram histogram;
+
+    /**
+     * The fixed boundaries at which a native histogram is exposed as classic buckets, in the base unit.
+     */
+    private final double[] classicBoundaries;
+
+    /**
+     * Cumulative bucket counts restored from a previous run of the application.
+     */
+    @Nullable
+    private volatile long[] restoredHistogramCounts;
     private LongAdder count = new LongAdder();
     private DoubleAdder amount = new DoubleAdder();
     private TimeWindowMax max;
 
     private final HistogramFlavor histogramFlavor;
 
-    PrometheusDistributionSummary(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, double scale, HistogramFlavor histogramFlavor) {
+    PrometheusDistributionSummary(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, double scale, PrometheusConfig prometheusConfig) {
         super(id, clock,
                 DistributionStatisticConfig.builder()
                         .percentilesHistogram(false)
@@ -44,7 +57,7 @@ public class PrometheusDistributionSummary extends AbstractDistributionSummary {
                         .merge(distributionStatisticConfig),
                 scale, false);
 
-        this.histogramFlavor = histogramFlavor;
+        this.histogramFlavor = prometheusConfig.histogramFlavor();
         this.max = new TimeWindowMax(clock, distributionStatisticConfig);
 
         if (distributionStatisticConfig.isPublishingHistogram()) {
@@ -59,12 +72,20 @@ public class PrometheusDistributionSummary extends AbstractDistributionSummary {
                 case VictoriaMetrics:
                     histogram = new FixedBoundaryVictoriaMetricsHistogram();
                     break;
+                case PrometheusNative:
+                    histogram = PrometheusMeterRegistry.newNativeHistogram(prometheusConfig);
+                    break;
                 default:
                     histogram = null;
             }
         } else {
             histogram = null;
         }
+        this.classicBoundaries = histogram instanceof Base2ExponentialHistogram ?
+                distributionStatisticConfig.getHistogramBuckets(true).stream()
+                        .mapToDouble(Double::doubleValue)
+                        .toArray() :
+                new double[0];
     }
 
     @Override
@@ -77,6 +98,22 @@ public class PrometheusDistributionSummary extends AbstractDistributionSummary {
             histogram.recordDouble(amount);
     }
 
+    @Override
+    protected void recordNonNegative(double[] amounts) {
+        double totalAmount = 0;
+        double maxAmount = 0;
+        for (double amount : amounts) {
+            totalAmount += amount;
+            maxAmount = Math.max(maxAmount, amount);
+        }
+        count.add(amounts.length);
+        this.amount.add(totalAmount);
+        max.record(maxAmount);
+
+        if (histogram != null)
+            histogram.recordDoubles(amounts);
+    }
+
     @Override
     public long count() {
         return count.longValue();
@@ -114,7 +151,58 @@ public class PrometheusDistributionSummary extends AbstractDistributionSummary {
      * @return Cumulative histogram buckets.
      */
     public CountAtBucket[] histogramCounts() {
-        return histogram == null ? EMPTY_HISTOGRAM : histogram.takeSnapshot(0, 0, 0).histogramCounts();
+        if (histogram == null) {
+            return EMPTY_HISTOGRAM;
+        }
+
+        if (histogram instanceof Base2ExponentialHistogram) {
+            return ((Base2ExponentialHistogram) histogram).buckets().cumulativeCountsAt(classicBoundaries);
+        }
+
+        CountAtBucket[] counts = histogram.takeSnapshot(0, 0, 0).histogramCounts();
+        long[] restored = restoredHistogramCounts;
+        if (restored != null && restored.length == counts.length) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new CountAtBucket(counts[i].bucket(), counts[i].count() + restored[i]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return The buckets of the native histogram, in the base unit, or {@code null} unless the histogram flavor is
+     * {@link HistogramFlavor#PrometheusNative} and a histogram is published.
+     * @since 1.5.0
+     */
+    @Nullable
+    public Base2ExponentialHistogram.Buckets nativeHistogramBuckets() {
+        return histogram instanceof Base2ExponentialHistogram ? ((Base2ExponentialHistogram) histogram).buckets() : null;
+    }
+
+    @Override
+    public long[] checkpointState() {
+        CountAtBucket[] counts = histogramFlavor == HistogramFlavor.Prometheus ? histogramCounts() : EMPTY_HISTOGRAM;
+        long[] state = new long[2 + counts.length];
+        state[0] = count.longValue();
+        state[1] = Double.doubleToRawLongBits(amount.doubleValue());
+        for (int i = 0; i < counts.length; i++) {
+            state[2 + i] = (long) counts[i].count();
+        }
+        return state;
+    }
+
+    @Override
+    public void restoreState(long[] state) {
+        int buckets = histogramFlavor == HistogramFlavor.Prometheus ? histogramCounts().length : 0;
+        if (state.length != 2 + buckets) {
+            // histogram buckets have changed since the checkpoint was taken
+            return;
+        }
+        count.add(state[0]);
+        amount.add(Double.longBitsToDouble(state[1]));
+        if (buckets > 0) {
+            restoredHistogramCounts = Arrays.copyOfRange(state, 2, state.length);
+        }
     }
 
     @Override
@@ -18,6 +18,7 @@ package io.micrometer.prometheus;
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.cumulative.CumulativeFunctionCounter;
 import io.micrometer.core.instrument.cumulative.CumulativeFunctionTimer;
+import io.micrometer.core.instrument.distribution.Base2ExponentialHistogram;
 import io.micrometer.core.instrument.distribution.CountAtBucket;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.FixedBoundaryVictoriaMetricsHistogram;
@@ -32,7 +33,9 @@ import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.exporter.common.TextFormat;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.util.LinkedList;
 import java.util.List;
@@ -50,6 +53,20 @@ import static java.util.stream.StreamSupport.stream;
  * @author Jon Schneider
  */
 public class PrometheusMeterRegistry extends MeterRegistry {
+    /**
+     * Content type of {@link #scrapeProtobuf(OutputStream)}.
+     *
+     * @since 1.5.0
+     */
+    public static final String CONTENT_TYPE_PROTOBUF =
+            "application/vnd.google.protobuf; proto=io.prometheus.client.MetricFamily; encoding=delimited";
+
+    /**
+     * Samples this close to zero are counted in the zero bucket of native histograms, as they are by the Prometheus
+     * client libraries.
+     */
+    private static final double NATIVE_HISTOGRAM_ZERO_THRESHOLD = Math.pow(2, -128);
+
     private final CollectorRegistry registry;
     private final ConcurrentMap<String, MicrometerCollector> collectorMap = new ConcurrentHashMap<>();
     private final PrometheusConfig prometheusConfig;
@@ -92,7 +109,38 @@ public class PrometheusMeterRegistry extends MeterRegistry {
      * @throws IOException if writing fails
      */
     public void scrape(Writer writer) throws IOException {
-        TextFormat.write004(writer, registry.metricFamilySamples());
+        collectFunctionMetersAndWrite(() -> TextFormat.write004(writer, registry.metricFamilySamples()));
+    }
+
+    /**
+     * Scrape in the protobuf format, which is required for Prometheus to ingest
+     * {@link HistogramFlavor#PrometheusNative} histograms as native histograms. Serve it with a content type of
+     * {@link #CONTENT_TYPE_PROTOBUF} to scrape requests that accept it.
+     *
+     * @param outputStream Target that serves the content to be scraped by Prometheus.
+     * @throws IOException if writing fails
+     * @since 1.5.0
+     */
+    public void scrapeProtobuf(OutputStream outputStream) throws IOException {
+        collectFunctionMetersAndWrite(() -> PrometheusProtobufFormat.write(outputStream, registry.metricFamilySamples()));
+    }
+
+    private void collectFunctionMetersAndWrite(Write write) throws IOException {
+        try {
+            collectFunctionMeters(() -> {
+                try {
+                    write.write();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface Write {
+        void write() throws IOException;
     }
 
     @Override
@@ -110,7 +158,7 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     @Override
     public DistributionSummary newDistributionSummary(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, double scale) {
         MicrometerCollector collector = collectorByName(id);
-        PrometheusDistributionSummary summary = new PrometheusDistributionSummary(id, clock, distributionStatisticConfig, scale, prometheusConfig.histogramFlavor());
+        PrometheusDistributionSummary summary = new PrometheusDistributionSummary(id, clock, distributionStatisticConfig, scale, prometheusConfig);
         List<String> tagValues = tagValues(id);
 
         collector.add(tagValues, (conventionName, tagKeys) -> {
@@ -141,6 +189,7 @@ public class PrometheusMeterRegistry extends MeterRegistry {
                 List<String> histogramKeys = new LinkedList<>(tagKeys);
                 switch (summary.histogramFlavor()) {
                     case Prometheus:
+                    case PrometheusNative:
                         histogramKeys.add("le");
 
                         // satisfies https://prometheus.io/docs/concepts/metric_types/#histogram
@@ -178,7 +227,13 @@ public class PrometheusMeterRegistry extends MeterRegistry {
             samples.add(new Collector.MetricFamilySamples.Sample(
                     conventionName + "_sum", tagKeys, tagValues, summary.totalAmount()));
 
-            return Stream.of(new MicrometerCollector.Family(type, conventionName, samples.build()),
+            MicrometerCollector.Family family = new MicrometerCollector.Family(type, conventionName, samples.build());
+            Base2ExponentialHistogram.Buckets nativeHistogram = summary.nativeHistogramBuckets();
+            if (nativeHistogram != null) {
+                family.nativeHistograms.put(tagValues, nativeHistogram);
+            }
+
+            return Stream.of(family,
                     new MicrometerCollector.Family(Collector.Type.GAUGE, conventionName + "_max",
                             new Collector.MetricFamilySamples.Sample(conventionName + "_max", tagKeys, tagValues, summary.max())));
         });
@@ -189,7 +244,7 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     @Override
     protected io.micrometer.core.instrument.Timer newTimer(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector) {
         MicrometerCollector collector = collectorByName(id);
-        PrometheusTimer timer = new PrometheusTimer(id, clock, distributionStatisticConfig, pauseDetector, prometheusConfig.histogramFlavor());
+        PrometheusTimer timer = new PrometheusTimer(id, clock, distributionStatisticConfig, pauseDetector, prometheusConfig);
         List<String> tagValues = tagValues(id);
 
         collector.add(tagValues, (conventionName, tagKeys) -> {
@@ -221,6 +276,7 @@ public class PrometheusMeterRegistry extends MeterRegistry {
 
                 switch (prometheusConfig.histogramFlavor()) {
                     case Prometheus:
+                    case PrometheusNative:
                         histogramKeys.add("le");
 
                         // satisfies https://prometheus.io/docs/concepts/metric_types/#histogram
@@ -258,7 +314,13 @@ public class PrometheusMeterRegistry extends MeterRegistry {
             samples.add(new Collector.MetricFamilySamples.Sample(
                     conventionName + "_sum", tagKeys, tagValues, timer.totalTime(TimeUnit.SECONDS)));
 
-            return Stream.of(new MicrometerCollector.Family(type, conventionName, samples.build()),
+            MicrometerCollector.Family family = new MicrometerCollector.Family(type, conventionName, samples.build());
+            Base2ExponentialHistogram.Buckets nativeHistogram = timer.nativeHistogramBuckets();
+            if (nativeHistogram != null) {
+                family.nativeHistograms.put(tagValues, nativeHistogram);
+            }
+
+            return Stream.of(family,
                     new MicrometerCollector.Family(Collector.Type.GAUGE, conventionName + "_max", Stream.of(
                             new Collector.MetricFamilySamples.Sample(conventionName + "_max", tagKeys, tagValues,
                                     timer.max(getBaseTimeUnit())))));
@@ -415,6 +477,11 @@ public class PrometheusMeterRegistry extends MeterRegistry {
         });
     }
 
+    static Base2ExponentialHistogram newNativeHistogram(PrometheusConfig config) {
+        return new Base2ExponentialHistogram(config.nativeHistogramSchema(), config.nativeHistogramMaxBuckets(),
+                NATIVE_HISTOGRAM_ZERO_THRESHOLD);
+    }
+
     @Override
     protected DistributionStatisticConfig defaultHistogramConfig() {
         return DistributionStatisticConfig.builder()
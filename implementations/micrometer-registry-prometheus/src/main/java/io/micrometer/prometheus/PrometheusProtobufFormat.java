@@ -0,0 +1,380 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.micrometer.core.instrument.distribution.Base2ExponentialHistogram;
+import io.micrometer.core.lang.Nullable;
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes metric families as length-delimited {@code io.prometheus.client.MetricFamily} protobuf messages, the
+ * only scrape format that can carry native histograms. The handful of messages involved are encoded by hand
+ * rather than pulling in a protobuf runtime.
+ * <p>
+ * Micrometer publishes summary quantiles alongside histogram buckets in the same family, which the protobuf
+ * {@code Histogram} message has no room for, so such quantiles are omitted. VictoriaMetrics {@code vmrange}
+ * buckets are omitted too.
+ */
+final class PrometheusProtobufFormat {
+    // MetricType
+    private static final int COUNTER = 0;
+    private static final int GAUGE = 1;
+    private static final int SUMMARY = 2;
+    private static final int UNTYPED = 3;
+    private static final int HISTOGRAM = 4;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+
+    /**
+     * Zero-valued buckets are encoded within a span rather than starting a new one, unless there are more
+     * than this many in a row.
+     */
+    private static final int MAX_EMPTY_BUCKETS_IN_SPAN = 2;
+
+    private PrometheusProtobufFormat() {
+    }
+
+    static void write(OutputStream outputStream, Enumeration<MetricFamilySamples> families) throws IOException {
+        Message delimited = new Message();
+        while (families.hasMoreElements()) {
+            MetricFamilySamples family = families.nextElement();
+            for (Message metricFamily : metricFamilies(family)) {
+                delimited.varint(metricFamily.size());
+                delimited.append(metricFamily);
+            }
+        }
+        delimited.writeTo(outputStream);
+    }
+
+    private static List<Message> metricFamilies(MetricFamilySamples family) {
+        List<Message> messages = new ArrayList<>();
+
+        // samples that don't fit into the structure of the family's type are exposed as untyped families of their own
+        Map<String, List<Sample>> untyped = new LinkedHashMap<>();
+
+        switch (family.type) {
+            case SUMMARY:
+            case HISTOGRAM:
+                Map<List<String>, Message> metrics = new LinkedHashMap<>();
+                Map<List<String>, Aggregate> aggregates = new LinkedHashMap<>();
+                String special = family.type == Collector.Type.HISTOGRAM ? "le" : "quantile";
+                for (Sample sample : family.samples) {
+                    if (sample.name.equals(family.name + "_count") || sample.name.equals(family.name + "_sum") ||
+                            sample.name.equals(family.name + "_bucket") || sample.name.equals(family.name)) {
+                        List<String> key = labelValuesWithout(sample, "le", "quantile", "vmrange");
+                        aggregates.computeIfAbsent(key, k -> new Aggregate(sample, special)).add(sample, family.name);
+                    } else {
+                        untyped.computeIfAbsent(sample.name, n -> new ArrayList<>()).add(sample);
+                    }
+                }
+
+                Map<List<String>, Base2ExponentialHistogram.Buckets> nativeHistograms =
+                        family instanceof MicrometerCollector.NativeHistogramFamilySamples ?
+                                ((MicrometerCollector.NativeHistogramFamilySamples) family).nativeHistograms :
+                                Collections.emptyMap();
+
+                for (Map.Entry<List<String>, Aggregate> aggregate : aggregates.entrySet()) {
+                    Message metric = new Message();
+                    aggregate.getValue().writeLabels(metric);
+                    if (family.type == Collector.Type.HISTOGRAM) {
+                        metric.message(7, aggregate.getValue().histogram(nativeHistograms.get(aggregate.getKey())));
+                    } else {
+                        metric.message(4, aggregate.getValue().summary());
+                    }
+                    metrics.put(aggregate.getKey(), metric);
+                }
+
+                messages.add(metricFamily(family.name, family.help,
+                        family.type == Collector.Type.HISTOGRAM ? HISTOGRAM : SUMMARY, metrics.values()));
+                break;
+            default:
+                for (Sample sample : family.samples) {
+                    untyped.computeIfAbsent(sample.name, n -> new ArrayList<>()).add(sample);
+                }
+        }
+
+        for (Map.Entry<String, List<Sample>> byName : untyped.entrySet()) {
+            int type = UNTYPED;
+            int field = 5;
+            if (family.type == Collector.Type.COUNTER) {
+                type = COUNTER;
+                field = 3;
+            } else if (family.type == Collector.Type.GAUGE) {
+                type = GAUGE;
+                field = 2;
+            }
+
+            List<Message> metrics = new ArrayList<>();
+            for (Sample sample : byName.getValue()) {
+                Message metric = new Message();
+                writeLabels(metric, sample.labelNames, sample.labelValues);
+                metric.message(field, new Message().doubleField(1, sample.value));
+                if (sample.timestampMs != null) {
+                    metric.tag(6, WIRE_VARINT).varint(sample.timestampMs);
+                }
+                metrics.add(metric);
+            }
+            messages.add(metricFamily(byName.getKey(), family.help, type, metrics));
+        }
+
+        return messages;
+    }
+
+    private static Message metricFamily(String name, String help, int type, Collection<Message> metrics) {
+        Message metricFamily = new Message()
+                .string(1, name)
+                .string(2, help);
+        metricFamily.tag(3, WIRE_VARINT).varint(type);
+        for (Message metric : metrics) {
+            metricFamily.message(4, metric);
+        }
+        return metricFamily;
+    }
+
+    private static List<String> labelValuesWithout(Sample sample, String... excluded) {
+        List<String> values = new ArrayList<>(sample.labelValues.size());
+        for (int i = 0; i < sample.labelNames.size(); i++) {
+            if (!Arrays.asList(excluded).contains(sample.labelNames.get(i))) {
+                values.add(sample.labelValues.get(i));
+            }
+        }
+        return values;
+    }
+
+    private static void writeLabels(Message metric, List<String> names, List<String> values) {
+        for (int i = 0; i < names.size(); i++) {
+            metric.message(1, new Message()
+                    .string(1, names.get(i))
+                    .string(2, values.get(i)));
+        }
+    }
+
+    /**
+     * The samples of one summary or histogram time series.
+     */
+    private static class Aggregate {
+        private final Sample labels;
+        private final String special;
+
+        private double count;
+        private double sum;
+        private final List<Sample> quantilesOrBuckets = new ArrayList<>();
+
+        Aggregate(Sample labels, String special) {
+            this.labels = labels;
+            this.special = special;
+        }
+
+        void add(Sample sample, String familyName) {
+            if (sample.name.equals(familyName + "_count")) {
+                count = sample.value;
+            } else if (sample.name.equals(familyName + "_sum")) {
+                sum = sample.value;
+            } else if (sample.labelNames.contains(special)) {
+                quantilesOrBuckets.add(sample);
+            }
+        }
+
+        void writeLabels(Message metric) {
+            List<String> names = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < labels.labelNames.size(); i++) {
+                String name = labels.labelNames.get(i);
+                if (!name.equals("le") && !name.equals("quantile") && !name.equals("vmrange")) {
+                    names.add(name);
+                    values.add(labels.labelValues.get(i));
+                }
+            }
+            PrometheusProtobufFormat.writeLabels(metric, names, values);
+        }
+
+        Message summary() {
+            Message summary = new Message();
+            summary.tag(1, WIRE_VARINT).varint((long) count);
+            summary.doubleField(2, sum);
+            for (Sample quantile : quantilesOrBuckets) {
+                summary.message(3, new Message()
+                        .doubleField(1, Double.parseDouble(quantile.labelValues.get(quantile.labelNames.indexOf("quantile"))))
+                        .doubleField(2, quantile.value));
+            }
+            return summary;
+        }
+
+        Message histogram(@Nullable Base2ExponentialHistogram.Buckets nativeHistogram) {
+            Message histogram = new Message();
+            histogram.tag(1, WIRE_VARINT).varint((long) count);
+            histogram.doubleField(2, sum);
+
+            if (nativeHistogram == null) {
+                for (Sample bucket : quantilesOrBuckets) {
+                    double upperBound = parseBound(bucket.labelValues.get(bucket.labelNames.indexOf("le")));
+                    if (upperBound != Double.POSITIVE_INFINITY) {
+                        Message classicBucket = new Message();
+                        classicBucket.tag(1, WIRE_VARINT).varint((long) bucket.value);
+                        classicBucket.doubleField(2, upperBound);
+                        histogram.message(3, classicBucket);
+                    }
+                }
+                return histogram;
+            }
+
+            histogram.tag(5, WIRE_VARINT).varint(zigZag(nativeHistogram.schema()));
+            histogram.doubleField(6, nativeHistogram.zeroThreshold());
+            histogram.tag(7, WIRE_VARINT).varint(nativeHistogram.zeroCount());
+            writePositiveBuckets(histogram, nativeHistogram);
+            return histogram;
+        }
+
+        private static double parseBound(String le) {
+            switch (le) {
+                case "+Inf":
+                    return Double.POSITIVE_INFINITY;
+                case "-Inf":
+                    return Double.NEGATIVE_INFINITY;
+                default:
+                    return Double.parseDouble(le);
+            }
+        }
+    }
+
+    /**
+     * Spans of consecutive buckets are written as {@code BucketSpan} messages, whose offsets are relative to the
+     * end of the previous span, followed by the count of each bucket as a delta to the count of the bucket before it.
+     */
+    private static void writePositiveBuckets(Message histogram, Base2ExponentialHistogram.Buckets buckets) {
+        Message deltas = new Message();
+        long previousCount = 0;
+
+        // absolute bucket indices, so that the first span's offset is the index of its first bucket, which may be
+        // negative for buckets below 1
+        boolean spanStarted = false;
+        int spanStart = 0;
+        int spanEnd = 0; // exclusive
+        int previousSpanEnd = 0;
+
+        for (int i = 0; i < buckets.length(); i++) {
+            long count = buckets.count(i);
+            if (count == 0) {
+                continue;
+            }
+
+            int index = buckets.firstIndex() + i;
+            if (!spanStarted) {
+                spanStarted = true;
+                spanStart = index;
+            } else if (index - spanEnd > MAX_EMPTY_BUCKETS_IN_SPAN) {
+                writeSpan(histogram, spanStart - previousSpanEnd, spanEnd - spanStart);
+                previousSpanEnd = spanEnd;
+                spanStart = index;
+            } else {
+                // fill the gap with empty buckets
+                for (int empty = spanEnd; empty < index; empty++) {
+                    deltas.varint(zigZag(-previousCount));
+                    previousCount = 0;
+                }
+            }
+
+            deltas.varint(zigZag(count - previousCount));
+            previousCount = count;
+            spanEnd = index + 1;
+        }
+
+        if (spanStarted) {
+            writeSpan(histogram, spanStart - previousSpanEnd, spanEnd - spanStart);
+            histogram.tag(13, WIRE_LENGTH_DELIMITED).varint(deltas.size()).append(deltas);
+        }
+    }
+
+    private static void writeSpan(Message histogram, int offset, int length) {
+        Message span = new Message();
+        span.tag(1, WIRE_VARINT).varint(zigZag(offset));
+        span.tag(2, WIRE_VARINT).varint(length);
+        histogram.message(12, span);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * An encoded protobuf message under construction.
+     */
+    private static class Message {
+        private final Buffer bytes = new Buffer();
+
+        int size() {
+            return bytes.size();
+        }
+
+        Message tag(int field, int wireType) {
+            return varint((long) field << 3 | wireType);
+        }
+
+        Message varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes.write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes.write((int) value);
+            return this;
+        }
+
+        Message doubleField(int field, double value) {
+            tag(field, WIRE_FIXED64);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                bytes.write((int) (bits >>> (8 * i)) & 0xFF);
+            }
+            return this;
+        }
+
+        Message string(int field, String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            tag(field, WIRE_LENGTH_DELIMITED).varint(utf8.length);
+            bytes.write(utf8, 0, utf8.length);
+            return this;
+        }
+
+        Message message(int field, Message message) {
+            return tag(field, WIRE_LENGTH_DELIMITED).varint(message.size()).append(message);
+        }
+
+        Message append(Message message) {
+            message.bytes.writeTo(bytes);
+            return this;
+        }
+
+        void writeTo(OutputStream outputStream) throws IOException {
+            bytes.writeTo(outputStream);
+        }
+    }
+
+    private static class Buffer extends ByteArrayOutputStream {
+        void writeTo(Buffer other) {
+            other.write(buf, 0, count);
+        }
+    }
+}
@@ -17,16 +17,18 @@ package io.micrometer.prometheus;
 
 import io.micrometer.core.instrument.AbstractTimer;
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.cumulative.CumulativeState;
 import io.micrometer.core.instrument.distribution.*;
 import io.micrometer.core.instrument.distribution.pause.PauseDetector;
 import io.micrometer.core.instrument.util.TimeUtils;
 import io.micrometer.core.lang.Nullable;
 
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
 
-public class PrometheusTimer extends AbstractTimer {
+public class PrometheusTimer extends AbstractTimer implements CumulativeState {
     private static final CountAtBucket[] EMPTY_HISTOGRAM = new CountAtBucket[0];
 
     private final LongAdder count = new LongAdder();
@@ -38,7 +40,18 @@ public class PrometheusTimer extends AbstractTimer {
     @Nullable
     private final Histogram histogram;
 
-    PrometheusTimer(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector, HistogramFlavor histogramFlavor) {
+    /**
+     * The fixed boundaries at which a native histogram is exposed as classic buckets, in the base unit.
+     */
+    private final double[] classicBoundaries;
+
+    /**
+     * Cumulative bucket counts restored from a previous run of the application.
+     */
+    @Nullable
+    private volatile long[] restoredHistogramCounts;
+
+    PrometheusTimer(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector, PrometheusConfig prometheusConfig) {
         super(id, clock,
                 DistributionStatisticConfig.builder()
                         .percentilesHistogram(false)
@@ -47,7 +60,7 @@ public class PrometheusTimer extends AbstractTimer {
                         .merge(distributionStatisticConfig),
                 pauseDetector, TimeUnit.SECONDS, false);
 
-        this.histogramFlavor = histogramFlavor;
+        this.histogramFlavor = prometheusConfig.histogramFlavor();
         this.max = new TimeWindowMax(clock, distributionStatisticConfig);
 
         if (distributionStatisticConfig.isPublishingHistogram()) {
@@ -62,12 +75,20 @@ public class PrometheusTimer extends AbstractTimer {
                 case VictoriaMetrics:
                     histogram = new FixedBoundaryVictoriaMetricsHistogram();
                     break;
+                case PrometheusNative:
+                    histogram = PrometheusMeterRegistry.newNativeHistogram(prometheusConfig);
+                    break;
                 default:
                     histogram = null;
             }
         } else {
             histogram = null;
         }
+        this.classicBoundaries = histogram instanceof Base2ExponentialHistogram ?
+                distributionStatisticConfig.getHistogramBuckets(true).stream()
+                        .mapToDouble(nanos -> TimeUtils.nanosToUnit(nanos, TimeUnit.SECONDS))
+                        .toArray() :
+                new double[0];
     }
 
     @Override
@@ -77,8 +98,39 @@ public class PrometheusTimer extends AbstractTimer {
         totalTime.add(nanoAmount);
         max.record(nanoAmount, TimeUnit.NANOSECONDS);
 
-        if (histogram != null)
-            histogram.recordLong(TimeUnit.NANOSECONDS.convert(amount, unit));
+        if (histogram != null) {
+            if (histogramFlavor == HistogramFlavor.PrometheusNative) {
+                // native buckets are powers of 2 in the base unit
+                histogram.recordDouble(TimeUtils.nanosToUnit(nanoAmount, TimeUnit.SECONDS));
+            } else {
+                histogram.recordLong(nanoAmount);
+            }
+        }
+    }
+
+    @Override
+    protected void recordNonNegative(long[] nanoAmounts) {
+        long totalNanos = 0;
+        long maxNanos = 0;
+        for (long nanoAmount : nanoAmounts) {
+            totalNanos += nanoAmount;
+            maxNanos = Math.max(maxNanos, nanoAmount);
+        }
+        count.add(nanoAmounts.length);
+        totalTime.add(totalNanos);
+        max.record(maxNanos, TimeUnit.NANOSECONDS);
+
+        if (histogram != null) {
+            if (histogramFlavor == HistogramFlavor.PrometheusNative) {
+                double[] secondAmounts = new double[nanoAmounts.length];
+                for (int i = 0; i < nanoAmounts.length; i++) {
+                    secondAmounts[i] = TimeUtils.nanosToUnit(nanoAmounts[i], TimeUnit.SECONDS);
+                }
+                histogram.recordDoubles(secondAmounts);
+            } else {
+                histogram.recordLongs(nanoAmounts);
+            }
+        }
     }
 
     @Override
@@ -108,7 +160,62 @@ public class PrometheusTimer extends AbstractTimer {
      * @return Cumulative histogram buckets.
      */
     public CountAtBucket[] histogramCounts() {
-        return histogram == null ? EMPTY_HISTOGRAM : histogram.takeSnapshot(0, 0, 0).histogramCounts();
+        if (histogram == null) {
+            return EMPTY_HISTOGRAM;
+        }
+
+        if (histogram instanceof Base2ExponentialHistogram) {
+            CountAtBucket[] counts = ((Base2ExponentialHistogram) histogram).buckets().cumulativeCountsAt(classicBoundaries);
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new CountAtBucket(TimeUtils.secondsToUnit(counts[i].bucket(), TimeUnit.NANOSECONDS), counts[i].count());
+            }
+            return counts;
+        }
+
+        CountAtBucket[] counts = histogram.takeSnapshot(0, 0, 0).histogramCounts();
+        long[] restored = restoredHistogramCounts;
+        if (restored != null && restored.length == counts.length) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new CountAtBucket(counts[i].bucket(), counts[i].count() + restored[i]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return The buckets of the native histogram, in the base unit, or {@code null} unless the histogram flavor is
+     * {@link HistogramFlavor#PrometheusNative} and a histogram is published.
+     * @since 1.5.0
+     */
+    @Nullable
+    public Base2ExponentialHistogram.Buckets nativeHistogramBuckets() {
+        return histogram instanceof Base2ExponentialHistogram ? ((Base2ExponentialHistogram) histogram).buckets() : null;
+    }
+
+    @Override
+    public long[] checkpointState() {
+        CountAtBucket[] counts = histogramFlavor == HistogramFlavor.Prometheus ? histogramCounts() : EMPTY_HISTOGRAM;
+        long[] state = new long[2 + counts.length];
+        state[0] = count.longValue();
+        state[1] = totalTime.longValue();
+        for (int i = 0; i < counts.length; i++) {
+            state[2 + i] = (long) counts[i].count();
+        }
+        return state;
+    }
+
+    @Override
+    public void restoreState(long[] state) {
+        int buckets = histogramFlavor == HistogramFlavor.Prometheus ? histogramCounts().length : 0;
+        if (state.length != 2 + buckets) {
+            // histogram buckets have changed since the checkpoint was taken
+            return;
+        }
+        count.add(state[0]);
+        totalTime.add(state[1]);
+        if (buckets > 0) {
+            restoredHistogramCounts = Arrays.copyOfRange(state, 2, state.length);
+        }
     }
 
     @Override
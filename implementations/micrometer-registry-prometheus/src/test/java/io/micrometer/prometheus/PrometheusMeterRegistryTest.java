@@ -19,6 +19,7 @@ import io.micrometer.core.Issue;
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.binder.BaseUnits;
 import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.prometheus.client.Collector;
 import io.prometheus.client.CollectorRegistry;
@@ -418,4 +419,61 @@ class PrometheusMeterRegistryTest {
 
         assertThat(timer.takeSnapshot().percentileValues()[0].value()).isEqualTo(2.0, offset(0.2));
     }
+
+    @Test
+    void timerHistogramStateCanBeRestored() {
+        Timer timer = Timer.builder("my.timer")
+                .sla(Duration.ofMillis(10), Duration.ofMillis(100))
+                .register(registry);
+        timer.record(5, TimeUnit.MILLISECONDS);
+        timer.record(50, TimeUnit.MILLISECONDS);
+
+        long[] state = ((PrometheusTimer) timer).checkpointState();
+
+        PrometheusMeterRegistry restarted = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT, new CollectorRegistry(), clock);
+        Timer restored = Timer.builder("my.timer")
+                .sla(Duration.ofMillis(10), Duration.ofMillis(100))
+                .register(restarted);
+        ((PrometheusTimer) restored).restoreState(state);
+        restored.record(50, TimeUnit.MILLISECONDS);
+
+        assertThat(restored.count()).isEqualTo(3);
+        assertThat(restored.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(105);
+        assertThat(((PrometheusTimer) restored).histogramCounts()).extracting(CountAtBucket::count)
+                .containsExactly(1.0, 3.0);
+    }
+
+    @Test
+    void nativeHistogramsScrapeAsStableClassicBucketsInText() {
+        PrometheusConfig nativeConfig = key -> key.equals("prometheus.histogramFlavor") ? "PrometheusNative" : null;
+        PrometheusMeterRegistry nativeRegistry = new PrometheusMeterRegistry(nativeConfig, new CollectorRegistry(), clock);
+        Timer timer = Timer.builder("my.timer")
+                .sla(Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(4))
+                .register(nativeRegistry);
+
+        assertThat(nativeRegistry.scrape())
+                .contains("my_timer_seconds_bucket{le=\"1.0\",} 0.0")
+                .contains("my_timer_seconds_bucket{le=\"2.0\",} 0.0")
+                .contains("my_timer_seconds_bucket{le=\"4.0\",} 0.0")
+                .contains("my_timer_seconds_bucket{le=\"+Inf\",} 0.0");
+
+        timer.record(1, TimeUnit.SECONDS);
+        timer.record(4, TimeUnit.SECONDS);
+        assertThat(((PrometheusTimer) timer).nativeHistogramBuckets().schema()).isEqualTo(3);
+        assertThat(nativeRegistry.scrape())
+                .contains("my_timer_seconds_bucket{le=\"1.0\",} 1.0")
+                .contains("my_timer_seconds_bucket{le=\"2.0\",} 1.0")
+                .contains("my_timer_seconds_bucket{le=\"4.0\",} 2.0")
+                .contains("my_timer_seconds_bucket{le=\"+Inf\",} 2.0");
+
+        // far enough from the other samples for the histogram to lower its schema
+        timer.record(1, TimeUnit.NANOSECONDS);
+        assertThat(((PrometheusTimer) timer).nativeHistogramBuckets().schema()).isLessThan(3);
+        assertThat(nativeRegistry.scrape())
+                .contains("my_timer_seconds_bucket{le=\"1.0\",} 2.0")
+                .contains("my_timer_seconds_bucket{le=\"2.0\",} 2.0")
+                .contains("my_timer_seconds_bucket{le=\"4.0\",} 3.0")
+                .contains("my_timer_seconds_bucket{le=\"+Inf\",} 3.0")
+                .doesNotContain("le=\"1.0E-9\"");
+    }
 }
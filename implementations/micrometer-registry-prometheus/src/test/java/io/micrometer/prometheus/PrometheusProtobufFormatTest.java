@@ -0,0 +1,201 @@
+/**
+ * Copyright 2017 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PrometheusProtobufFormat}, decoding the output with a minimal protobuf reader.
+ */
+class PrometheusProtobufFormatTest {
+    private final PrometheusConfig nativeConfig = key -> key.equals("prometheus.histogramFlavor") ? "PrometheusNative" : null;
+    private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(nativeConfig, new CollectorRegistry(), new MockClock());
+
+    @Test
+    void counter() throws IOException {
+        Counter.builder("requests").tag("uri", "/api").register(registry).increment(3);
+
+        Map<String, Fields> families = scrape();
+        Fields requests = families.get("requests_total");
+        assertThat(requests.varint(3)).isEqualTo(0); // COUNTER
+
+        Fields metric = requests.message(4);
+        Fields label = metric.message(1);
+        assertThat(label.string(1)).isEqualTo("uri");
+        assertThat(label.string(2)).isEqualTo("/api");
+        assertThat(metric.message(3).fixed64(1)).isEqualTo(3.0);
+    }
+
+    @Test
+    void nativeHistogram() throws IOException {
+        Timer timer = Timer.builder("latency").publishPercentileHistogram().register(registry);
+        timer.record(1, TimeUnit.SECONDS);
+        timer.record(1, TimeUnit.SECONDS);
+        timer.record(4, TimeUnit.SECONDS);
+        timer.record(1024, TimeUnit.SECONDS);
+
+        Map<String, Fields> families = scrape();
+        Fields latency = families.get("latency_seconds");
+        assertThat(latency.varint(3)).isEqualTo(4); // HISTOGRAM
+        assertThat(families).containsKey("latency_seconds_max");
+
+        Fields histogram = latency.message(4).message(7);
+        assertThat(histogram.varint(1)).isEqualTo(4);
+        assertThat(histogram.fixed64(2)).isEqualTo(1030.0);
+        assertThat(histogram.all(3)).isEmpty(); // no classic buckets
+
+        assertThat(zigZag(histogram.varint(5))).isEqualTo(3);
+        assertThat(histogram.varint(7)).isZero();
+
+        // at schema 3, 1s, 4s and 1024s fall into buckets 0, 16 and 80
+        List<Object> spans = histogram.all(12);
+        assertThat(spans).hasSize(3);
+        assertThat(zigZag(new Fields((byte[]) spans.get(0)).varint(1))).isEqualTo(0);
+        assertThat(new Fields((byte[]) spans.get(0)).varint(2)).isEqualTo(1);
+        assertThat(zigZag(new Fields((byte[]) spans.get(1)).varint(1))).isEqualTo(15);
+        assertThat(zigZag(new Fields((byte[]) spans.get(2)).varint(1))).isEqualTo(63);
+
+        List<Long> deltas = new ArrayList<>();
+        ByteBuffer packed = ByteBuffer.wrap(histogram.bytes(13));
+        while (packed.hasRemaining()) {
+            deltas.add(zigZag(readVarint(packed)));
+        }
+        assertThat(deltas).containsExactly(2L, -1L, 0L);
+    }
+
+    @Test
+    void nativeHistogramWithSamplesBelowOneSecond() throws IOException {
+        Timer timer = Timer.builder("latency").publishPercentileHistogram().register(registry);
+        timer.record(900, TimeUnit.MILLISECONDS);
+        timer.record(1500, TimeUnit.MILLISECONDS);
+
+        Fields histogram = scrape().get("latency_seconds").message(4).message(7);
+
+        // at schema 3, 0.9s and 1.5s fall into buckets -1 and 5
+        List<Object> spans = histogram.all(12);
+        assertThat(spans).hasSize(2);
+        assertThat(zigZag(new Fields((byte[]) spans.get(0)).varint(1))).isEqualTo(-1);
+        assertThat(new Fields((byte[]) spans.get(0)).varint(2)).isEqualTo(1);
+        assertThat(zigZag(new Fields((byte[]) spans.get(1)).varint(1))).isEqualTo(5);
+        assertThat(new Fields((byte[]) spans.get(1)).varint(2)).isEqualTo(1);
+
+        List<Long> deltas = new ArrayList<>();
+        ByteBuffer packed = ByteBuffer.wrap(histogram.bytes(13));
+        while (packed.hasRemaining()) {
+            deltas.add(zigZag(readVarint(packed)));
+        }
+        assertThat(deltas).containsExactly(1L, 0L);
+    }
+
+    private Map<String, Fields> scrape() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        registry.scrapeProtobuf(out);
+
+        Map<String, Fields> families = new LinkedHashMap<>();
+        ByteBuffer delimited = ByteBuffer.wrap(out.toByteArray());
+        while (delimited.hasRemaining()) {
+            byte[] message = new byte[(int) readVarint(delimited)];
+            delimited.get(message);
+            Fields family = new Fields(message);
+            families.put(family.string(1), family);
+        }
+        return families;
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static class Fields {
+        private final Map<Integer, List<Object>> fields = new LinkedHashMap<>();
+
+        Fields(byte[] message) {
+            ByteBuffer buffer = ByteBuffer.wrap(message).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                long key = readVarint(buffer);
+                Object value;
+                switch ((int) (key & 7)) {
+                    case 0:
+                        value = readVarint(buffer);
+                        break;
+                    case 1:
+                        value = buffer.getDouble();
+                        break;
+                    case 2:
+                        byte[] bytes = new byte[(int) readVarint(buffer)];
+                        buffer.get(bytes);
+                        value = bytes;
+                        break;
+                    default:
+                        throw new IllegalStateException("unexpected wire type " + (key & 7));
+                }
+                fields.computeIfAbsent((int) (key >>> 3), f -> new ArrayList<>()).add(value);
+            }
+        }
+
+        List<Object> all(int field) {
+            return fields.getOrDefault(field, new ArrayList<>());
+        }
+
+        long varint(int field) {
+            return (Long) all(field).get(0);
+        }
+
+        double fixed64(int field) {
+            return (Double) all(field).get(0);
+        }
+
+        byte[] bytes(int field) {
+            return (byte[]) all(field).get(0);
+        }
+
+        String string(int field) {
+            return new String(bytes(field), StandardCharsets.UTF_8);
+        }
+
+        Fields message(int field) {
+            return new Fields(bytes(field));
+        }
+    }
+}
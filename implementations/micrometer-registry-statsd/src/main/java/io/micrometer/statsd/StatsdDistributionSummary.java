@@ -53,6 +53,22 @@ public class StatsdDistributionSummary extends AbstractDistributionSummary {
         }
     }
 
+    @Override
+    protected void recordNonNegative(double[] amounts) {
+        if (!shutdown) {
+            double totalAmount = 0;
+            double maxAmount = 0;
+            for (double amount : amounts) {
+                totalAmount += amount;
+                maxAmount = Math.max(maxAmount, amount);
+                sink.next(lineBuilder.histogram(amount));
+            }
+            count.add(amounts.length);
+            this.amount.add(totalAmount);
+            max.record(maxAmount);
+        }
+    }
+
     @Override
     public long count() {
         return count.longValue();
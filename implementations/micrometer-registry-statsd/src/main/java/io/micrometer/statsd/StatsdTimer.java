@@ -58,6 +58,23 @@ public class StatsdTimer extends AbstractTimer {
         }
     }
 
+    @Override
+    protected void recordNonNegative(long[] nanoAmounts) {
+        if (!shutdown) {
+            double totalMs = 0;
+            double maxMs = 0;
+            for (long nanoAmount : nanoAmounts) {
+                double msAmount = TimeUtils.nanosToUnit(nanoAmount, TimeUnit.MILLISECONDS);
+                totalMs += msAmount;
+                maxMs = Math.max(maxMs, msAmount);
+                sink.next(lineBuilder.timing(msAmount));
+            }
+            count.add(nanoAmounts.length);
+            totalTime.add(totalMs);
+            max.getCurrent().add(Math.max(maxMs - max.getCurrent().doubleValue(), 0));
+        }
+    }
+
     @Override
     public long count() {
         return count.longValue();
@@ -40,10 +40,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.net.*;
-import java.nio.charset.StandardCharsets;
+import java.net.URI;
+import java.net.URL;
+import java.net.UnknownHostException;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -55,6 +56,7 @@ import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.StreamSupport.stream;
 
@@ -75,6 +77,12 @@ public class WavefrontMeterRegistry extends PushMeterRegistry {
     private final int distributionPort;
     private final Set<HistogramGranularity> histogramGranularities;
 
+    @Nullable
+    private final WavefrontProxyConnection metricsConnection;
+
+    @Nullable
+    private final WavefrontProxyConnection distributionConnection;
+
     /**
      * @param config Configuration options for the registry that are describable as properties.
      * @param clock  The clock to use for timings.
@@ -97,6 +105,7 @@ public class WavefrontMeterRegistry extends PushMeterRegistry {
             new HttpUrlConnectionSender(config.connectTimeout(), config.readTimeout()));
     }
 
+    @SuppressWarnings("deprecation")
     private WavefrontMeterRegistry(WavefrontConfig config, Clock clock, ThreadFactory threadFactory,
                                    HttpSender httpClient) {
         super(config, clock);
@@ -120,11 +129,33 @@ public class WavefrontMeterRegistry extends PushMeterRegistry {
             this.histogramGranularities.add(HistogramGranularity.DAY);
         }
 
+        if (directToApi()) {
+            this.metricsConnection = null;
+            this.distributionConnection = null;
+        } else {
+            // connectTimeout should be pulled up to WavefrontConfig when it is removed elsewhere
+            this.metricsConnection = new WavefrontProxyConnection(uri.getHost(), uri.getPort(),
+                config.connectTimeout(), this, clock);
+            this.distributionConnection = new WavefrontProxyConnection(uri.getHost(), distributionPort,
+                config.connectTimeout(), this, clock);
+        }
+
         config().namingConvention(new WavefrontNamingConvention(config.globalPrefix()));
 
         start(threadFactory);
     }
 
+    @Override
+    public void close() {
+        super.close();
+        if (metricsConnection != null) {
+            metricsConnection.close();
+        }
+        if (distributionConnection != null) {
+            distributionConnection.close();
+        }
+    }
+
     @Override
     protected <T> Gauge newGauge(Meter.Id id, @Nullable T obj, ToDoubleFunction<T> valueFunction) {
         return new DefaultGauge<>(id, obj, valueFunction);
@@ -180,46 +211,47 @@ public class WavefrontMeterRegistry extends PushMeterRegistry {
     @Override
     protected void publish() {
         for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
-            Stream.Builder<String> metrics = Stream.builder();
-            Stream.Builder<String> distributions = Stream.builder();
-            AtomicInteger distributionCount = new AtomicInteger();
-
-            batch.stream()
-                .flatMap(m -> m.match(
-                    this::writeMeter,
-                    this::writeMeter,
-                    this::writeTimer,
-                    this::writeSummary,
-                    this::writeMeter,
-                    this::writeMeter,
-                    this::writeMeter,
-                    this::writeFunctionTimer,
-                    this::writeMeter))
-                .forEach(metricLineData -> {
-                    if (metricLineData.isDistribution()) {
-                        distributions.add(metricLineData.lineData());
-                        distributionCount.getAndIncrement();
-                    } else {
-                        metrics.add(metricLineData.lineData());
-                    }
-                });
-
-            Stream<String> metricStream = metrics.build();
-            Stream<String> distributionStream = distributions.build();
-
             if (directToApi()) {
-                flushDirectToApi(metricStream, Constants.WAVEFRONT_METRIC_FORMAT, "metrics",
-                    batch.size());
-                flushDirectToApi(distributionStream, Constants.WAVEFRONT_HISTOGRAM_FORMAT,
-                    "distributions", distributionCount.get());
+                publishDirectToApi(batch);
             } else {
-                flushToProxy(metricStream, uri.getPort(), "metrics", batch.size());
-                flushToProxy(distributionStream, distributionPort, "distributions",
-                    distributionCount.get());
+                publishToProxy(batch);
             }
         }
     }
 
+    private Stream<WavefrontMetricLineData> lineData(List<Meter> batch) {
+        return batch.stream()
+            .flatMap(m -> m.match(
+                this::writeMeter,
+                this::writeMeter,
+                this::writeTimer,
+                this::writeSummary,
+                this::writeMeter,
+                this::writeMeter,
+                this::writeMeter,
+                this::writeFunctionTimer,
+                this::writeMeter));
+    }
+
+    private void publishDirectToApi(List<Meter> batch) {
+        Stream.Builder<String> metrics = Stream.builder();
+        Stream.Builder<String> distributions = Stream.builder();
+        AtomicInteger distributionCount = new AtomicInteger();
+
+        lineData(batch).forEach(metricLineData -> {
+            if (metricLineData.isDistribution()) {
+                distributions.add(metricLineData.lineData());
+                distributionCount.getAndIncrement();
+            } else {
+                metrics.add(metricLineData.lineData());
+            }
+        });
+
+        flushDirectToApi(metrics.build(), Constants.WAVEFRONT_METRIC_FORMAT, "metrics", batch.size());
+        flushDirectToApi(distributions.build(), Constants.WAVEFRONT_HISTOGRAM_FORMAT, "distributions",
+            distributionCount.get());
+    }
+
     private void flushDirectToApi(Stream<String> stream, String format, String description, int count) {
         if (count == 0) {
             return;
@@ -238,29 +270,63 @@ public class WavefrontMeterRegistry extends PushMeterRegistry {
         }
     }
 
-    @SuppressWarnings("deprecation")
-    private void flushToProxy(Stream<String> stream, int port, String description, int count) {
-        if (count == 0) {
-            return;
-        }
-        try {
-            SocketAddress endpoint = uri.getHost() != null ?
-                new InetSocketAddress(uri.getHost(), port) :
-                new InetSocketAddress(InetAddress.getByName(null), port);
-            try (Socket socket = new Socket()) {
-                // connectTimeout should be pulled up to WavefrontConfig when it is removed elsewhere
-                socket.connect(endpoint, (int) this.config.connectTimeout().toMillis());
-                try (OutputStreamWriter writer =
-                         new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
-                    writer.write(stream.collect(joining()));
-                    writer.flush();
+    /**
+     * Stream line data into the proxy connections as it is produced, rather than materializing the batch. Once
+     * writing to a connection fails, the rest of the batch is dropped for that connection.
+     */
+    private void publishToProxy(List<Meter> batch) {
+        WavefrontProxyConnection metricsConnection = requireNonNull(this.metricsConnection);
+        WavefrontProxyConnection distributionConnection = requireNonNull(this.distributionConnection);
+
+        int metricCount = 0;
+        int distributionCount = 0;
+        IOException metricsFailure = null;
+        IOException distributionsFailure = null;
+
+        for (Iterator<WavefrontMetricLineData> lines = lineData(batch).iterator(); lines.hasNext(); ) {
+            WavefrontMetricLineData metricLineData = lines.next();
+            try {
+                if (!metricLineData.isDistribution()) {
+                    if (metricsFailure == null) {
+                        metricsConnection.write(metricLineData.lineData());
+                        metricCount++;
+                    }
+                } else if (distributionsFailure == null) {
+                    distributionConnection.write(metricLineData.lineData());
+                    distributionCount++;
+                }
+            } catch (IOException e) {
+                if (metricLineData.isDistribution()) {
+                    distributionsFailure = e;
+                } else {
+                    metricsFailure = e;
                 }
+            }
+        }
+
+        flushToProxy(metricsConnection, metricsFailure, "metrics", metricCount);
+        flushToProxy(distributionConnection, distributionsFailure, "distributions", distributionCount);
+    }
+
+    private void flushToProxy(WavefrontProxyConnection connection, @Nullable IOException failure, String description,
+                              int count) {
+        if (failure == null) {
+            if (count == 0) {
+                return;
+            }
+            try {
+                connection.flush();
                 logSuccessfulMetricsSent(description, count);
+                return;
             } catch (IOException e) {
-                logger.error("failed to send " + description + " to Wavefront", e);
+                failure = e;
             }
-        } catch (UnknownHostException e) {
+        }
+
+        if (failure instanceof UnknownHostException) {
             logger.error("failed to send " + description + " to Wavefront: unknown host " + uri.getHost());
+        } else {
+            logger.error("failed to send " + description + " to Wavefront", failure);
         }
     }
 
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.wavefront;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.lang.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long-lived connection to one port of a Wavefront proxy, which line data is encoded straight into through a
+ * buffer. The connection is reopened on the next write after it fails, backing off exponentially while the proxy
+ * can't be reached.
+ */
+class WavefrontProxyConnection implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    @Nullable
+    private final String host;
+    private final int port;
+    private final Duration connectTimeout;
+    private final MeterRegistry registry;
+    private final Clock clock;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    @Nullable
+    private SocketChannel channel;
+    private boolean connectedBefore;
+    private long backoffNanos;
+    private long nextAttempt;
+
+    @Nullable
+    private Counter bytesSent;
+    @Nullable
+    private Counter reconnects;
+
+    WavefrontProxyConnection(@Nullable String host, int port, Duration connectTimeout, MeterRegistry registry, Clock clock) {
+        this.host = host;
+        this.port = port;
+        this.connectTimeout = connectTimeout;
+        this.registry = registry;
+        this.clock = clock;
+    }
+
+    /**
+     * Buffer a line, writing to the proxy whenever the buffer fills up.
+     *
+     * @param line Line data, including its trailing newline.
+     * @throws IOException if the proxy can't be reached or writing to it fails, in which case the buffered lines
+     *                     are discarded.
+     */
+    synchronized void write(String line) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                send();
+            } else if (result.isError()) {
+                result.throwException();
+            }
+        } while (result.isOverflow());
+    }
+
+    /**
+     * Write the buffered lines to the proxy.
+     *
+     * @throws IOException if the proxy can't be reached or writing to it fails.
+     */
+    synchronized void flush() throws IOException {
+        if (buffer.position() > 0) {
+            send();
+        }
+    }
+
+    private void send() throws IOException {
+        buffer.flip();
+        try {
+            SocketChannel channel = connect();
+            int bytes = buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            bytesSent().increment(bytes);
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = this.channel;
+        if (channel != null && channel.isOpen()) {
+            return channel;
+        }
+
+        long now = clock.monotonicTime();
+        if (backoffNanos > 0 && now - nextAttempt < 0) {
+            throw new IOException("not reconnecting to the Wavefront proxy on port " + port + " for another " +
+                    TimeUnit.NANOSECONDS.toMillis(nextAttempt - now) + "ms");
+        }
+
+        channel = SocketChannel.open();
+        try {
+            InetSocketAddress endpoint = host != null ?
+                    new InetSocketAddress(host, port) :
+                    new InetSocketAddress(InetAddress.getByName(null), port);
+            // SocketChannel#connect has no timeout, unlike its socket adaptor
+            channel.socket().connect(endpoint, (int) connectTimeout.toMillis());
+        } catch (IOException e) {
+            channel.close();
+            backoffNanos = backoffNanos == 0 ? MIN_BACKOFF_NANOS : Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+            nextAttempt = now + backoffNanos;
+            throw e;
+        }
+
+        if (connectedBefore) {
+            reconnects().increment();
+        }
+        connectedBefore = true;
+        backoffNanos = 0;
+        this.channel = channel;
+        return channel;
+    }
+
+    private void disconnect() {
+        SocketChannel channel = this.channel;
+        this.channel = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // the connection is abandoned either way
+            }
+        }
+    }
+
+    private Counter bytesSent() {
+        if (bytesSent == null) {
+            bytesSent = Counter.builder("wavefront.proxy.sent")
+                    .description("Line data written to the Wavefront proxy")
+                    .baseUnit(BaseUnits.BYTES)
+                    .tag("port", Integer.toString(port))
+                    .register(registry);
+        }
+        return bytesSent;
+    }
+
+    private Counter reconnects() {
+        if (reconnects == null) {
+            reconnects = Counter.builder("wavefront.proxy.reconnects")
+                    .description("Connections to the Wavefront proxy reopened after the previous one failed")
+                    .tag("port", Integer.toString(port))
+                    .register(registry);
+        }
+        return reconnects;
+    }
+
+    @Override
+    public synchronized void close() {
+        buffer.clear();
+        disconnect();
+    }
+}
@@ -23,11 +23,18 @@ import io.micrometer.core.instrument.MockClock;
 import io.micrometer.core.instrument.Statistic;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Tests for {@link WavefrontMeterRegistry}.
@@ -105,4 +112,41 @@ class WavefrontMeterRegistryTest {
         registry.addDistribution(metricsStreamBuilder, id, distributions);
         assertThat(metricsStreamBuilder.build().count()).isEqualTo(1);
     }
+
+    @Test
+    void publishToProxyReusesConnection() throws Exception {
+        try (ServerSocket proxy = new ServerSocket(0)) {
+            WavefrontMeterRegistry proxyRegistry = new WavefrontMeterRegistry(new WavefrontConfig() {
+                @Override
+                public String get(String key) {
+                    return null;
+                }
+
+                @Override
+                public String uri() {
+                    return "proxy://localhost:" + proxy.getLocalPort();
+                }
+            }, clock);
+
+            proxyRegistry.counter("my.counter").increment();
+            proxyRegistry.publish();
+
+            try (Socket connection = proxy.accept()) {
+                BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+                assertThat(reader.readLine()).startsWith("\"my.counter\" 1.0");
+
+                proxyRegistry.counter("my.counter").increment();
+                proxyRegistry.publish();
+                assertThat(reader.readLine()).startsWith("\"my.counter\" 2.0");
+
+                proxy.setSoTimeout(100);
+                assertThatThrownBy(proxy::accept).isInstanceOf(SocketTimeoutException.class);
+                assertThat(proxyRegistry.find("wavefront.proxy.reconnects").counter()).isNull();
+                assertThat(proxyRegistry.get("wavefront.proxy.sent").counter().count()).isPositive();
+            } finally {
+                proxyRegistry.stop();
+            }
+        }
+    }
 }
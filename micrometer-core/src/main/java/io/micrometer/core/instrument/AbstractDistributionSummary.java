@@ -15,12 +15,18 @@
  */
 package io.micrometer.core.instrument;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.distribution.*;
 import io.micrometer.core.instrument.util.MeterEquivalence;
 import io.micrometer.core.lang.Nullable;
 
+import java.util.Arrays;
+
 public abstract class AbstractDistributionSummary extends AbstractMeter implements DistributionSummary {
     protected final Histogram histogram;
+    private final Clock clock;
+    private final DistributionStatisticConfig distributionStatisticConfig;
+    private final boolean supportsAggregablePercentiles;
     private final double scale;
 
     protected AbstractDistributionSummary(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, double scale,
@@ -28,17 +34,10 @@ public abstract class AbstractDistributionSummary extends AbstractMeter implemen
         super(id);
         this.scale = scale;
 
-        if (distributionStatisticConfig.isPublishingPercentiles()) {
-            // hdr-based histogram
-            this.histogram = new TimeWindowPercentileHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
-        } else if (distributionStatisticConfig.isPublishingHistogram()) {
-            // fixed boundary histograms, which have a slightly better memory footprint
-            // when we don't need Micrometer-computed percentiles
-            this.histogram = new TimeWindowFixedBoundaryHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
-        } else {
-            // noop histogram
-            this.histogram = NoopHistogram.INSTANCE;
-        }
+        this.clock = clock;
+        this.distributionStatisticConfig = distributionStatisticConfig;
+        this.supportsAggregablePercentiles = supportsAggregablePercentiles;
+        this.histogram = ShareableHistogram.of(AbstractTimer.newHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles));
     }
 
     @Override
@@ -50,13 +49,85 @@ public abstract class AbstractDistributionSummary extends AbstractMeter implemen
         }
     }
 
+    @Override
+    public final void record(double[] amounts) {
+        double[] scaledAmounts = new double[amounts.length];
+        int length = 0;
+        for (double amount : amounts) {
+            if (amount >= 0) {
+                scaledAmounts[length++] = this.scale * amount;
+            }
+        }
+        if (length == 0) {
+            return;
+        }
+        if (length < scaledAmounts.length) {
+            scaledAmounts = Arrays.copyOf(scaledAmounts, length);
+        }
+
+        histogram.recordDoubles(scaledAmounts);
+        recordNonNegative(scaledAmounts);
+    }
+
     protected abstract void recordNonNegative(double amount);
 
+    /**
+     * Record several non-negative amounts at once. Implementations should override this to update their
+     * statistics once for all of the amounts rather than once per amount.
+     *
+     * @param amounts Non-negative, scaled amounts.
+     * @since 1.5.0
+     */
+    protected void recordNonNegative(double[] amounts) {
+        for (double amount : amounts) {
+            recordNonNegative(amount);
+        }
+    }
+
     @Override
     public HistogramSnapshot takeSnapshot() {
         return histogram.takeSnapshot(count(), totalAmount(), max());
     }
 
+    /**
+     * Take distribution statistics from the histogram of {@code primary} rather than from this summary's own
+     * histogram, which is discarded. Both summaries must be recorded to with the same samples, e.g. because they are
+     * children of the same composite summary, and only {@code primary} keeps recording them to the histogram.
+     * Samples recorded to this summary alone are no longer reflected in its histogram until
+     * {@link #unshareHistogram()} is called.
+     *
+     * @param primary A summary with the same distribution statistic configuration, scale and clock.
+     * @return {@code true} if the histogram is now shared, or {@code false} if the summaries' histograms would differ
+     * or this summary wasn't registered {@link AbstractTimer#withShareableHistograms(java.util.function.Supplier) with
+     * a shareable histogram}.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    public boolean shareHistogramOf(AbstractDistributionSummary primary) {
+        if (primary == this || !(histogram instanceof ShareableHistogram) ||
+                !ShareableHistogram.canBeShared(primary.histogram) ||
+                clock != primary.clock || scale != primary.scale ||
+                supportsAggregablePercentiles != primary.supportsAggregablePercentiles ||
+                !SharedHistogram.sameDistribution(distributionStatisticConfig, primary.distributionStatisticConfig)) {
+            return false;
+        }
+        ((ShareableHistogram) histogram).share(primary.histogram);
+        return true;
+    }
+
+    /**
+     * Go back to recording to a histogram of this summary's own, starting out empty, if it was shared by
+     * {@link #shareHistogramOf(AbstractDistributionSummary)}.
+     *
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    public void unshareHistogram() {
+        if (histogram instanceof ShareableHistogram && ((ShareableHistogram) histogram).isShared()) {
+            ((ShareableHistogram) histogram).unshare(AbstractTimer.newHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles));
+        }
+    }
+
     @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
     @Override
     public boolean equals(@Nullable Object o) {
@@ -15,18 +15,22 @@
  */
 package io.micrometer.core.instrument;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.distribution.*;
 import io.micrometer.core.instrument.distribution.pause.ClockDriftPauseDetector;
 import io.micrometer.core.instrument.distribution.pause.PauseDetector;
+import io.micrometer.core.instrument.config.InvalidConfigurationException;
 import io.micrometer.core.instrument.util.MeterEquivalence;
 import io.micrometer.core.lang.Nullable;
 import org.LatencyUtils.IntervalEstimator;
 import org.LatencyUtils.SimplePauseDetector;
 import org.LatencyUtils.TimeCappedMovingAverageIntervalEstimator;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -34,10 +38,26 @@ public abstract class AbstractTimer extends AbstractMeter implements Timer {
     private static Map<PauseDetector, org.LatencyUtils.PauseDetector> pauseDetectorCache =
             new ConcurrentHashMap<>();
 
+    /**
+     * Only one in this many samples is timestamped to estimate the interval between samples.
+     */
+    private static final int INTERVAL_SAMPLING_RATE = 16;
+
+    /**
+     * The number of intervals the estimator averages over.
+     */
+    private static final int INTERVAL_ESTIMATOR_WINDOW = 128;
+
     protected final Clock clock;
     protected final Histogram histogram;
+    private final DistributionStatisticConfig distributionStatisticConfig;
+    private final boolean supportsAggregablePercentiles;
     private final TimeUnit baseTimeUnit;
 
+    // Only used when recording in batches is enabled
+    @Nullable
+    private final BatchingRecorder batchingRecorder;
+
     // Only used when pause detection is enabled
     @Nullable
     private IntervalEstimator intervalEstimator = null;
@@ -80,16 +100,34 @@ public abstract class AbstractTimer extends AbstractMeter implements Timer {
 
         initPauseDetector(pauseDetector);
 
-        if (distributionStatisticConfig.isPublishingPercentiles()) {
+        this.distributionStatisticConfig = distributionStatisticConfig;
+        this.supportsAggregablePercentiles = supportsAggregablePercentiles;
+        this.histogram = ShareableHistogram.of(newHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles));
+
+        Integer recordingBatchSize = distributionStatisticConfig.getRecordingBatchSize();
+        if (recordingBatchSize != null && recordingBatchSize < 1) {
+            throw new InvalidConfigurationException("Invalid distribution configuration: recordingBatchSize (" +
+                    recordingBatchSize + ") must be greater than 0.");
+        }
+        this.batchingRecorder = recordingBatchSize == null || recordingBatchSize == 1 ? null :
+                new BatchingRecorder(recordingBatchSize, this::recordNanos);
+    }
+
+    static Histogram newHistogram(Clock clock, DistributionStatisticConfig distributionStatisticConfig,
+                                  boolean supportsAggregablePercentiles) {
+        if (distributionStatisticConfig.isPublishingPercentiles() && distributionStatisticConfig.getPercentileRelativeAccuracy() != null) {
+            // sketch-based histogram, which only allocates buckets for the range of observed values
+            return new TimeWindowSketchHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+        } else if (distributionStatisticConfig.isPublishingPercentiles()) {
             // hdr-based histogram
-            this.histogram = new TimeWindowPercentileHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            return new TimeWindowPercentileHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
         } else if (distributionStatisticConfig.isPublishingHistogram()) {
             // fixed boundary histograms, which have a slightly better memory footprint
             // when we don't need Micrometer-computed percentiles
-            this.histogram = new TimeWindowFixedBoundaryHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            return new TimeWindowFixedBoundaryHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
         } else {
             // noop histogram
-            this.histogram = NoopHistogram.INSTANCE;
+            return NoopHistogram.INSTANCE;
         }
     }
 
@@ -104,13 +142,13 @@ public abstract class AbstractTimer extends AbstractMeter implements Timer {
         });
 
         if (pauseDetector instanceof SimplePauseDetector) {
-            this.intervalEstimator = new TimeCappedMovingAverageIntervalEstimator(128,
+            this.intervalEstimator = new TimeCappedMovingAverageIntervalEstimator(INTERVAL_ESTIMATOR_WINDOW,
                     10000000000L, pauseDetector);
 
             pauseDetector.addListener((pauseLength, pauseEndTime) -> {
 //            System.out.println("Pause of length " + (pauseLength / 1e6) + "ms, end time " + pauseEndTime);
                 if (intervalEstimator != null) {
-                    long estimatedInterval = intervalEstimator.getEstimatedInterval(pauseEndTime);
+                    long estimatedInterval = intervalEstimator.getEstimatedInterval(pauseEndTime) / INTERVAL_SAMPLING_RATE;
                     long observedLatencyMinbar = pauseLength - estimatedInterval;
                     if (observedLatencyMinbar >= estimatedInterval) {
                         recordValueWithExpectedInterval(observedLatencyMinbar, estimatedInterval);
@@ -120,15 +158,19 @@ public abstract class AbstractTimer extends AbstractMeter implements Timer {
         }
     }
 
-    private void recordValueWithExpectedInterval(long nanoValue, long expectedIntervalBetweenValueSamples) {
-        record(nanoValue, TimeUnit.NANOSECONDS);
-        if (expectedIntervalBetweenValueSamples <= 0)
-            return;
-        for (long missingValue = nanoValue - expectedIntervalBetweenValueSamples;
-             missingValue >= expectedIntervalBetweenValueSamples;
-             missingValue -= expectedIntervalBetweenValueSamples) {
-            record(missingValue, TimeUnit.NANOSECONDS);
-        }
+    /**
+     * Record the value along with the values that would presumably have been recorded every
+     * {@code expectedIntervalBetweenValueSamples} while the application was paused, down to the expected interval.
+     * The whole sequence is recorded at once rather than value by value.
+     */
+    // VisibleForTesting
+    void recordValueWithExpectedInterval(long nanoValue, long expectedIntervalBetweenValueSamples) {
+        long count = expectedIntervalBetweenValueSamples <= 0 ? 1 :
+                Math.max(1, nanoValue / expectedIntervalBetweenValueSamples);
+        long first = nanoValue - (count - 1) * expectedIntervalBetweenValueSamples;
+
+        histogram.recordLongsWithStride(first, expectedIntervalBetweenValueSamples, count);
+        recordNonNegativeWithStride(first, expectedIntervalBetweenValueSamples, count);
     }
 
     @Override
@@ -167,22 +209,194 @@ public abstract class AbstractTimer extends AbstractMeter implements Timer {
     @Override
     public final void record(long amount, TimeUnit unit) {
         if (amount >= 0) {
-            histogram.recordLong(TimeUnit.NANOSECONDS.convert(amount, unit));
-            recordNonNegative(amount, unit);
+            if (batchingRecorder != null) {
+                batchingRecorder.record(TimeUnit.NANOSECONDS.convert(amount, unit));
+            } else {
+                histogram.recordLong(TimeUnit.NANOSECONDS.convert(amount, unit));
+                recordNonNegative(amount, unit);
+            }
 
-            if (intervalEstimator != null) {
+            // reading the clock and updating the shared estimator for a sample of the values is enough to estimate
+            // the interval between them
+            if (intervalEstimator != null && ThreadLocalRandom.current().nextInt(INTERVAL_SAMPLING_RATE) == 0) {
                 intervalEstimator.recordInterval(clock.monotonicTime());
             }
         }
     }
 
+    @Override
+    public final void record(long[] amounts, TimeUnit unit) {
+        long[] nanoAmounts = new long[amounts.length];
+        int length = 0;
+        for (long amount : amounts) {
+            if (amount >= 0) {
+                nanoAmounts[length++] = TimeUnit.NANOSECONDS.convert(amount, unit);
+            }
+        }
+        if (length == 0) {
+            return;
+        }
+        if (length < nanoAmounts.length) {
+            nanoAmounts = Arrays.copyOf(nanoAmounts, length);
+        }
+
+        if (batchingRecorder != null) {
+            batchingRecorder.record(nanoAmounts);
+        } else {
+            recordNanos(nanoAmounts);
+        }
+
+        if (intervalEstimator != null) {
+            int intervals = sampledIntervals(nanoAmounts.length, ThreadLocalRandom.current().nextInt(INTERVAL_SAMPLING_RATE));
+            if (intervals > 0) {
+                long now = clock.monotonicTime();
+                for (int i = 0; i < intervals; i++) {
+                    intervalEstimator.recordInterval(now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Every sample has the same chance of being timestamped, however many are recorded at once. Beyond the window
+     * of the estimator, more timestamps make no difference.
+     *
+     * @param samples The number of samples recorded at once.
+     * @param random  A random number between 0 (inclusive) and the sampling rate (exclusive).
+     * @return The number of intervals to record for the samples.
+     */
+    // VisibleForTesting
+    static int sampledIntervals(int samples, int random) {
+        int intervals = samples / INTERVAL_SAMPLING_RATE + (random < samples % INTERVAL_SAMPLING_RATE ? 1 : 0);
+        return Math.min(intervals, INTERVAL_ESTIMATOR_WINDOW);
+    }
+
+    private void recordNanos(long[] nanoAmounts) {
+        histogram.recordLongs(nanoAmounts);
+        recordNonNegative(nanoAmounts);
+    }
+
     protected abstract void recordNonNegative(long amount, TimeUnit unit);
 
+    /**
+     * Record several non-negative amounts at once. Implementations should override this to update their
+     * statistics once for all of the amounts rather than once per amount.
+     *
+     * @param nanoAmounts Non-negative amounts in nanoseconds.
+     * @since 1.5.0
+     */
+    protected void recordNonNegative(long[] nanoAmounts) {
+        for (long nanoAmount : nanoAmounts) {
+            recordNonNegative(nanoAmount, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Record the evenly spaced sequence {@code first, first + stride, ..., first + (count - 1) * stride} of
+     * non-negative amounts at once. Implementations should override this to update their statistics in closed form
+     * rather than once per amount.
+     *
+     * @param first  The smallest amount in nanoseconds.
+     * @param stride The difference between consecutive amounts in nanoseconds.
+     * @param count  The number of amounts.
+     * @since 1.5.0
+     */
+    protected void recordNonNegativeWithStride(long first, long stride, long count) {
+        for (long i = 0; i < count; i++) {
+            recordNonNegative(first + i * stride, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @param first  The smallest amount of an evenly spaced sequence.
+     * @param stride The difference between consecutive amounts.
+     * @param count  The number of amounts.
+     * @return The sum of the sequence, saturating at {@link Long#MAX_VALUE}.
+     * @since 1.5.0
+     */
+    protected static long sumWithStride(long first, long stride, long count) {
+        try {
+            // count * (count - 1) / 2, halving whichever factor is even first
+            long steps = count % 2 == 0 ? Math.multiplyExact(count / 2, count - 1) : Math.multiplyExact(count, (count - 1) / 2);
+            return Math.addExact(Math.multiplyExact(count, first), Math.multiplyExact(stride, steps));
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * When recording in batches, record the samples buffered by all threads so far.
+     */
+    private void drainBatches() {
+        if (batchingRecorder != null) {
+            batchingRecorder.drainAll();
+        }
+    }
+
+    @Override
+    public Iterable<Measurement> measure() {
+        drainBatches();
+        return Timer.super.measure();
+    }
+
     @Override
     public HistogramSnapshot takeSnapshot() {
+        drainBatches();
         return histogram.takeSnapshot(count(), totalTime(TimeUnit.NANOSECONDS), max(TimeUnit.NANOSECONDS));
     }
 
+    /**
+     * Take distribution statistics from the histogram of {@code primary} rather than from this timer's own histogram,
+     * which is discarded. Both timers must be recorded to with the same samples, e.g. because they are children of the
+     * same composite timer, and only {@code primary} keeps recording them to the histogram. Samples recorded to this
+     * timer alone are no longer reflected in its histogram until {@link #unshareHistogram()} is called.
+     *
+     * @param primary A timer with the same distribution statistic configuration and clock.
+     * @return {@code true} if the histogram is now shared, or {@code false} if the timers' histograms would differ or
+     * this timer wasn't registered {@link #withShareableHistograms(Supplier) with a shareable histogram}.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    public boolean shareHistogramOf(AbstractTimer primary) {
+        if (primary == this || !(histogram instanceof ShareableHistogram) ||
+                !ShareableHistogram.canBeShared(primary.histogram) ||
+                clock != primary.clock || supportsAggregablePercentiles != primary.supportsAggregablePercentiles ||
+                !SharedHistogram.sameDistribution(distributionStatisticConfig, primary.distributionStatisticConfig)) {
+            return false;
+        }
+        ((ShareableHistogram) histogram).share(primary.histogram);
+        return true;
+    }
+
+    /**
+     * Go back to recording to a histogram of this timer's own, starting out empty, if it was shared by
+     * {@link #shareHistogramOf(AbstractTimer)}.
+     *
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    public void unshareHistogram() {
+        if (histogram instanceof ShareableHistogram && ((ShareableHistogram) histogram).isShared()) {
+            ((ShareableHistogram) histogram).unshare(newHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles));
+        }
+    }
+
+    /**
+     * Register meters whose histograms can later be shared through {@link #shareHistogramOf(AbstractTimer)} or
+     * {@link AbstractDistributionSummary#shareHistogramOf(AbstractDistributionSummary)}. Only timers and distribution
+     * summaries constructed by {@code registration} on the calling thread can be shared, so that all others record to
+     * their histograms without the indirection that sharing requires.
+     *
+     * @param registration Registers the meter.
+     * @param <M>          The type of the meter.
+     * @return The registered meter.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    public static <M extends Meter> M withShareableHistograms(Supplier<M> registration) {
+        return ShareableHistogram.registering(registration);
+    }
+
     @Override
     public TimeUnit baseTimeUnit() {
         return baseTimeUnit;
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Buffers samples per recording thread, and hands each full buffer to a consumer at once, so that the consumer can
+ * update its statistics once per batch rather than once per sample.
+ * <p>
+ * Each buffer is only ever appended to by the thread that owns it, so the lock guarding it is uncontended
+ * except while a buffer is being drained by {@link #drainAll()}.
+ */
+class BatchingRecorder {
+    private final int batchSize;
+    private final Consumer<long[]> consumer;
+
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(this::newBuffer);
+
+    /**
+     * Every thread's buffer, so that they can be drained by whichever thread takes a snapshot.
+     */
+    private final Set<Buffer> allBuffers = ConcurrentHashMap.newKeySet();
+
+    BatchingRecorder(int batchSize, Consumer<long[]> consumer) {
+        this.batchSize = batchSize;
+        this.consumer = consumer;
+    }
+
+    private Buffer newBuffer() {
+        Buffer buffer = new Buffer(batchSize);
+        allBuffers.add(buffer);
+        return buffer;
+    }
+
+    void record(long sample) {
+        Buffer buffer = buffers.get();
+        synchronized (buffer) {
+            buffer.samples[buffer.size++] = sample;
+            if (buffer.size == batchSize) {
+                drain(buffer);
+            }
+        }
+    }
+
+    void record(long[] samples) {
+        Buffer buffer = buffers.get();
+        synchronized (buffer) {
+            int offset = 0;
+            while (offset < samples.length) {
+                int length = Math.min(samples.length - offset, batchSize - buffer.size);
+                System.arraycopy(samples, offset, buffer.samples, buffer.size, length);
+                buffer.size += length;
+                offset += length;
+                if (buffer.size == batchSize) {
+                    drain(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drain the buffers of all threads, forgetting those of threads that have terminated.
+     */
+    void drainAll() {
+        for (Iterator<Buffer> iterator = allBuffers.iterator(); iterator.hasNext(); ) {
+            Buffer buffer = iterator.next();
+            synchronized (buffer) {
+                drain(buffer);
+            }
+
+            Thread owner = buffer.owner.get();
+            if (owner == null || !owner.isAlive()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Guarded by buffer
+    private void drain(Buffer buffer) {
+        if (buffer.size > 0) {
+            consumer.accept(Arrays.copyOf(buffer.samples, buffer.size));
+            buffer.size = 0;
+        }
+    }
+
+    private static class Buffer {
+        final long[] samples;
+        final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+        int size;
+
+        Buffer(int batchSize) {
+            this.samples = new long[batchSize];
+        }
+    }
+}
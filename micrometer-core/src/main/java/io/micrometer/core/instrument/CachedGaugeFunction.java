@@ -0,0 +1,112 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.lang.Nullable;
+import io.micrometer.core.util.internal.logging.WarnThenDebugLogger;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Returns the last value of an expensive value function, and refreshes it in the background once it is older than
+ * a maximum age, so that reading the gauge never waits for the value function. Until the first refresh completes,
+ * the value is {@link Double#NaN}.
+ * <p>
+ * Refreshes run on the threads of the registry's {@link GaugeRefresher}. A refresh is skipped while every thread is
+ * busy, and a refresh that is still running a max age after it started is interrupted and abandoned. Either way the
+ * gauge keeps its last value, and the refresher counts the skipped refresh.
+ * <p>
+ * Every registry that the gauge is added to through a composite shares the same function, and hence the same value.
+ *
+ * @param <T> The type of object from which the gauge's instantaneous value is determined.
+ */
+class CachedGaugeFunction<T> implements ToDoubleFunction<T> {
+    private static final WarnThenDebugLogger logger = new WarnThenDebugLogger(CachedGaugeFunction.class);
+
+    private final ToDoubleFunction<T> f;
+    private final Clock clock;
+    private final long maxAgeNanos;
+    private final GaugeRefresher refresher;
+
+    private final AtomicReference<Refresh> inFlight = new AtomicReference<>();
+    private volatile double value = Double.NaN;
+    private volatile boolean refreshed;
+    private volatile long refreshedAt;
+
+    CachedGaugeFunction(ToDoubleFunction<T> f, Clock clock, long maxAgeNanos, GaugeRefresher refresher) {
+        this.f = f;
+        this.clock = clock;
+        this.maxAgeNanos = maxAgeNanos;
+        this.refresher = refresher;
+    }
+
+    @Override
+    public double applyAsDouble(@Nullable T obj) {
+        long now = clock.monotonicTime();
+        if (refreshed && now - refreshedAt < maxAgeNanos) {
+            return value;
+        }
+
+        Refresh refresh = inFlight.get();
+        if (refresh == null) {
+            refresh = new Refresh(obj, now);
+            if (inFlight.compareAndSet(null, refresh)) {
+                try {
+                    refresher.executor().execute(refresh);
+                } catch (RejectedExecutionException e) {
+                    inFlight.compareAndSet(refresh, null);
+                    refresher.busy();
+                }
+            }
+        } else if (now - refresh.startedAt >= maxAgeNanos && refresh.cancel(true)) {
+            refresher.timedOut();
+        }
+        return value;
+    }
+
+    private class Refresh extends FutureTask<Double> {
+        final long startedAt;
+
+        @SuppressWarnings("ConstantConditions")
+        Refresh(@Nullable T obj, long startedAt) {
+            super(() -> f.applyAsDouble(obj));
+            this.startedAt = startedAt;
+        }
+
+        @Override
+        protected void done() {
+            // an abandoned refresh keeps the last value
+            if (!isCancelled()) {
+                try {
+                    value = get();
+                } catch (ExecutionException e) {
+                    logger.log("Failed to refresh the cached value of a gauge.", e.getCause());
+                    value = Double.NaN;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            // failures are retried no sooner than successful refreshes
+            refreshedAt = clock.monotonicTime();
+            refreshed = true;
+            inFlight.compareAndSet(this, null);
+        }
+    }
+}
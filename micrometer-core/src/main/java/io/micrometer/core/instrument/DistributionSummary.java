@@ -15,6 +15,7 @@
  */
 package io.micrometer.core.instrument;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.distribution.CountAtBucket;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.HistogramSupport;
@@ -24,6 +25,7 @@ import io.micrometer.core.lang.Nullable;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.DoubleStream;
 
 /**
  * Track the sample distribution of events. An example would be the response sizes for requests
@@ -45,6 +47,31 @@ public interface DistributionSummary extends Meter, HistogramSupport {
      */
     void record(double amount);
 
+    /**
+     * Updates the statistics kept by the summary with all of the specified amounts at once, which is cheaper than
+     * recording them one by one.
+     *
+     * @param amounts Amounts for events being measured. Amounts less than 0 are dropped.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    default void record(double[] amounts) {
+        for (double amount : amounts) {
+            record(amount);
+        }
+    }
+
+    /**
+     * Updates the statistics kept by the summary with all of the specified amounts at once.
+     *
+     * @param amounts Amounts for events being measured. Amounts less than 0 are dropped.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    default void record(DoubleStream amounts) {
+        record(amounts.toArray());
+    }
+
     /**
      * @return The number of times that record has been called since this timer was created.
      */
@@ -201,6 +228,20 @@ public interface DistributionSummary extends Meter, HistogramSupport {
             return this;
         }
 
+        /**
+         * Compute percentiles from a mergeable sketch that guarantees this relative error on every percentile,
+         * instead of from a dynamic range histogram. The sketch only allocates memory for the range of values
+         * actually observed.
+         *
+         * @param relativeAccuracy The relative error to guarantee on computed percentiles, e.g. {@code 0.01} for 1%.
+         * @return This builder.
+         * @since 1.5.0
+         */
+        public Builder percentileRelativeAccuracy(@Nullable Double relativeAccuracy) {
+            this.distributionConfigBuilder.percentileRelativeAccuracy(relativeAccuracy);
+            return this;
+        }
+
         /**
          * Adds histogram buckets used to generate aggregable percentile approximations in monitoring
          * systems that have query facilities to do so (e.g. Prometheus' {@code histogram_quantile},
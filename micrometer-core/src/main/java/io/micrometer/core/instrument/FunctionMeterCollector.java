@@ -0,0 +1,277 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+import io.micrometer.core.lang.Nullable;
+import io.micrometer.core.util.internal.logging.WarnThenDebugLogger;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.LongStream;
+
+/**
+ * Evaluates the value functions of gauges, function counters and function timers in parallel ahead of publishing,
+ * so that one slow value function doesn't delay every other meter. While the registry publishes, the functions
+ * return the last values collected instead of evaluating again, so that publishing never waits for a function that
+ * didn't complete within the timeout. Such a function isn't evaluated again until it completes.
+ * <p>
+ * A function that hangs keeps one of the threads busy for as long as it hangs. Once as many functions hang as there
+ * are threads, the evaluations of the other functions queue up behind them, and their meters publish the last
+ * values collected until a thread is free again.
+ * <p>
+ * The time taken to evaluate the functions of each meter is recorded by a {@code micrometer.meter.collection}
+ * timer tagged with the name of the meter, which is removed along with the last meter of that name. Its histogram has
+ * a few buckets up to the timeout.
+ */
+class FunctionMeterCollector {
+    private static final WarnThenDebugLogger logger = new WarnThenDebugLogger(FunctionMeterCollector.class);
+
+    private final MeterRegistry registry;
+    private final ExecutorService executor;
+    private final long timeoutNanos;
+
+    /**
+     * The histogram buckets of the collection timers, fractions of the timeout up to the timeout itself, so that
+     * evaluations that didn't complete in time fall into the overflow bucket.
+     */
+    private final Duration[] collectionTimeBuckets;
+
+    private final Map<Meter.Id, CollectedFunction<?>[]> functionsByMeter = new ConcurrentHashMap<>();
+
+    /**
+     * The number of meters in {@link #functionsByMeter} by name, so that the collection timer of a name can be
+     * removed along with its last meter.
+     */
+    private final Map<String, Integer> meterCountsByName = new ConcurrentHashMap<>();
+    private final Map<String, Timer> collectionTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the collected values are being published.
+     */
+    private volatile boolean publishing;
+
+    FunctionMeterCollector(MeterRegistry registry, int parallelism, Duration timeout) {
+        this.registry = registry;
+        this.executor = Executors.newFixedThreadPool(parallelism, new NamedThreadFactory("micrometer-collect"));
+        this.timeoutNanos = timeout.toNanos();
+        this.collectionTimeBuckets = LongStream.of(timeoutNanos / 100, timeoutNanos / 10, timeoutNanos / 2, timeoutNanos)
+                .filter(nanos -> nanos > 0)
+                .distinct()
+                .mapToObj(Duration::ofNanos)
+                .toArray(Duration[]::new);
+    }
+
+    /**
+     * @param initialValue The value published until the function has been evaluated once.
+     */
+    <T> ToDoubleFunction<T> collected(Meter.Id id, @Nullable T obj, ToDoubleFunction<T> f, double initialValue) {
+        return add(id, new CollectedDouble<>(obj, f, initialValue));
+    }
+
+    <T> ToLongFunction<T> collectedLong(Meter.Id id, T obj, ToLongFunction<T> f) {
+        return add(id, new CollectedLong<>(obj, f));
+    }
+
+    private <F extends CollectedFunction<?>> F add(Meter.Id id, F f) {
+        functionsByMeter.compute(id, (id2, fs) -> {
+            if (fs == null) {
+                meterCountsByName.merge(id2.getName(), 1, Integer::sum);
+                return new CollectedFunction<?>[]{f};
+            }
+            CollectedFunction<?>[] merged = Arrays.copyOf(fs, fs.length + 1);
+            merged[fs.length] = f;
+            return merged;
+        });
+        return f;
+    }
+
+    void remove(Meter.Id id) {
+        if (functionsByMeter.remove(id) == null) {
+            return;
+        }
+        String name = id.getName();
+        if (meterCountsByName.computeIfPresent(name, (n, count) -> count == 1 ? null : count - 1) == null) {
+            Timer collectionTimer = collectionTimers.remove(name);
+            if (collectionTimer != null) {
+                registry.remove(collectionTimer);
+            }
+        }
+    }
+
+    /**
+     * Evaluate every function in parallel, waiting for them up to the timeout, then publish the collected values.
+     *
+     * @param publish Publishes the meters of the registry.
+     */
+    synchronized void collect(Runnable publish) {
+        long deadline = System.nanoTime() + timeoutNanos;
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (Map.Entry<Meter.Id, CollectedFunction<?>[]> meter : functionsByMeter.entrySet()) {
+            for (CollectedFunction<?> f : meter.getValue()) {
+                if (f.evaluating.compareAndSet(false, true)) {
+                    try {
+                        futures.add(executor.submit(() -> evaluate(meter.getKey(), f)));
+                    } catch (RejectedExecutionException e) {
+                        // the registry is being closed
+                        f.evaluating.set(false);
+                    }
+                } else {
+                    logger.log("The previous evaluation of a value function of '" + meter.getKey().getName() +
+                            "' is still pending or running, so its last value is published again.");
+                }
+            }
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // publish the previous value of the meter
+            } catch (ExecutionException e) {
+                logger.log("Failed to collect the value of a meter.", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        publishing = true;
+        try {
+            publish.run();
+        } finally {
+            publishing = false;
+        }
+    }
+
+    private void evaluate(Meter.Id id, CollectedFunction<?> f) {
+        long start = registry.config().clock().monotonicTime();
+        try {
+            f.evaluate();
+        } finally {
+            f.evaluating.set(false);
+            // a meter removed while its function was evaluated mustn't bring its collection timer back
+            if (functionsByMeter.containsKey(id)) {
+                collectionTimer(id.getName()).record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Timer collectionTimer(String name) {
+        return collectionTimers.computeIfAbsent(name, n -> Timer.builder("micrometer.meter.collection")
+                .description("The time taken to evaluate the value functions of meters ahead of publishing")
+                .tag("meter", n)
+                .sla(collectionTimeBuckets)
+                .register(registry));
+    }
+
+    void close() {
+        executor.shutdownNow();
+    }
+
+    private abstract class CollectedFunction<T> {
+        @Nullable
+        private final WeakReference<T> ref;
+
+        final AtomicBoolean evaluating = new AtomicBoolean();
+
+        CollectedFunction(@Nullable T obj) {
+            this.ref = obj == null ? null : new WeakReference<>(obj);
+        }
+
+        void evaluate() {
+            T obj = ref == null ? null : ref.get();
+            if (ref == null || obj != null) {
+                evaluate(obj);
+            } else {
+                gone();
+            }
+        }
+
+        abstract void evaluate(@Nullable T obj);
+
+        abstract void gone();
+    }
+
+    private class CollectedDouble<T> extends CollectedFunction<T> implements ToDoubleFunction<T> {
+        private final ToDoubleFunction<T> f;
+        private volatile double value;
+
+        CollectedDouble(@Nullable T obj, ToDoubleFunction<T> f, double initialValue) {
+            super(obj);
+            this.f = f;
+            this.value = initialValue;
+        }
+
+        @SuppressWarnings("ConstantConditions")
+        @Override
+        void evaluate(@Nullable T obj) {
+            value = f.applyAsDouble(obj);
+        }
+
+        @Override
+        void gone() {
+            value = Double.NaN;
+        }
+
+        @Override
+        public double applyAsDouble(T obj) {
+            return publishing ? value : (value = f.applyAsDouble(obj));
+        }
+    }
+
+    private class CollectedLong<T> extends CollectedFunction<T> implements ToLongFunction<T> {
+        private final ToLongFunction<T> f;
+        private volatile long value;
+
+        CollectedLong(@Nullable T obj, ToLongFunction<T> f) {
+            super(obj);
+            this.f = f;
+        }
+
+        @SuppressWarnings("ConstantConditions")
+        @Override
+        void evaluate(@Nullable T obj) {
+            value = f.applyAsLong(obj);
+        }
+
+        @Override
+        void gone() {
+            // function timers keep their last count once their state object is garbage collected
+        }
+
+        @Override
+        public long applyAsLong(T obj) {
+            return publishing ? value : (value = f.applyAsLong(obj));
+        }
+    }
+}
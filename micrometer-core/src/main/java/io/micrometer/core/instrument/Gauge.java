@@ -19,6 +19,7 @@ import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.distribution.HistogramGauges;
 import io.micrometer.core.lang.Nullable;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
@@ -84,6 +85,9 @@ public interface Gauge extends Meter {
         private Tags tags = Tags.empty();
         private boolean strongReference = false;
 
+        @Nullable
+        private Duration cacheMaxAge;
+
         @Nullable
         private Meter.Id syntheticAssociation = null;
 
@@ -178,6 +182,26 @@ public interface Gauge extends Meter {
             return this;
         }
 
+        /**
+         * Cache the value of the gauge for up to {@code maxAge}, for value functions that are expensive to evaluate
+         * such as database queries or JMX calls. Reading the gauge returns the last computed value, and triggers
+         * recomputing it in the background once it is older than {@code maxAge}, so that publishing or scraping
+         * never waits for the value function. The gauge reports {@link Double#NaN} until its value has first been
+         * computed. Value functions run on a small pool shared by the cached gauges of the registry. While it is busy,
+         * or while the previous computation is still running, the gauge keeps its last value. A computation still
+         * running after {@code maxAge} is interrupted. Skipped and interrupted computations are counted by the
+         * {@code micrometer.gauge.refresh.skipped} counter.
+         *
+         * @param maxAge The age after which the cached value is recomputed.
+         * @return The gauge builder with a cached value.
+         * @since 1.5.0
+         */
+        @Incubating(since = "1.5.0")
+        public Builder<T> cacheValue(Duration maxAge) {
+            this.cacheMaxAge = maxAge;
+            return this;
+        }
+
         /**
          * Add the gauge to a single registry, or return an existing gauge in that registry. The returned
          * gauge will be unique for each registry, but each registry is guaranteed to only create one gauge
@@ -187,8 +211,11 @@ public interface Gauge extends Meter {
          * @return A new or existing gauge.
          */
         public Gauge register(MeterRegistry registry) {
+            ToDoubleFunction<T> valueFunction = cacheMaxAge == null ? f :
+                    new CachedGaugeFunction<>(f, registry.config().clock(), cacheMaxAge.toNanos(),
+                            registry.gaugeRefresher());
             return registry.gauge(new Meter.Id(name, tags, baseUnit, description, Type.GAUGE, syntheticAssociation), obj,
-                    strongReference ? new StrongReferenceGaugeFunction<>(obj, f) : f);
+                    strongReference ? new StrongReferenceGaugeFunction<>(obj, valueFunction) : valueFunction);
         }
     }
 }
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the refreshes of the cached gauges of one registry, and counts the refreshes that are skipped because every
+ * thread is busy or that are abandoned because they took longer than the gauge's max age. These counters are the
+ * signal that value functions hang or are too slow for the threads available.
+ */
+class GaugeRefresher {
+    private static final int REFRESH_THREADS = 4;
+
+    private final Executor executor;
+    private final Counter busy;
+    private final Counter timedOut;
+
+    GaugeRefresher(MeterRegistry registry) {
+        // no queue, so that hanging value functions can neither pile up refreshes nor threads
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 1, TimeUnit.MINUTES,
+                new SynchronousQueue<>(), new NamedThreadFactory("micrometer-gauge-refresh"));
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+        this.busy = skippedRefreshes(registry, "busy");
+        this.timedOut = skippedRefreshes(registry, "timeout");
+    }
+
+    // VisibleForTesting
+    GaugeRefresher(Executor executor, Counter busy, Counter timedOut) {
+        this.executor = executor;
+        this.busy = busy;
+        this.timedOut = timedOut;
+    }
+
+    private static Counter skippedRefreshes(MeterRegistry registry, String reason) {
+        return Counter.builder("micrometer.gauge.refresh.skipped")
+                .description("Refreshes of cached gauge values that were skipped or abandoned")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    Executor executor() {
+        return executor;
+    }
+
+    void busy() {
+        busy.increment();
+    }
+
+    void timedOut() {
+        timedOut.increment();
+    }
+
+    void close() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+}
@@ -190,6 +190,16 @@ public interface Meter {
         @Nullable
         private final String baseUnit;
 
+        /**
+         * The name and tags as converted by the naming convention they were last requested with. Registries keep
+         * the same convention until it is reconfigured, so this saves converting them again on every publish.
+         */
+        @Nullable
+        private volatile ConventionResult<String> conventionName;
+
+        @Nullable
+        private volatile ConventionResult<List<Tag>> conventionTags;
+
         @Incubating(since = "1.1.0")
         Id(String name, Tags tags, @Nullable String baseUnit, @Nullable String description, Type type,
            @Nullable Meter.Id syntheticAssociation) {
@@ -316,7 +326,12 @@ public interface Meter {
          * @return A name that has been stylized to a particular monitoring system's expectations.
          */
         public String getConventionName(NamingConvention namingConvention) {
-            return namingConvention.name(name, type, baseUnit);
+            ConventionResult<String> conventionName = this.conventionName;
+            if (conventionName == null || conventionName.namingConvention != namingConvention) {
+                conventionName = new ConventionResult<>(namingConvention, namingConvention.name(name, type, baseUnit));
+                this.conventionName = conventionName;
+            }
+            return conventionName.value;
         }
 
         /**
@@ -326,9 +341,15 @@ public interface Meter {
          * @return A list of tags that have been stylized to a particular monitoring system's expectations.
          */
         public List<Tag> getConventionTags(NamingConvention namingConvention) {
-            return StreamSupport.stream(tags.spliterator(), false)
-                    .map(t -> Tag.of(namingConvention.tagKey(t.getKey()), namingConvention.tagValue(t.getValue())))
-                    .collect(Collectors.toList());
+            ConventionResult<List<Tag>> conventionTags = this.conventionTags;
+            if (conventionTags == null || conventionTags.namingConvention != namingConvention) {
+                List<Tag> converted = StreamSupport.stream(tags.spliterator(), false)
+                        .map(t -> Tag.of(namingConvention.tagKey(t.getKey()), namingConvention.tagValue(t.getValue())))
+                        .collect(Collectors.toList());
+                conventionTags = new ConventionResult<>(namingConvention, Collections.unmodifiableList(converted));
+                this.conventionTags = conventionTags;
+            }
+            return conventionTags.value;
         }
 
         /**
@@ -388,6 +409,16 @@ public interface Meter {
         public Meter.Id syntheticAssociation() {
             return syntheticAssociation;
         }
+
+        private static class ConventionResult<T> {
+            final NamingConvention namingConvention;
+            final T value;
+
+            ConventionResult(NamingConvention namingConvention, T value) {
+                this.namingConvention = namingConvention;
+                this.value = value;
+            }
+        }
     }
 
     /**
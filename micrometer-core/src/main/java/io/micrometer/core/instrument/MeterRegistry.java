@@ -18,6 +18,7 @@ package io.micrometer.core.instrument;
 import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.Meter.Id;
 import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.config.MeterFilterChain;
 import io.micrometer.core.instrument.config.MeterFilterReply;
 import io.micrometer.core.instrument.config.NamingConvention;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
@@ -38,6 +39,7 @@ import io.micrometer.core.instrument.search.Search;
 import io.micrometer.core.instrument.util.TimeUtils;
 import io.micrometer.core.lang.Nullable;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -76,6 +78,7 @@ import static java.util.Objects.requireNonNull;
 public abstract class MeterRegistry {
     protected final Clock clock;
     private final Object meterMapLock = new Object();
+    // Neighboring built-in filters of the same kind are fused by MeterFilterChain
     private volatile MeterFilter[] filters = new MeterFilter[0];
     private final List<Consumer<Meter>> meterAddedListeners = new CopyOnWriteArrayList<>();
     private final List<Consumer<Meter>> meterRemovedListeners = new CopyOnWriteArrayList<>();
@@ -86,6 +89,12 @@ public abstract class MeterRegistry {
     // Hence, we use CHM to support that iteration without ConcurrentModificationException risk
     private final Map<Id, Meter> meterMap = new ConcurrentHashMap<>();
 
+    /**
+     * The same meters as {@link #meterMap}, grouped by name, so that meters can be looked up by name without
+     * scanning every meter. Writes are guarded by meterMapLock.
+     */
+    private final Map<String, Map<Id, Meter>> meterMapByName = new ConcurrentHashMap<>();
+
     /**
      * Map of meter id whose associated meter contains synthetic counterparts to those synthetic ids.
      * We maintain these associations so that when we remove a meter with synthetics, they can removed
@@ -97,6 +106,12 @@ public abstract class MeterRegistry {
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private PauseDetector pauseDetector = new NoPauseDetector();
 
+    @Nullable
+    private volatile FunctionMeterCollector functionMeterCollector;
+
+    @Nullable
+    private volatile GaugeRefresher gaugeRefresher;
+
     /**
      * We'll use snake case as a general-purpose default for registries because it is the most
      * likely to result in a portable name. Camel casing is also perfectly acceptable. '-' and '.'
@@ -274,7 +289,7 @@ public abstract class MeterRegistry {
      * @return A new or existing gauge.
      */
     <T> Gauge gauge(Meter.Id id, @Nullable T obj, ToDoubleFunction<T> valueFunction) {
-        return registerMeterIfNecessary(Gauge.class, id, id2 -> newGauge(id2, obj, valueFunction), NoopGauge::new);
+        return registerMeterIfNecessary(Gauge.class, id, id2 -> newGauge(id2, obj, collected(id2, obj, valueFunction, Double.NaN)), NoopGauge::new);
     }
 
     /**
@@ -322,6 +337,18 @@ public abstract class MeterRegistry {
         return Collections.unmodifiableList(new ArrayList<>(meterMap.values()));
     }
 
+    /**
+     * @param name The name of the meters to look up.
+     * @return The registered meters with this name, read-only. Meters added or removed after the call may or may not
+     * be reflected, so look the meters up again rather than holding on to the result.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    public Collection<Meter> getMeters(String name) {
+        Map<Id, Meter> meters = meterMapByName.get(name);
+        return meters == null ? Collections.emptyList() : Collections.unmodifiableCollection(meters.values());
+    }
+
     /**
      * Iterate over each meter in the registry.
      *
@@ -536,6 +563,46 @@ public abstract class MeterRegistry {
         return gauge(name, tags, map, Map::size);
     }
 
+    /**
+     * @return The refresher of this registry's cached gauges, created along with the first of them.
+     */
+    GaugeRefresher gaugeRefresher() {
+        GaugeRefresher refresher = gaugeRefresher;
+        if (refresher == null) {
+            synchronized (this) {
+                refresher = gaugeRefresher;
+                if (refresher == null) {
+                    refresher = new GaugeRefresher(this);
+                    gaugeRefresher = refresher;
+                }
+            }
+        }
+        return refresher;
+    }
+
+    private <T> ToDoubleFunction<T> collected(Meter.Id id, @Nullable T obj, ToDoubleFunction<T> f, double initialValue) {
+        FunctionMeterCollector collector = functionMeterCollector;
+        return collector == null ? f : collector.collected(id, obj, f, initialValue);
+    }
+
+    /**
+     * Evaluate the value functions of gauges, function counters and function timers in parallel if
+     * {@link Config#collectFunctionMeters(int, Duration) enabled}, and then publish. While publishing, the meters
+     * report their last collected values. Registries call this around the serialization of their meters.
+     *
+     * @param publish Publishes or serializes the meters of this registry.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    protected void collectFunctionMeters(Runnable publish) {
+        FunctionMeterCollector collector = functionMeterCollector;
+        if (collector == null) {
+            publish.run();
+        } else {
+            collector.collect(publish);
+        }
+    }
+
     private <M extends Meter> M registerMeterIfNecessary(Class<M> meterClass, Meter.Id id, Function<Meter.Id, M> builder,
                                                          Function<Meter.Id, M> noopBuilder) {
         return registerMeterIfNecessary(meterClass, id, null, (id2, conf) -> builder.apply(id2), noopBuilder);
@@ -604,6 +671,7 @@ public abstract class MeterRegistry {
                         onAdd.accept(m);
                     }
                     meterMap.put(mappedId, m);
+                    meterMapByName.computeIfAbsent(mappedId.getName(), n -> new ConcurrentHashMap<>()).put(mappedId, m);
                 }
             }
         }
@@ -649,6 +717,19 @@ public abstract class MeterRegistry {
             synchronized (meterMapLock) {
                 m = meterMap.remove(mappedId);
                 if (m != null) {
+                    FunctionMeterCollector collector = functionMeterCollector;
+                    if (collector != null) {
+                        collector.remove(mappedId);
+                    }
+
+                    Map<Id, Meter> metersWithName = meterMapByName.get(mappedId.getName());
+                    if (metersWithName != null) {
+                        metersWithName.remove(mappedId);
+                        if (metersWithName.isEmpty()) {
+                            meterMapByName.remove(mappedId.getName());
+                        }
+                    }
+
                     Set<Id> synthetics = syntheticAssociations.remove(id);
                     if (synthetics != null) {
                         for (Id synthetic : synthetics) {
@@ -712,7 +793,7 @@ public abstract class MeterRegistry {
             MeterFilter[] newFilters = new MeterFilter[filters.length + 1];
             System.arraycopy(filters, 0, newFilters, 0, filters.length);
             newFilters[filters.length] = filter;
-            filters = newFilters;
+            filters = MeterFilterChain.compile(newFilters);
             return this;
         }
 
@@ -785,6 +866,31 @@ public abstract class MeterRegistry {
         public PauseDetector pauseDetector() {
             return pauseDetector;
         }
+
+        /**
+         * Evaluate the value functions of gauges, function counters and function timers in parallel on a pool
+         * of {@code parallelism} threads before each publication, rather than one after another while publishing,
+         * so that a slow value function doesn't delay every other meter. Publication waits up to {@code timeout}
+         * for the values, and meters whose functions take longer report their previously collected value. A function
+         * that hangs holds on to one of the threads until it returns, so once {@code parallelism} functions hang, the
+         * other meters report their previously collected values until a thread is free again. The collection time of
+         * each meter is recorded by a {@code micrometer.meter.collection} timer.
+         * <p>
+         * Only applies to meters registered afterwards, so it should be configured before any meter is registered.
+         *
+         * @param parallelism The number of threads evaluating value functions.
+         * @param timeout     How long publication waits for the value functions.
+         * @return This configuration instance.
+         * @since 1.5.0
+         */
+        @Incubating(since = "1.5.0")
+        public synchronized Config collectFunctionMeters(int parallelism, Duration timeout) {
+            if (functionMeterCollector != null) {
+                throw new IllegalStateException("Function meter collection is already configured");
+            }
+            functionMeterCollector = new FunctionMeterCollector(MeterRegistry.this, parallelism, timeout);
+            return this;
+        }
     }
 
     /**
@@ -864,7 +970,7 @@ public abstract class MeterRegistry {
          * @return A new or existing function counter.
          */
         <T> FunctionCounter counter(Meter.Id id, T obj, ToDoubleFunction<T> countFunction) {
-            return registerMeterIfNecessary(FunctionCounter.class, id, id2 -> newFunctionCounter(id2, obj, countFunction),
+            return registerMeterIfNecessary(FunctionCounter.class, id, id2 -> newFunctionCounter(id2, obj, collected(id2, obj, countFunction, 0)),
                     NoopFunctionCounter::new);
         }
 
@@ -905,7 +1011,12 @@ public abstract class MeterRegistry {
                                 TimeUnit totalTimeFunctionUnit) {
             return registerMeterIfNecessary(FunctionTimer.class, id, id2 -> {
                 Meter.Id withUnit = id2.withBaseUnit(getBaseTimeUnitStr());
-                return newFunctionTimer(withUnit, obj, countFunction, totalTimeFunction, totalTimeFunctionUnit);
+                FunctionMeterCollector collector = functionMeterCollector;
+                if (collector == null) {
+                    return newFunctionTimer(withUnit, obj, countFunction, totalTimeFunction, totalTimeFunctionUnit);
+                }
+                return newFunctionTimer(withUnit, obj, collector.collectedLong(id2, obj, countFunction),
+                        collector.collected(id2, obj, totalTimeFunction, 0), totalTimeFunctionUnit);
             }, NoopFunctionTimer::new);
         }
 
@@ -936,7 +1047,7 @@ public abstract class MeterRegistry {
          * @return A new or existing time gauge.
          */
         <T> TimeGauge timeGauge(Meter.Id id, @Nullable T obj, TimeUnit timeFunctionUnit, ToDoubleFunction<T> timeFunction) {
-            return registerMeterIfNecessary(TimeGauge.class, id, id2 -> newTimeGauge(id2, obj, timeFunctionUnit, timeFunction), NoopTimeGauge::new);
+            return registerMeterIfNecessary(TimeGauge.class, id, id2 -> newTimeGauge(id2, obj, timeFunctionUnit, collected(id2, obj, timeFunction, Double.NaN)), NoopTimeGauge::new);
         }
     }
 
@@ -946,6 +1057,15 @@ public abstract class MeterRegistry {
      */
     public void close() {
         if (closed.compareAndSet(false, true)) {
+            FunctionMeterCollector collector = functionMeterCollector;
+            if (collector != null) {
+                collector.close();
+            }
+            GaugeRefresher refresher = gaugeRefresher;
+            if (refresher != null) {
+                refresher.close();
+            }
+
             synchronized (meterMapLock) {
                 for (Meter meter : meterMap.values()) {
                     meter.close();
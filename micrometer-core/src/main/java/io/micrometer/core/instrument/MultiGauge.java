@@ -18,15 +18,12 @@ package io.micrometer.core.instrument;
 import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.lang.Nullable;
 
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
-import static java.util.Collections.emptySet;
-import static java.util.stream.Collectors.toSet;
+import static java.util.Collections.emptyMap;
 
 /**
  * @author Jon Schneider
@@ -36,7 +33,12 @@ import static java.util.stream.Collectors.toSet;
 public class MultiGauge {
     private final MeterRegistry registry;
     private final Meter.Id commonId;
-    private final AtomicReference<Set<Meter.Id>> registeredRows = new AtomicReference<>(emptySet());
+
+    /**
+     * The rows registered by the last call to {@link #register(Iterable, boolean)}, by their unique tags. Guarded
+     * by this for writes.
+     */
+    private volatile Map<Tags, RegisteredRow> registeredRows = emptyMap();
 
     private MultiGauge(MeterRegistry registry, Meter.Id commonId) {
         this.registry = registry;
@@ -55,37 +57,59 @@ public class MultiGauge {
         register(rows, false);
     }
 
-    @SuppressWarnings("unchecked")
-    public void register(Iterable<Row<?>> rows, boolean overwrite) {
-        registeredRows.getAndUpdate(oldRows -> {
-            // for some reason the compiler needs type assistance by creating this intermediate variable.
-            Stream<Meter.Id> idStream = StreamSupport.stream(rows.spliterator(), false)
-                    .map(row -> {
-                        Row r = row;
-                        Meter.Id rowId = commonId.withTags(row.uniqueTags);
-                        boolean previouslyDefined = oldRows.contains(rowId);
-
-                        if (overwrite && previouslyDefined) {
-                            registry.remove(rowId);
-                        }
-
-                        if (overwrite || !previouslyDefined) {
-                            registry.gauge(rowId, row.obj, new StrongReferenceGaugeFunction<>(r.obj, r.valueFunction));
-                        }
-
-                        return rowId;
-                    });
-
-            Set<Meter.Id> newRows = idStream
-                    .collect(toSet());
-
-            for (Meter.Id oldRow : oldRows) {
-                if (!newRows.contains(oldRow))
-                    registry.remove(oldRow);
+    /**
+     * Registers a gauge for each row that was not registered by the previous call, and removes the gauges of
+     * previously registered rows that are missing from {@code rows}. Rows that remain registered are not touched
+     * in the registry.
+     *
+     * @param rows      All rows that should be registered from now on.
+     * @param overwrite Whether rows that remain registered should report the value of their new definition rather
+     *                  than the one they were first registered with. Their gauges are updated in place, without
+     *                  being removed from and registered with the registry again.
+     */
+    public synchronized void register(Iterable<Row<?>> rows, boolean overwrite) {
+        Map<Tags, RegisteredRow> oldRows = registeredRows;
+        Map<Tags, RegisteredRow> newRows = new HashMap<>();
+
+        for (Row<?> row : rows) {
+            RegisteredRow registered = newRows.get(row.uniqueTags);
+            if (registered == null) {
+                registered = oldRows.get(row.uniqueTags);
             }
 
-            return newRows;
-        });
+            if (registered == null) {
+                registered = new RegisteredRow(commonId.withTags(row.uniqueTags), row);
+                registry.gauge(registered.id, registered, new StrongReferenceGaugeFunction<>(registered, RegisteredRow::value));
+            } else if (overwrite) {
+                registered.row = row;
+            }
+            newRows.put(row.uniqueTags, registered);
+        }
+
+        for (Map.Entry<Tags, RegisteredRow> oldRow : oldRows.entrySet()) {
+            if (!newRows.containsKey(oldRow.getKey())) {
+                registry.remove(oldRow.getValue().id);
+            }
+        }
+
+        registeredRows = newRows;
+    }
+
+    /**
+     * The gauge of a row, whose definition can be replaced without registering it again.
+     */
+    private static class RegisteredRow {
+        final Meter.Id id;
+        volatile Row<?> row;
+
+        RegisteredRow(Meter.Id id, Row<?> row) {
+            this.id = id;
+            this.row = row;
+        }
+
+        double value() {
+            return row.value();
+        }
     }
 
     public static class Row<T> {
@@ -99,6 +123,10 @@ public class MultiGauge {
             this.valueFunction = valueFunction;
         }
 
+        double value() {
+            return valueFunction.applyAsDouble(obj);
+        }
+
         public static <T> Row<T> of(Tags uniqueTags, T obj, ToDoubleFunction<T> valueFunction) {
             return new Row<>(uniqueTags, obj, valueFunction);
         }
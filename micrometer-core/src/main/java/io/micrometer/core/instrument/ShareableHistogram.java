@@ -0,0 +1,126 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.instrument.distribution.Histogram;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.NoopHistogram;
+
+import java.util.function.Supplier;
+
+/**
+ * The histogram of a timer or distribution summary, which delegates either to the meter's own histogram or, while it
+ * is shared, to a {@link SharedHistogram} view of another meter's histogram. The delegate is swapped by whichever
+ * thread changes the children of a composite, and is read by recording and publishing threads.
+ * <p>
+ * Only the meters registered as children of a composite that shares histograms are wrapped, so that every other
+ * meter records straight to its own histogram.
+ */
+final class ShareableHistogram implements Histogram {
+    private static final ThreadLocal<Boolean> registering = new ThreadLocal<>();
+
+    private volatile Histogram delegate;
+
+    ShareableHistogram(Histogram own) {
+        this.delegate = own;
+    }
+
+    /**
+     * Run a registration whose new timers and distribution summaries get histograms that can be shared.
+     */
+    static <M extends Meter> M registering(Supplier<M> registration) {
+        registering.set(Boolean.TRUE);
+        try {
+            return registration.get();
+        } finally {
+            registering.remove();
+        }
+    }
+
+    /**
+     * @return The histogram a meter records to, which only wraps its own histogram while {@link #registering}.
+     */
+    static Histogram of(Histogram own) {
+        return registering.get() == null ? own : new ShareableHistogram(own);
+    }
+
+    /**
+     * @return Whether other meters can share this histogram, which isn't the case while it is a view itself.
+     */
+    static boolean canBeShared(Histogram histogram) {
+        Histogram own = histogram instanceof ShareableHistogram ? ((ShareableHistogram) histogram).delegate : histogram;
+        return !(own instanceof SharedHistogram) && !(own instanceof NoopHistogram);
+    }
+
+    boolean isShared() {
+        return delegate instanceof SharedHistogram;
+    }
+
+    /**
+     * Take snapshots from {@code primary}, discarding the meter's own histogram.
+     */
+    synchronized void share(Histogram primary) {
+        Histogram own = delegate;
+        delegate = new SharedHistogram(primary);
+        if (!(own instanceof SharedHistogram)) {
+            own.close();
+        }
+    }
+
+    /**
+     * Go back to a histogram of the meter's own, if it was shared.
+     */
+    synchronized void unshare(Histogram own) {
+        if (isShared()) {
+            delegate = own;
+        }
+    }
+
+    @Override
+    public void recordLong(long value) {
+        delegate.recordLong(value);
+    }
+
+    @Override
+    public void recordDouble(double value) {
+        delegate.recordDouble(value);
+    }
+
+    @Override
+    public void recordLongs(long[] values) {
+        delegate.recordLongs(values);
+    }
+
+    @Override
+    public void recordDoubles(double[] values) {
+        delegate.recordDoubles(values);
+    }
+
+    @Override
+    public void recordLongsWithStride(long first, long stride, long count) {
+        delegate.recordLongsWithStride(first, stride, count);
+    }
+
+    @Override
+    public HistogramSnapshot takeSnapshot(long count, double total, double max) {
+        return delegate.takeSnapshot(count, total, max);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
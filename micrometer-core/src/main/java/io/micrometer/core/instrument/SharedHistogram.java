@@ -0,0 +1,82 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.Histogram;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A read-only view of the histogram of another meter, which is recorded to with the same samples as the meter
+ * holding the view. Samples recorded to the view are ignored, since they are already counted by the other meter.
+ */
+final class SharedHistogram implements Histogram {
+    private final Histogram histogram;
+
+    SharedHistogram(Histogram histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * @return Whether histograms built from these configurations would have the same buckets and percentiles.
+     */
+    static boolean sameDistribution(DistributionStatisticConfig config, DistributionStatisticConfig other) {
+        return Arrays.equals(config.getPercentiles(), other.getPercentiles()) &&
+                Objects.equals(config.isPercentileHistogram(), other.isPercentileHistogram()) &&
+                Arrays.equals(config.getSlaBoundaries(), other.getSlaBoundaries()) &&
+                Objects.equals(config.getMinimumExpectedValue(), other.getMinimumExpectedValue()) &&
+                Objects.equals(config.getMaximumExpectedValue(), other.getMaximumExpectedValue()) &&
+                Objects.equals(config.getPercentilePrecision(), other.getPercentilePrecision()) &&
+                Objects.equals(config.getPercentileRelativeAccuracy(), other.getPercentileRelativeAccuracy()) &&
+                Objects.equals(config.getExpiry(), other.getExpiry()) &&
+                Objects.equals(config.getBufferLength(), other.getBufferLength());
+    }
+
+    @Override
+    public void recordLong(long value) {
+    }
+
+    @Override
+    public void recordDouble(double value) {
+    }
+
+    @Override
+    public void recordLongs(long[] values) {
+    }
+
+    @Override
+    public void recordDoubles(double[] values) {
+    }
+
+    @Override
+    public void recordLongsWithStride(long first, long stride, long count) {
+    }
+
+    @Override
+    public HistogramSnapshot takeSnapshot(long count, double total, double max) {
+        return histogram.takeSnapshot(count, total, max);
+    }
+
+    /**
+     * Leaves the histogram open, since it belongs to the other meter.
+     */
+    @Override
+    public void close() {
+    }
+}
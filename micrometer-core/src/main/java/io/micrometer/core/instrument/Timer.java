@@ -29,6 +29,7 @@ import java.util.Arrays;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.stream.LongStream;
 
 /**
  * Timer intended to track of a large number of short running events. Example would be something like
@@ -103,6 +104,33 @@ public interface Timer extends Meter, HistogramSupport {
      */
     void record(long amount, TimeUnit unit);
 
+    /**
+     * Updates the statistics kept by the timer with all of the specified amounts at once, which is cheaper than
+     * recording them one by one.
+     *
+     * @param amounts Durations of events being measured by this timer. Amounts less than 0 are dropped.
+     * @param unit    Time unit for the amounts being recorded.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    default void record(long[] amounts, TimeUnit unit) {
+        for (long amount : amounts) {
+            record(amount, unit);
+        }
+    }
+
+    /**
+     * Updates the statistics kept by the timer with all of the specified amounts at once.
+     *
+     * @param amounts Durations of events being measured by this timer. Amounts less than 0 are dropped.
+     * @param unit    Time unit for the amounts being recorded.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    default void record(LongStream amounts, TimeUnit unit) {
+        record(amounts.toArray(), unit);
+    }
+
     /**
      * Updates the statistics kept by the timer with the specified amount.
      *
@@ -391,6 +419,20 @@ public interface Timer extends Meter, HistogramSupport {
             return this;
         }
 
+        /**
+         * Compute percentiles from a mergeable sketch that guarantees this relative error on every percentile,
+         * instead of from a dynamic range histogram. The sketch only allocates memory for the range of values
+         * actually observed.
+         *
+         * @param relativeAccuracy The relative error to guarantee on computed percentiles, e.g. {@code 0.01} for 1%.
+         * @return This builder.
+         * @since 1.5.0
+         */
+        public Builder percentileRelativeAccuracy(@Nullable Double relativeAccuracy) {
+            this.distributionConfigBuilder.percentileRelativeAccuracy(relativeAccuracy);
+            return this;
+        }
+
         /**
          * Adds histogram buckets used to generate aggregable percentile approximations in monitoring
          * systems that have query facilities to do so (e.g. Prometheus' {@code histogram_quantile},
@@ -484,6 +526,20 @@ public interface Timer extends Meter, HistogramSupport {
             return this;
         }
 
+        /**
+         * Buffer samples per recording thread and record them to the timer in batches, which makes recording to
+         * very hot timers much cheaper. Count, total time and max can lag behind by up to this many samples per
+         * thread, until the buffer fills up or a snapshot of the timer is taken.
+         *
+         * @param batchSize The number of samples each thread buffers before they are recorded.
+         * @return This builder.
+         * @since 1.5.0
+         */
+        public Builder recordingBatchSize(@Nullable Integer batchSize) {
+            this.distributionConfigBuilder.recordingBatchSize(batchSize);
+            return this;
+        }
+
         /**
          * Sets the pause detector implementation to use for this timer. Can also be configured on a registry-level with
          * {@link MeterRegistry.Config#pauseDetector(PauseDetector)}.
@@ -20,16 +20,26 @@ import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.lang.Nullable;
 
-import java.util.Collections;
-import java.util.IdentityHashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 abstract class AbstractCompositeMeter<T extends Meter> extends AbstractMeter implements CompositeMeter {
+    private static final MeterRegistry[] NO_REGISTRIES = new MeterRegistry[0];
+    private static final Meter[] NO_CHILDREN = new Meter[0];
+
     private AtomicBoolean childrenGuard = new AtomicBoolean();
-    private Map<MeterRegistry, T> children = Collections.emptyMap();
+
+    /**
+     * The registries of the children, by the same index as {@link #children}. Guarded by childrenGuard.
+     */
+    private MeterRegistry[] registries = NO_REGISTRIES;
+
+    /**
+     * An immutable snapshot of the child meters, in the order their registries were added, which is replaced
+     * whenever a registry is added or removed. Recording iterates over it directly, without an iterator.
+     */
+    private volatile Meter[] children = NO_CHILDREN;
 
     @Nullable
     private volatile T noopMeter;
@@ -43,14 +53,33 @@ abstract class AbstractCompositeMeter<T extends Meter> extends AbstractMeter imp
     @Nullable
     abstract T registerNewMeter(MeterRegistry registry);
 
+    /**
+     * Called whenever a registry is added or removed, before the new children are published to recording threads.
+     *
+     * @param children The new child meters, each of which is a {@code T}. Must not be modified.
+     */
+    void childrenChanged(Meter[] children) {
+    }
+
+    /**
+     * @return The child meters, each of which is a {@code T}. Must not be modified.
+     */
+    final Meter[] children() {
+        return children;
+    }
+
+    @SuppressWarnings("unchecked")
     final void forEachChild(Consumer<T> task) {
-        children.values().forEach(task);
+        for (Meter child : children) {
+            task.accept((T) child);
+        }
     }
 
+    @SuppressWarnings("unchecked")
     T firstChild() {
-        final Iterator<T> i = children.values().iterator();
-        if (i.hasNext())
-            return i.next();
+        final Meter[] children = this.children;
+        if (children.length > 0)
+            return (T) children[0];
 
         // There are no child meters at the moment. Return a lazily instantiated no-op meter.
         final T noopMeter = this.noopMeter;
@@ -71,8 +100,18 @@ abstract class AbstractCompositeMeter<T extends Meter> extends AbstractMeter imp
         for (; ; ) {
             if (childrenGuard.compareAndSet(false, true)) {
                 try {
-                    Map<MeterRegistry, T> newChildren = new IdentityHashMap<>(children);
-                    newChildren.put(registry, newMeter);
+                    int index = indexOf(registry);
+                    Meter[] newChildren;
+                    if (index < 0) {
+                        index = registries.length;
+                        registries = Arrays.copyOf(registries, index + 1);
+                        registries[index] = registry;
+                        newChildren = Arrays.copyOf(children, index + 1);
+                    } else {
+                        newChildren = children.clone();
+                    }
+                    newChildren[index] = newMeter;
+                    childrenChanged(newChildren);
                     this.children = newChildren;
                     break;
                 } finally {
@@ -93,9 +132,18 @@ abstract class AbstractCompositeMeter<T extends Meter> extends AbstractMeter imp
         for (; ; ) {
             if (childrenGuard.compareAndSet(false, true)) {
                 try {
-                    Map<MeterRegistry, T> newChildren = new IdentityHashMap<>(children);
-                    newChildren.remove(registry);
-                    this.children = newChildren;
+                    int index = indexOf(registry);
+                    if (index >= 0) {
+                        MeterRegistry[] newRegistries = new MeterRegistry[registries.length - 1];
+                        Meter[] newChildren = new Meter[children.length - 1];
+                        System.arraycopy(registries, 0, newRegistries, 0, index);
+                        System.arraycopy(registries, index + 1, newRegistries, index, newRegistries.length - index);
+                        System.arraycopy(children, 0, newChildren, 0, index);
+                        System.arraycopy(children, index + 1, newChildren, index, newChildren.length - index);
+                        this.registries = newRegistries;
+                        childrenChanged(newChildren);
+                        this.children = newChildren;
+                    }
                     break;
                 } finally {
                     childrenGuard.set(false);
@@ -103,4 +151,14 @@ abstract class AbstractCompositeMeter<T extends Meter> extends AbstractMeter imp
             }
         }
     }
+
+    // Guarded by childrenGuard
+    private int indexOf(MeterRegistry registry) {
+        for (int i = 0; i < registries.length; i++) {
+            if (registries[i] == registry) {
+                return i;
+            }
+        }
+        return -1;
+    }
 }
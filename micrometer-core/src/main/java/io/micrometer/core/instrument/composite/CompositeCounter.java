@@ -28,7 +28,14 @@ class CompositeCounter extends AbstractCompositeMeter<Counter> implements Counte
 
     @Override
     public void increment(double amount) {
-        forEachChild(c -> c.increment(amount));
+        Meter[] children = children();
+        if (children.length == 1) {
+            ((Counter) children[0]).increment(amount);
+        } else {
+            for (Meter child : children) {
+                ((Counter) child).increment(amount);
+            }
+        }
     }
 
     @Override
@@ -15,6 +15,8 @@
  */
 package io.micrometer.core.instrument.composite;
 
+import io.micrometer.core.instrument.AbstractDistributionSummary;
+import io.micrometer.core.instrument.AbstractTimer;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -26,16 +28,59 @@ class CompositeDistributionSummary extends AbstractCompositeMeter<DistributionSu
 
     private final DistributionStatisticConfig distributionStatisticConfig;
     private final double scale;
+    private final boolean shareHistograms;
 
-    CompositeDistributionSummary(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, double scale) {
+    CompositeDistributionSummary(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, double scale,
+                                 boolean shareHistograms) {
         super(id);
         this.distributionStatisticConfig = distributionStatisticConfig;
         this.scale = scale;
+        this.shareHistograms = shareHistograms;
+    }
+
+    /**
+     * The first child records to its histogram on behalf of all children that can share it, so that a removed
+     * first child hands this role over to the next one. Children that can't share the new first child's histogram
+     * go back to a histogram of their own.
+     */
+    @Override
+    void childrenChanged(Meter[] children) {
+        if (!shareHistograms) {
+            return;
+        }
+        AbstractDistributionSummary primary = children.length > 0 && children[0] instanceof AbstractDistributionSummary ? (AbstractDistributionSummary) children[0] : null;
+        for (Meter child : children) {
+            if (child instanceof AbstractDistributionSummary) {
+                AbstractDistributionSummary summary = (AbstractDistributionSummary) child;
+                if (primary == null || summary == primary || !summary.shareHistogramOf(primary)) {
+                    summary.unshareHistogram();
+                }
+            }
+        }
     }
 
     @Override
     public void record(double amount) {
-        forEachChild(ds -> ds.record(amount));
+        Meter[] children = children();
+        if (children.length == 1) {
+            ((DistributionSummary) children[0]).record(amount);
+        } else {
+            for (Meter child : children) {
+                ((DistributionSummary) child).record(amount);
+            }
+        }
+    }
+
+    @Override
+    public void record(double[] amounts) {
+        Meter[] children = children();
+        if (children.length == 1) {
+            ((DistributionSummary) children[0]).record(amounts);
+        } else {
+            for (Meter child : children) {
+                ((DistributionSummary) child).record(amounts);
+            }
+        }
     }
 
     @Override
@@ -66,7 +111,7 @@ class CompositeDistributionSummary extends AbstractCompositeMeter<DistributionSu
     @SuppressWarnings("ConstantConditions")
     @Override
     DistributionSummary registerNewMeter(MeterRegistry registry) {
-        return DistributionSummary.builder(getId().getName())
+        DistributionSummary.Builder builder = DistributionSummary.builder(getId().getName())
                 .tags(getId().getTagsAsIterable())
                 .description(getId().getDescription())
                 .baseUnit(getId().getBaseUnit())
@@ -77,8 +122,10 @@ class CompositeDistributionSummary extends AbstractCompositeMeter<DistributionSu
                 .distributionStatisticBufferLength(distributionStatisticConfig.getBufferLength())
                 .distributionStatisticExpiry(distributionStatisticConfig.getExpiry())
                 .percentilePrecision(distributionStatisticConfig.getPercentilePrecision())
+                .percentileRelativeAccuracy(distributionStatisticConfig.getPercentileRelativeAccuracy())
                 .sla(distributionStatisticConfig.getSlaBoundaries())
-                .scale(scale)
-                .register(registry);
+                .scale(scale);
+        return shareHistograms ? AbstractTimer.withShareableHistograms(() -> builder.register(registry)) :
+                builder.register(registry);
     }
 }
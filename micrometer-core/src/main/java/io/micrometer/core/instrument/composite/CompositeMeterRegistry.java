@@ -15,6 +15,7 @@
  */
 package io.micrometer.core.instrument.composite;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.config.NamingConvention;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
@@ -48,6 +49,8 @@ public class CompositeMeterRegistry extends MeterRegistry {
     private final AtomicBoolean parentLock = new AtomicBoolean(false);
     private volatile Set<CompositeMeterRegistry> parents = Collections.newSetFromMap(new IdentityHashMap<>());
 
+    private final boolean shareHistograms;
+
     public CompositeMeterRegistry() {
         this(Clock.SYSTEM);
     }
@@ -57,7 +60,25 @@ public class CompositeMeterRegistry extends MeterRegistry {
     }
 
     public CompositeMeterRegistry(Clock clock, Iterable<MeterRegistry> registries) {
+        this(clock, registries, false);
+    }
+
+    /**
+     * @param clock           The clock of the composite.
+     * @param registries      The registries to add to the composite.
+     * @param shareHistograms Whether the children of a timer or distribution summary that have the same distribution
+     *                        statistic configuration and clock should share a single histogram, recorded to by one of
+     *                        them. Each registry still keeps its own count, total and max. This saves recording every
+     *                        sample to one histogram per registry, at the cost of samples recorded directly to the
+     *                        meters of the other registries no longer being reflected in their distribution statistics.
+     *                        Only children registered through the composite share, so a meter that already existed
+     *                        in a registry before it was added keeps its own histogram.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    public CompositeMeterRegistry(Clock clock, Iterable<MeterRegistry> registries, boolean shareHistograms) {
         super(clock);
+        this.shareHistograms = shareHistograms;
         config()
                 .namingConvention(NamingConvention.identity)
                 .onMeterAdded(m -> {
@@ -76,12 +97,12 @@ public class CompositeMeterRegistry extends MeterRegistry {
 
     @Override
     protected Timer newTimer(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector) {
-        return new CompositeTimer(id, clock, distributionStatisticConfig, pauseDetector);
+        return new CompositeTimer(id, clock, distributionStatisticConfig, pauseDetector, shareHistograms);
     }
 
     @Override
     protected DistributionSummary newDistributionSummary(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, double scale) {
-        return new CompositeDistributionSummary(id, distributionStatisticConfig, scale);
+        return new CompositeDistributionSummary(id, distributionStatisticConfig, scale, shareHistograms);
     }
 
     @Override
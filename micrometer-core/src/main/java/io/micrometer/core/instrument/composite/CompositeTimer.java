@@ -15,7 +15,9 @@
  */
 package io.micrometer.core.instrument.composite;
 
+import io.micrometer.core.instrument.AbstractTimer;
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
@@ -32,22 +34,72 @@ class CompositeTimer extends AbstractCompositeMeter<Timer> implements Timer {
     private final Clock clock;
     private final DistributionStatisticConfig distributionStatisticConfig;
     private final PauseDetector pauseDetector;
+    private final boolean shareHistograms;
 
-    CompositeTimer(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector) {
+    CompositeTimer(Id id, Clock clock, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector,
+                   boolean shareHistograms) {
         super(id);
         this.clock = clock;
         this.distributionStatisticConfig = distributionStatisticConfig;
         this.pauseDetector = pauseDetector;
+        this.shareHistograms = shareHistograms;
+    }
+
+    /**
+     * The first child records to its histogram on behalf of all children that can share it, so that a removed
+     * first child hands this role over to the next one. Children that can't share the new first child's histogram
+     * go back to a histogram of their own.
+     */
+    @Override
+    void childrenChanged(Meter[] children) {
+        if (!shareHistograms) {
+            return;
+        }
+        AbstractTimer primary = children.length > 0 && children[0] instanceof AbstractTimer ? (AbstractTimer) children[0] : null;
+        for (Meter child : children) {
+            if (child instanceof AbstractTimer) {
+                AbstractTimer timer = (AbstractTimer) child;
+                if (primary == null || timer == primary || !timer.shareHistogramOf(primary)) {
+                    timer.unshareHistogram();
+                }
+            }
+        }
     }
 
     @Override
     public void record(long amount, TimeUnit unit) {
-        forEachChild(ds -> ds.record(amount, unit));
+        Meter[] children = children();
+        if (children.length == 1) {
+            ((Timer) children[0]).record(amount, unit);
+        } else {
+            for (Meter child : children) {
+                ((Timer) child).record(amount, unit);
+            }
+        }
+    }
+
+    @Override
+    public void record(long[] amounts, TimeUnit unit) {
+        Meter[] children = children();
+        if (children.length == 1) {
+            ((Timer) children[0]).record(amounts, unit);
+        } else {
+            for (Meter child : children) {
+                ((Timer) child).record(amounts, unit);
+            }
+        }
     }
 
     @Override
     public void record(Duration duration) {
-        forEachChild(ds -> ds.record(duration));
+        Meter[] children = children();
+        if (children.length == 1) {
+            ((Timer) children[0]).record(duration);
+        } else {
+            for (Meter child : children) {
+                ((Timer) child).record(duration);
+            }
+        }
     }
 
     @Override
@@ -126,6 +178,8 @@ class CompositeTimer extends AbstractCompositeMeter<Timer> implements Timer {
                 .distributionStatisticBufferLength(distributionStatisticConfig.getBufferLength())
                 .distributionStatisticExpiry(distributionStatisticConfig.getExpiry())
                 .percentilePrecision(distributionStatisticConfig.getPercentilePrecision())
+                .percentileRelativeAccuracy(distributionStatisticConfig.getPercentileRelativeAccuracy())
+                .recordingBatchSize(distributionStatisticConfig.getRecordingBatchSize())
                 .pauseDetector(pauseDetector);
 
         final double[] slaNanos = distributionStatisticConfig.getSlaBoundaries();
@@ -137,6 +191,8 @@ class CompositeTimer extends AbstractCompositeMeter<Timer> implements Timer {
             builder = builder.sla(sla);
         }
 
-        return builder.register(registry);
+        Timer.Builder childBuilder = builder;
+        return shareHistograms ? AbstractTimer.withShareableHistograms(() -> childBuilder.register(registry)) :
+                builder.register(registry);
     }
 }
@@ -15,13 +15,18 @@
  */
 package io.micrometer.core.instrument.config;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.lang.Nullable;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
@@ -49,12 +54,7 @@ public interface MeterFilter {
      * @return A common tag filter.
      */
     static MeterFilter commonTags(Iterable<Tag> tags) {
-        return new MeterFilter() {
-            @Override
-            public Meter.Id map(Meter.Id id) {
-                return id.withTags(Tags.concat(tags, id.getTagsAsIterable()));
-            }
-        };
+        return new MeterFilterChain.CommonTags(tags);
     }
 
     /**
@@ -91,21 +91,7 @@ public interface MeterFilter {
      * @return A tag-suppressing filter.
      */
     static MeterFilter ignoreTags(String... tagKeys) {
-        return new MeterFilter() {
-            @Override
-            public Meter.Id map(Meter.Id id) {
-                List<Tag> tags = stream(id.getTagsAsIterable().spliterator(), false)
-                        .filter(t -> {
-                            for (String tagKey : tagKeys) {
-                                if (t.getKey().equals(tagKey))
-                                    return false;
-                            }
-                            return true;
-                        }).collect(toList());
-
-                return id.replaceTags(tags);
-            }
-        };
+        return new MeterFilterChain.IgnoreTags(new HashSet<>(Arrays.asList(tagKeys)));
     }
 
     /**
@@ -221,11 +207,69 @@ public interface MeterFilter {
 
             @Override
             public MeterFilterReply accept(Meter.Id id) {
-                if (ids.size() > maximumTimeSeries)
+                if (ids.contains(id))
+                    return MeterFilterReply.NEUTRAL;
+
+                // denied ids are not remembered, so that the set never grows beyond the limit
+                if (ids.size() >= maximumTimeSeries)
                     return MeterFilterReply.DENY;
 
                 ids.add(id);
-                return ids.size() > maximumTimeSeries ? MeterFilterReply.DENY : MeterFilterReply.NEUTRAL;
+                return MeterFilterReply.NEUTRAL;
+            }
+        };
+    }
+
+    /**
+     * Places an upper bound on the number of time series, i.e. unique tag combinations, of every meter name. Unlike
+     * {@link #maximumAllowableMetrics(int)}, a single meter whose tags accidentally carry an unbounded value such as
+     * a user id only exhausts its own allowance, rather than crowding out every meter registered after it.
+     * <p>
+     * Only allowed ids are remembered, and they are forgotten when their meter is removed from the registry. At most
+     * {@code maximumNames} names are remembered, the least recently registered one being forgotten first, so a name
+     * that has been forgotten gets a new allowance. Denied registrations are counted by a
+     * {@code micrometer.meter.denied} counter in the registry.
+     *
+     * @param registry                 The registry the filter is added to.
+     * @param maximumNames             The number of meter names whose time series are remembered.
+     * @param maximumTimeSeriesPerName The number of unique tag combinations allowed per meter name.
+     * @return A filter that limits the number of unique tag combinations of each meter name.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    static MeterFilter maximumAllowableMetricsPerName(MeterRegistry registry, int maximumNames,
+                                                      int maximumTimeSeriesPerName) {
+        Counter denied = Counter.builder("micrometer.meter.denied")
+                .description("Meter registrations denied because their name reached its maximum number of time series")
+                .register(registry);
+
+        Map<String, Set<Meter.Id>> idsByName = new LinkedHashMap<String, Set<Meter.Id>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Set<Meter.Id>> eldest) {
+                return size() > maximumNames;
+            }
+        };
+
+        registry.config().onMeterRemoved(meter -> {
+            synchronized (idsByName) {
+                Set<Meter.Id> ids = idsByName.get(meter.getId().getName());
+                if (ids != null && ids.remove(meter.getId()) && ids.isEmpty()) {
+                    idsByName.remove(meter.getId().getName());
+                }
+            }
+        });
+
+        return new MeterFilter() {
+            @Override
+            public MeterFilterReply accept(Meter.Id id) {
+                synchronized (idsByName) {
+                    Set<Meter.Id> ids = idsByName.computeIfAbsent(id.getName(), name -> new HashSet<>());
+                    if (ids.contains(id) || (ids.size() < maximumTimeSeriesPerName && ids.add(id))) {
+                        return MeterFilterReply.NEUTRAL;
+                    }
+                }
+                denied.increment();
+                return MeterFilterReply.DENY;
             }
         };
     }
@@ -285,7 +329,7 @@ public interface MeterFilter {
      * @return A filter that guarantees the exclusion of matching meters.
      */
     static MeterFilter denyNameStartsWith(String prefix) {
-        return deny(id -> id.getName().startsWith(prefix));
+        return new MeterFilterChain.NamePrefixes(prefix, MeterFilterReply.DENY);
     }
 
     /**
@@ -296,7 +340,7 @@ public interface MeterFilter {
      * @since 1.2.0
      */
     static MeterFilter acceptNameStartsWith(String prefix) {
-        return accept(id -> id.getName().startsWith(prefix));
+        return new MeterFilterChain.NamePrefixes(prefix, MeterFilterReply.ACCEPT);
     }
 
     /**
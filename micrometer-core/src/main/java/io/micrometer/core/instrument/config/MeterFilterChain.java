@@ -0,0 +1,169 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.config;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.lang.Nullable;
+
+import java.util.*;
+
+/**
+ * Fuses neighboring built-in filters of the same kind into one, so that a registry applies e.g. several
+ * {@link MeterFilter#commonTags(Iterable)} filters with a single tag merge, and any number of
+ * {@link MeterFilter#acceptNameStartsWith(String)} and {@link MeterFilter#denyNameStartsWith(String)} filters
+ * with a single walk of the meter name. All other filters are kept as they are, in the same order.
+ *
+ * @since 1.5.0
+ */
+@Incubating(since = "1.5.0")
+public final class MeterFilterChain {
+    private MeterFilterChain() {
+    }
+
+    /**
+     * @param filters Filters in the order in which they apply.
+     * @return Filters that behave exactly like {@code filters} when applied in order.
+     */
+    public static MeterFilter[] compile(MeterFilter[] filters) {
+        List<MeterFilter> compiled = new ArrayList<>(filters.length);
+        for (MeterFilter filter : filters) {
+            MeterFilter previous = compiled.isEmpty() ? null : compiled.get(compiled.size() - 1);
+            MeterFilter fused = previous == null ? null : fuse(previous, filter);
+            if (fused != null) {
+                compiled.set(compiled.size() - 1, fused);
+            } else {
+                compiled.add(filter);
+            }
+        }
+        return compiled.toArray(new MeterFilter[0]);
+    }
+
+    @Nullable
+    private static MeterFilter fuse(MeterFilter first, MeterFilter second) {
+        if (first instanceof CommonTags && second instanceof CommonTags) {
+            // tags that a meter already has win over common tags, so the common tags added first win over later ones
+            return new CommonTags(Tags.concat(((CommonTags) second).tags, ((CommonTags) first).tags));
+        }
+        if (first instanceof IgnoreTags && second instanceof IgnoreTags) {
+            Set<String> tagKeys = new HashSet<>(((IgnoreTags) first).tagKeys);
+            tagKeys.addAll(((IgnoreTags) second).tagKeys);
+            return new IgnoreTags(tagKeys);
+        }
+        if (first instanceof NamePrefixes && second instanceof NamePrefixes) {
+            return ((NamePrefixes) first).then((NamePrefixes) second);
+        }
+        return null;
+    }
+
+    static class CommonTags implements MeterFilter {
+        final Tags tags;
+
+        CommonTags(Iterable<Tag> tags) {
+            this.tags = Tags.of(tags);
+        }
+
+        @Override
+        public Meter.Id map(Meter.Id id) {
+            return id.replaceTags(Tags.concat(tags, id.getTagsAsIterable()));
+        }
+    }
+
+    static class IgnoreTags implements MeterFilter {
+        final Set<String> tagKeys;
+
+        IgnoreTags(Set<String> tagKeys) {
+            this.tagKeys = tagKeys;
+        }
+
+        @Override
+        public Meter.Id map(Meter.Id id) {
+            List<Tag> tags = new ArrayList<>();
+            boolean ignored = false;
+            for (Tag tag : id.getTagsAsIterable()) {
+                if (tagKeys.contains(tag.getKey())) {
+                    ignored = true;
+                } else {
+                    tags.add(tag);
+                }
+            }
+            return ignored ? id.replaceTags(tags) : id;
+        }
+    }
+
+    /**
+     * Accepts or denies meters by the first of a sequence of name prefixes that matches, looked up in a trie.
+     */
+    static class NamePrefixes implements MeterFilter {
+        private final List<String> prefixes;
+        private final List<MeterFilterReply> replies;
+        private final Node root = new Node();
+
+        NamePrefixes(String prefix, MeterFilterReply reply) {
+            this(Collections.singletonList(prefix), Collections.singletonList(reply));
+        }
+
+        private NamePrefixes(List<String> prefixes, List<MeterFilterReply> replies) {
+            this.prefixes = prefixes;
+            this.replies = replies;
+            for (int i = 0; i < prefixes.size(); i++) {
+                Node node = root;
+                for (char c : prefixes.get(i).toCharArray()) {
+                    node = node.children.computeIfAbsent(c, k -> new Node());
+                }
+                if (node.first < 0) {
+                    node.first = i;
+                }
+            }
+        }
+
+        NamePrefixes then(NamePrefixes next) {
+            List<String> prefixes = new ArrayList<>(this.prefixes);
+            prefixes.addAll(next.prefixes);
+            List<MeterFilterReply> replies = new ArrayList<>(this.replies);
+            replies.addAll(next.replies);
+            return new NamePrefixes(prefixes, replies);
+        }
+
+        @Override
+        public MeterFilterReply accept(Meter.Id id) {
+            String name = id.getName();
+            int first = root.first;
+            Node node = root;
+            for (int i = 0; i < name.length(); i++) {
+                node = node.children.get(name.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.first >= 0 && (first < 0 || node.first < first)) {
+                    first = node.first;
+                }
+            }
+            return first < 0 ? MeterFilterReply.NEUTRAL : replies.get(first);
+        }
+
+        private static class Node {
+            final Map<Character, Node> children = new HashMap<>();
+
+            /**
+             * The position of the first prefix ending at this node, or -1 if none does.
+             */
+            int first = -1;
+        }
+    }
+}
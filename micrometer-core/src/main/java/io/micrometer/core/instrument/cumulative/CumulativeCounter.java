@@ -20,7 +20,7 @@ import io.micrometer.core.instrument.Counter;
 
 import java.util.concurrent.atomic.DoubleAdder;
 
-public class CumulativeCounter extends AbstractMeter implements Counter {
+public class CumulativeCounter extends AbstractMeter implements Counter, CumulativeState {
     private final DoubleAdder value;
 
     public CumulativeCounter(Id id) {
@@ -37,4 +37,16 @@ public class CumulativeCounter extends AbstractMeter implements Counter {
     public double count() {
         return value.sum();
     }
+
+    @Override
+    public long[] checkpointState() {
+        return new long[]{Double.doubleToRawLongBits(value.sum())};
+    }
+
+    @Override
+    public void restoreState(long[] state) {
+        if (state.length == 1) {
+            value.add(Double.longBitsToDouble(state[0]));
+        }
+    }
 }
@@ -33,7 +33,7 @@ import java.util.concurrent.atomic.DoubleAdder;
  * @author Vladimir Bukhtoyarov
  * @author Jon Schneider
  */
-public class CumulativeDistributionSummary extends AbstractDistributionSummary {
+public class CumulativeDistributionSummary extends AbstractDistributionSummary implements CumulativeState {
 
     private final AtomicLong count;
     private final DoubleAdder total;
@@ -60,6 +60,19 @@ public class CumulativeDistributionSummary extends AbstractDistributionSummary {
         max.record(amount);
     }
 
+    @Override
+    protected void recordNonNegative(double[] amounts) {
+        double totalAmount = 0;
+        double maxAmount = 0;
+        for (double amount : amounts) {
+            totalAmount += amount;
+            maxAmount = Math.max(maxAmount, amount);
+        }
+        count.addAndGet(amounts.length);
+        total.add(totalAmount);
+        max.record(maxAmount);
+    }
+
     @Override
     public long count() {
         return count.get();
@@ -75,6 +88,19 @@ public class CumulativeDistributionSummary extends AbstractDistributionSummary {
         return max.poll();
     }
 
+    @Override
+    public long[] checkpointState() {
+        return new long[]{count.get(), Double.doubleToRawLongBits(total.sum())};
+    }
+
+    @Override
+    public void restoreState(long[] state) {
+        if (state.length == 2) {
+            count.addAndGet(state[0]);
+            total.add(Double.longBitsToDouble(state[1]));
+        }
+    }
+
     @Override
     public Iterable<Measurement> measure() {
         return Arrays.asList(
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.cumulative;
+
+import io.micrometer.core.annotation.Incubating;
+
+/**
+ * Implemented by meters that accumulate over the lifetime of the application, so that their totals
+ * can be carried across restarts by a {@link MappedCumulativeStateStore}.
+ *
+ * @since 1.5.0
+ */
+@Incubating(since = "1.5.0")
+public interface CumulativeState {
+    /**
+     * @return The lifetime totals of this meter, encoded as raw long values. Doubles are encoded
+     * with {@link Double#doubleToRawLongBits(double)}.
+     */
+    long[] checkpointState();
+
+    /**
+     * Add state previously returned by {@link #checkpointState()} to this meter's totals. Implementations
+     * should ignore state whose layout does not match their own (e.g. because histogram buckets changed
+     * between restarts) rather than restoring it partially.
+     *
+     * @param state Lifetime totals from a previous checkpoint.
+     */
+    void restoreState(long[] state);
+}
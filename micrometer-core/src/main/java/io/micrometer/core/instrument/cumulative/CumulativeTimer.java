@@ -28,7 +28,7 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * @author Jon Schneider
  */
-public class CumulativeTimer extends AbstractTimer {
+public class CumulativeTimer extends AbstractTimer implements CumulativeState {
     private final AtomicLong count;
     private final AtomicLong total;
     private final TimeWindowMax max;
@@ -54,6 +54,26 @@ public class CumulativeTimer extends AbstractTimer {
         max.record(nanoAmount, TimeUnit.NANOSECONDS);
     }
 
+    @Override
+    protected void recordNonNegative(long[] nanoAmounts) {
+        long totalNanos = 0;
+        long maxNanos = 0;
+        for (long nanoAmount : nanoAmounts) {
+            totalNanos += nanoAmount;
+            maxNanos = Math.max(maxNanos, nanoAmount);
+        }
+        count.getAndAdd(nanoAmounts.length);
+        total.getAndAdd(totalNanos);
+        max.record(maxNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    protected void recordNonNegativeWithStride(long first, long stride, long count) {
+        this.count.getAndAdd(count);
+        total.getAndAdd(sumWithStride(first, stride, count));
+        max.record(first + (count - 1) * stride, TimeUnit.NANOSECONDS);
+    }
+
     @Override
     public long count() {
         return count.get();
@@ -68,4 +88,17 @@ public class CumulativeTimer extends AbstractTimer {
     public double max(TimeUnit unit) {
         return max.poll(unit);
     }
+
+    @Override
+    public long[] checkpointState() {
+        return new long[]{count.get(), total.get()};
+    }
+
+    @Override
+    public void restoreState(long[] state) {
+        if (state.length == 2) {
+            count.addAndGet(state[0]);
+            total.addAndGet(state[1]);
+        }
+    }
 }
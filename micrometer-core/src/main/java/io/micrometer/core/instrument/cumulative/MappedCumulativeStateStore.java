@@ -0,0 +1,372 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.cumulative;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.lang.NonNull;
+import io.micrometer.core.lang.Nullable;
+import io.micrometer.core.util.internal.logging.InternalLogger;
+import io.micrometer.core.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the lifetime totals of {@link CumulativeState} meters in a memory-mapped file, so that cumulative
+ * counters, timers and histograms continue from where they left off when the application restarts instead
+ * of resetting to zero.
+ * <p>
+ * The file starts with a header identifying its layout version, followed by two equally sized pages.
+ * Each checkpoint is written directly into the mapped region of the page not holding the latest checkpoint,
+ * flushed to disk, and only then stamped with a higher generation and a checksum. A crash in the middle of a
+ * checkpoint therefore leaves the previous checkpoint intact, and it is the one restored on the next start.
+ * <p>
+ * State is keyed by meter type, name and tags. Bind a store to a single registry only. State for meters that
+ * have not (yet) been registered since the restart is carried forward into subsequent checkpoints, so lazily
+ * registered meters are restored too.
+ *
+ * @since 1.5.0
+ */
+@Incubating(since = "1.5.0")
+public class MappedCumulativeStateStore implements MeterBinder, AutoCloseable {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(MappedCumulativeStateStore.class);
+
+    static final int MAGIC = 0x4D434D53;
+    static final int VERSION = 1;
+
+    // magic (int), version (int), page size (int), reserved (int)
+    static final int FILE_HEADER_BYTES = 16;
+
+    // generation (long), entry count (int), used bytes (int), checksum (long)
+    static final int PAGE_HEADER_BYTES = 24;
+
+    private static final int DEFAULT_PAGE_BYTES = 4 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int pageBytes;
+
+    private final Map<Meter.Id, TrackedMeter> trackedMeters = new ConcurrentHashMap<>();
+
+    /**
+     * Restored state that has not been claimed by a registered meter yet.
+     */
+    private final Map<String, long[]> unclaimedState = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private long generation;
+    private int currentPage = -1;
+    private boolean capacityWarningLogged;
+
+    @Nullable
+    private ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * Open a store with a capacity of 4 MiB per checkpoint, creating the file if it doesn't exist yet.
+     *
+     * @param path The file in which state is kept.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    public MappedCumulativeStateStore(Path path) throws IOException {
+        this(path, DEFAULT_PAGE_BYTES);
+    }
+
+    /**
+     * Open a store, creating the file if it doesn't exist yet. If the file already exists with a valid
+     * header, its own page size is retained so that its state can be restored.
+     *
+     * @param path      The file in which state is kept.
+     * @param pageBytes The maximum number of bytes a single checkpoint may occupy.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    public MappedCumulativeStateStore(Path path, int pageBytes) throws IOException {
+        if (pageBytes <= PAGE_HEADER_BYTES) {
+            throw new IllegalArgumentException("pageBytes must be greater than " + PAGE_HEADER_BYTES);
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        int existingPageBytes = readExistingPageBytes();
+        boolean valid = existingPageBytes > 0;
+        this.pageBytes = valid ? existingPageBytes : pageBytes;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_BYTES + 2L * this.pageBytes);
+
+        if (valid) {
+            restore();
+        } else {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, this.pageBytes);
+            buffer.putLong(pageOffset(0), 0);
+            buffer.putLong(pageOffset(1), 0);
+            buffer.force();
+        }
+    }
+
+    private int readExistingPageBytes() throws IOException {
+        if (channel.size() < FILE_HEADER_BYTES) {
+            return -1;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        if (channel.read(header, 0) < FILE_HEADER_BYTES) {
+            return -1;
+        }
+        header.flip();
+
+        int magic = header.getInt();
+        int version = header.getInt();
+        int existingPageBytes = header.getInt();
+
+        if (magic != MAGIC || version != VERSION || existingPageBytes <= PAGE_HEADER_BYTES ||
+                channel.size() < FILE_HEADER_BYTES + 2L * existingPageBytes) {
+            logger.warn("Ignoring cumulative state file with an unrecognized layout (version " + version + ")");
+            return -1;
+        }
+        return existingPageBytes;
+    }
+
+    private void restore() {
+        long[] generations = new long[2];
+        int latest = -1;
+        for (int page = 0; page < 2; page++) {
+            int base = pageOffset(page);
+            generations[page] = buffer.getLong(base);
+            if (generations[page] > 0 && checksumMatches(base) &&
+                    (latest == -1 || generations[page] > generations[latest])) {
+                latest = page;
+            }
+        }
+
+        if (latest == -1) {
+            return;
+        }
+
+        currentPage = latest;
+        generation = generations[latest];
+
+        int base = pageOffset(latest);
+        int entries = buffer.getInt(base + 8);
+        ByteBuffer page = slice(base + PAGE_HEADER_BYTES, buffer.getInt(base + 12));
+        for (int i = 0; i < entries; i++) {
+            byte[] key = new byte[page.getShort() & 0xFFFF];
+            page.get(key);
+            long[] state = new long[page.getShort() & 0xFFFF];
+            for (int j = 0; j < state.length; j++) {
+                state[j] = page.getLong();
+            }
+            unclaimedState.put(new String(key, StandardCharsets.UTF_8), state);
+        }
+    }
+
+    private boolean checksumMatches(int base) {
+        int used = buffer.getInt(base + 12);
+        if (used < 0 || used > pageBytes - PAGE_HEADER_BYTES) {
+            return false;
+        }
+        return checksum(base, used) == buffer.getLong(base + 16);
+    }
+
+    private long checksum(int base, int used) {
+        CRC32 crc = new CRC32();
+        crc.update(slice(base + PAGE_HEADER_BYTES, used));
+        return crc.getValue();
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset);
+        slice.limit(offset + length);
+        return slice;
+    }
+
+    private int pageOffset(int page) {
+        return FILE_HEADER_BYTES + page * pageBytes;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        registry.config().onMeterAdded(this::track);
+        registry.config().onMeterRemoved(meter -> trackedMeters.remove(meter.getId()));
+        registry.forEachMeter(this::track);
+    }
+
+    private void track(Meter meter) {
+        if (!(meter instanceof CumulativeState)) {
+            return;
+        }
+
+        String key = key(meter.getId());
+        CumulativeState state = (CumulativeState) meter;
+
+        // a checkpoint must see the restored state either as unclaimed or as tracked, never as neither
+        synchronized (this) {
+            long[] restored = unclaimedState.remove(key);
+            if (restored != null) {
+                state.restoreState(restored);
+            }
+
+            trackedMeters.put(meter.getId(), new TrackedMeter(key.getBytes(StandardCharsets.UTF_8), state));
+        }
+    }
+
+    /**
+     * Each component is prefixed with its length, so that distinct ids never share a key whatever characters their
+     * names and tags contain.
+     */
+    static String key(Meter.Id id) {
+        StringBuilder key = new StringBuilder(id.getType().name());
+        appendComponent(key, id.getName());
+        for (Tag tag : id.getTagsAsIterable()) {
+            appendComponent(key, tag.getKey());
+            appendComponent(key, tag.getValue());
+        }
+        return key.toString();
+    }
+
+    private static void appendComponent(StringBuilder key, String component) {
+        key.append(';').append(component.length()).append(':').append(component);
+    }
+
+    /**
+     * Write the current state of every bound meter to disk.
+     */
+    public synchronized void checkpoint() {
+        int targetPage = currentPage == 0 ? 1 : 0;
+        int base = pageOffset(targetPage);
+        ByteBuffer page = slice(base + PAGE_HEADER_BYTES, pageBytes - PAGE_HEADER_BYTES);
+
+        int entries = 0;
+        int skipped = 0;
+        for (TrackedMeter tracked : trackedMeters.values()) {
+            if (write(page, tracked.key, tracked.state.checkpointState())) {
+                entries++;
+            } else {
+                skipped++;
+            }
+        }
+        for (Map.Entry<String, long[]> unclaimed : unclaimedState.entrySet()) {
+            if (write(page, unclaimed.getKey().getBytes(StandardCharsets.UTF_8), unclaimed.getValue())) {
+                entries++;
+            } else {
+                skipped++;
+            }
+        }
+
+        if (skipped > 0 && !capacityWarningLogged) {
+            logger.warn("Cumulative state of " + skipped + " meters did not fit into " + pageBytes +
+                    " bytes and was not persisted. Use a larger page size.");
+            capacityWarningLogged = true;
+        }
+
+        int used = page.position() - base - PAGE_HEADER_BYTES;
+        long checksum = checksum(base, used);
+
+        // Make the entries durable before stamping the page, so a torn write is never taken for a valid checkpoint.
+        buffer.force();
+
+        buffer.putInt(base + 8, entries);
+        buffer.putInt(base + 12, used);
+        buffer.putLong(base + 16, checksum);
+        buffer.putLong(base, ++generation);
+        buffer.force();
+
+        currentPage = targetPage;
+    }
+
+    private static boolean write(ByteBuffer page, byte[] key, long[] state) {
+        if (key.length > 0xFFFF || state.length > 0xFFFF) {
+            return false;
+        }
+        if (page.remaining() < 2 + key.length + 2 + 8 * state.length) {
+            return false;
+        }
+        page.putShort((short) key.length);
+        page.put(key);
+        page.putShort((short) state.length);
+        for (long value : state) {
+            page.putLong(value);
+        }
+        return true;
+    }
+
+    /**
+     * Checkpoint periodically in the background.
+     *
+     * @param interval      The time between checkpoints.
+     * @param threadFactory Factory for the checkpointing thread.
+     */
+    public synchronized void start(Duration interval, ThreadFactory threadFactory) {
+        stop();
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        scheduledExecutorService.scheduleAtFixedRate(this::checkpointSafely, interval.toMillis(),
+                interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdown();
+            scheduledExecutorService = null;
+        }
+    }
+
+    private void checkpointSafely() {
+        try {
+            checkpoint();
+        } catch (Throwable e) {
+            logger.warn("Unexpected exception thrown while checkpointing cumulative meter state", e);
+        }
+    }
+
+    /**
+     * Stop any background checkpointing, write a final checkpoint and release the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        stop();
+        checkpoint();
+        channel.close();
+    }
+
+    private static class TrackedMeter {
+        final byte[] key;
+        final CumulativeState state;
+
+        TrackedMeter(byte[] key, CumulativeState state) {
+            this.key = key;
+            this.state = state;
+        }
+    }
+}
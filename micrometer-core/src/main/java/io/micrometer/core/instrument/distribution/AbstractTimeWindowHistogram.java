@@ -59,6 +59,13 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
     @Nullable
     private U accumulatedHistogram;
 
+    /**
+     * The percentiles of the accumulated histogram as of the last snapshot, which are still valid as long as
+     * nothing has been accumulated since. Guarded by this.
+     */
+    @Nullable
+    private ValueAtPercentile[] percentileValues;
+
     @SuppressWarnings("unchecked")
     AbstractTimeWindowHistogram(Clock clock, DistributionStatisticConfig distributionStatisticConfig, Class<T> bucketType,
                                 boolean supportsAggregablePercentiles) {
@@ -97,6 +104,11 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
             }
         }
 
+        final Double relativeAccuracy = distributionStatisticConfig.getPercentileRelativeAccuracy();
+        if (relativeAccuracy != null && (relativeAccuracy <= 0 || relativeAccuracy >= 1)) {
+            rejectHistogramConfig("percentileRelativeAccuracy (" + relativeAccuracy + ") must be between 0 and 1 (exclusive).");
+        }
+
         final Double minimumExpectedValue = distributionStatisticConfig.getMinimumExpectedValue();
         final Double maximumExpectedValue = distributionStatisticConfig.getMaximumExpectedValue();
         if (minimumExpectedValue == null || minimumExpectedValue <= 0) {
@@ -137,6 +149,28 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
 
     abstract void recordDouble(T bucket, double value);
 
+    void recordLongs(T[] ringBuffer, long[] values) {
+        for (T bucket : ringBuffer) {
+            for (long value : values) {
+                recordLong(bucket, value);
+            }
+        }
+    }
+
+    void recordDoubles(T[] ringBuffer, double[] values) {
+        for (T bucket : ringBuffer) {
+            for (double value : values) {
+                recordDouble(bucket, value);
+            }
+        }
+    }
+
+    void recordLongsWithStride(T bucket, long first, long stride, long count) {
+        for (long i = 0; i < count; i++) {
+            recordLong(bucket, first + i * stride);
+        }
+    }
+
     abstract void resetBucket(T bucket);
 
     abstract U newAccumulatedHistogram(T[] ringBuffer);
@@ -147,6 +181,21 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
 
     abstract double valueAtPercentile(double percentile);
 
+    /**
+     * Implementations should override this to find all of the percentiles in a single pass over the
+     * accumulated histogram.
+     *
+     * @param percentiles Percentiles between 0 and 100, in any order.
+     * @return The values at each of the percentiles, in the same order.
+     */
+    double[] valuesAtPercentiles(double[] percentiles) {
+        double[] values = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            values[i] = valueAtPercentile(percentiles[i]);
+        }
+        return values;
+    }
+
     abstract double countAtValue(double value);
 
     double countAtValue(long value) {
@@ -164,7 +213,11 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
         final CountAtBucket[] counts;
         synchronized (this) {
             accumulateIfStale();
-            values = takeValueSnapshot();
+            if (percentileValues == null) {
+                percentileValues = takeValueSnapshot();
+            }
+            // idle histograms reuse the percentiles of the previous snapshot
+            values = percentileValues == null ? null : percentileValues.clone();
             counts = takeCountSnapshot();
         }
 
@@ -175,6 +228,7 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
         if (accumulatedHistogramStale) {
             accumulate();
             accumulatedHistogramStale = false;
+            percentileValues = null;
         }
     }
 
@@ -184,10 +238,15 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
             return null;
         }
 
+        final double[] percentiles = new double[monitoredPercentiles.length];
+        for (int i = 0; i < monitoredPercentiles.length; i++) {
+            percentiles[i] = monitoredPercentiles[i] * 100;
+        }
+        final double[] percentileValues = valuesAtPercentiles(percentiles);
+
         final ValueAtPercentile[] values = new ValueAtPercentile[monitoredPercentiles.length];
         for (int i = 0; i < monitoredPercentiles.length; i++) {
-            final double p = monitoredPercentiles[i];
-            values[i] = new ValueAtPercentile(p, valueAtPercentile(p * 100));
+            values[i] = new ValueAtPercentile(monitoredPercentiles[i], percentileValues[i]);
         }
         return values;
     }
@@ -224,6 +283,53 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
         }
     }
 
+    @Override
+    public void recordLongs(long[] values) {
+        if (values.length == 0) {
+            return;
+        }
+        rotate();
+        try {
+            recordLongs(ringBuffer, values);
+        } catch (IndexOutOfBoundsException ignored) {
+            // the value is so large (or small) that the dynamic range of the histogram cannot be extended to include it
+        } finally {
+            accumulatedHistogramStale = true;
+        }
+    }
+
+    @Override
+    public void recordDoubles(double[] values) {
+        if (values.length == 0) {
+            return;
+        }
+        rotate();
+        try {
+            recordDoubles(ringBuffer, values);
+        } catch (IndexOutOfBoundsException ignored) {
+            // the value is so large (or small) that the dynamic range of the histogram cannot be extended to include it
+        } finally {
+            accumulatedHistogramStale = true;
+        }
+    }
+
+    @Override
+    public void recordLongsWithStride(long first, long stride, long count) {
+        if (count <= 0) {
+            return;
+        }
+        rotate();
+        try {
+            for (T bucket : ringBuffer) {
+                recordLongsWithStride(bucket, first, stride, count);
+            }
+        } catch (IndexOutOfBoundsException ignored) {
+            // the value is so large (or small) that the dynamic range of the histogram cannot be extended to include it
+        } finally {
+            accumulatedHistogramStale = true;
+        }
+    }
+
     public void recordDouble(double value) {
         rotate();
         try {
@@ -0,0 +1,333 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.annotation.Incubating;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A cumulative histogram for non-negative values whose bucket boundaries are powers of
+ * {@code 2^(2^-schema)}, so that bucket {@code i} covers the range {@code (base^(i-1), base^i]}. This is the
+ * bucket layout of Prometheus' native histograms and OpenTelemetry's exponential histograms.
+ * <p>
+ * Only the range of buckets between the smallest and largest observed sample is allocated. When that range
+ * would exceed the maximum number of buckets, the schema is decreased, merging every two neighboring buckets
+ * into one, until it fits again or the schema reaches {@link #MIN_SCHEMA}. Values less than or equal to the
+ * zero threshold are counted separately.
+ *
+ * @since 1.5.0
+ */
+@Incubating(since = "1.5.0")
+public class Base2ExponentialHistogram implements Histogram {
+    public static final int MIN_SCHEMA = -4;
+    public static final int MAX_SCHEMA = 8;
+
+    private static final double LN_2 = Math.log(2);
+    private static final int INITIAL_BUCKETS = 8;
+
+    private final double zeroThreshold;
+    private final int maxBuckets;
+
+    // Guarded by this
+    private int schema;
+    private long[] counts = new long[0];
+
+    /**
+     * The bucket index corresponding to {@code counts[0]}.
+     */
+    private int offset;
+
+    // The range of indices of non-empty buckets
+    private int minIndex = Integer.MAX_VALUE;
+    private int maxIndex = Integer.MIN_VALUE;
+
+    private long zeroCount;
+
+    /**
+     * @param schema        The initial resolution. Buckets grow by a factor of {@code 2^(2^-schema)}, e.g. schema
+     *                      {@code 3} yields 8 buckets per power of 2, each about 9% wider than the previous one.
+     * @param maxBuckets    The maximum number of buckets, beyond which the resolution is decreased.
+     * @param zeroThreshold Values less than or equal to this threshold are counted in the zero bucket.
+     */
+    public Base2ExponentialHistogram(int schema, int maxBuckets, double zeroThreshold) {
+        if (schema < MIN_SCHEMA || schema > MAX_SCHEMA) {
+            throw new IllegalArgumentException("schema must be between " + MIN_SCHEMA + " and " + MAX_SCHEMA);
+        }
+        if (maxBuckets < 1) {
+            throw new IllegalArgumentException("maxBuckets must be greater than 0");
+        }
+        if (!(zeroThreshold >= 0)) {
+            throw new IllegalArgumentException("zeroThreshold must not be negative");
+        }
+        this.schema = schema;
+        this.maxBuckets = maxBuckets;
+        this.zeroThreshold = zeroThreshold;
+    }
+
+    /**
+     * @param value  A positive value.
+     * @param schema The resolution of the buckets.
+     * @return The index of the bucket the value falls into.
+     */
+    static int index(double value, int schema) {
+        // subnormal values are indistinguishable from the smallest normal value at any supported schema
+        int exponent = Math.getExponent(Math.max(value, Double.MIN_NORMAL));
+        double mantissa = Math.scalb(Math.max(value, Double.MIN_NORMAL), -exponent);
+
+        if (schema > 0) {
+            int base = exponent << schema;
+            return mantissa == 1 ? base : base + (int) Math.ceil(Math.log(mantissa) / LN_2 * (1 << schema));
+        }
+
+        // each bucket spans 2^-schema powers of 2
+        return mantissa == 1 ? -((-exponent) >> -schema) : (exponent >> -schema) + 1;
+    }
+
+    /**
+     * @param index  A bucket index.
+     * @param schema The resolution of the buckets.
+     * @return The inclusive upper boundary of the bucket.
+     */
+    static double upperBound(int index, int schema) {
+        return Math.pow(2, Math.scalb((double) index, -schema));
+    }
+
+    @Override
+    public void recordLong(long value) {
+        recordDouble(value);
+    }
+
+    @Override
+    public synchronized void recordDouble(double value) {
+        if (!(value >= 0)) {
+            return;
+        }
+        if (value <= zeroThreshold) {
+            zeroCount++;
+            return;
+        }
+
+        int index = index(value, schema);
+        int low = Math.min(minIndex, index);
+        int high = Math.max(maxIndex, index);
+
+        int scaleDown = 0;
+        while ((long) high - low + 1 > maxBuckets && schema - scaleDown > MIN_SCHEMA) {
+            low = (low + 1) >> 1;
+            high = (high + 1) >> 1;
+            scaleDown++;
+        }
+        if (scaleDown > 0) {
+            scaleDown(scaleDown);
+            index = index(value, schema);
+        }
+
+        ensureCapacity(index);
+        counts[index - offset]++;
+        minIndex = Math.min(minIndex, index);
+        maxIndex = Math.max(maxIndex, index);
+    }
+
+    /**
+     * Merge every {@code 2^by} neighboring buckets into one.
+     */
+    private void scaleDown(int by) {
+        schema -= by;
+        if (minIndex > maxIndex) {
+            return;
+        }
+
+        int newMinIndex = ceilShift(minIndex, by);
+        int newMaxIndex = ceilShift(maxIndex, by);
+        long[] newCounts = new long[counts.length];
+        for (int i = minIndex; i <= maxIndex; i++) {
+            newCounts[ceilShift(i, by) - newMinIndex] += counts[i - offset];
+        }
+
+        counts = newCounts;
+        offset = newMinIndex;
+        minIndex = newMinIndex;
+        maxIndex = newMaxIndex;
+    }
+
+    private static int ceilShift(int index, int by) {
+        return (int) (((long) index + (1L << by) - 1) >> by);
+    }
+
+    private void ensureCapacity(int index) {
+        if (index >= offset && index < offset + counts.length) {
+            return;
+        }
+
+        if (counts.length == 0) {
+            counts = new long[Math.min(maxBuckets, INITIAL_BUCKETS)];
+            offset = index - counts.length / 2;
+            return;
+        }
+
+        int low = Math.min(minIndex, index);
+        int high = Math.max(maxIndex, index);
+        // only exceeds the maximum number of buckets if the resolution cannot be decreased any further
+        int length = Math.max(high - low + 1, Math.min(maxBuckets, 2 * counts.length));
+
+        // leave room to grow in the direction we are growing in
+        int newOffset = index < offset ? high - length + 1 : low;
+        long[] newCounts = new long[length];
+        if (minIndex <= maxIndex) {
+            System.arraycopy(counts, minIndex - offset, newCounts, minIndex - newOffset, maxIndex - minIndex + 1);
+        }
+        counts = newCounts;
+        offset = newOffset;
+    }
+
+    /**
+     * @return The populated buckets, as a copy that is not affected by subsequent samples.
+     */
+    public synchronized Buckets buckets() {
+        long[] populated = minIndex > maxIndex ? new long[0] :
+                Arrays.copyOfRange(counts, minIndex - offset, maxIndex - offset + 1);
+        return new Buckets(schema, zeroThreshold, zeroCount, minIndex > maxIndex ? 0 : minIndex, populated);
+    }
+
+    /**
+     * Histogram counts are reported cumulatively at the upper boundary of every populated bucket.
+     */
+    @Override
+    public HistogramSnapshot takeSnapshot(long count, double total, double max) {
+        return new HistogramSnapshot(count, total, max, null, buckets().cumulativeCounts(), this::outputSummary);
+    }
+
+    private void outputSummary(PrintStream printStream, double bucketScaling) {
+        printStream.format("%14s %10s\n\n", "Bucket", "TotalCount");
+
+        for (CountAtBucket bucket : buckets().cumulativeCounts()) {
+            printStream.format(Locale.US, "%14.1f %10d\n", bucket.bucket() / bucketScaling, (long) bucket.count());
+        }
+
+        printStream.write('\n');
+    }
+
+    /**
+     * The buckets of an exponential histogram at a point in time.
+     */
+    public static class Buckets {
+        private final int schema;
+        private final double zeroThreshold;
+        private final long zeroCount;
+        private final int firstIndex;
+        private final long[] counts;
+
+        Buckets(int schema, double zeroThreshold, long zeroCount, int firstIndex, long[] counts) {
+            this.schema = schema;
+            this.zeroThreshold = zeroThreshold;
+            this.zeroCount = zeroCount;
+            this.firstIndex = firstIndex;
+            this.counts = counts;
+        }
+
+        /**
+         * @return The resolution of the buckets, which may be lower than the initial schema of the histogram.
+         */
+        public int schema() {
+            return schema;
+        }
+
+        public double zeroThreshold() {
+            return zeroThreshold;
+        }
+
+        public long zeroCount() {
+            return zeroCount;
+        }
+
+        /**
+         * @return The index of the bucket that {@code count(0)} refers to.
+         */
+        public int firstIndex() {
+            return firstIndex;
+        }
+
+        /**
+         * @return The number of buckets from the first to the last populated one.
+         */
+        public int length() {
+            return counts.length;
+        }
+
+        /**
+         * @param i A position between 0 and {@link #length()}.
+         * @return The (non-cumulative) count of the bucket with index {@code firstIndex() + i}.
+         */
+        public long count(int i) {
+            return counts[i];
+        }
+
+        /**
+         * @param i A position between 0 and {@link #length()}.
+         * @return The inclusive upper boundary of the bucket with index {@code firstIndex() + i}.
+         */
+        public double upperBound(int i) {
+            return Base2ExponentialHistogram.upperBound(firstIndex + i, schema);
+        }
+
+        /**
+         * Cumulative counts at fixed boundaries, for monitoring systems that only understand classic buckets. Unlike
+         * the buckets themselves, these boundaries don't change as samples are recorded or as the schema is lowered.
+         * A bucket is counted at the first boundary at or above its upper bound, so the counts are exact at
+         * boundaries that are also bucket boundaries and otherwise lag by the bucket that straddles the boundary.
+         *
+         * @param boundaries Ascending inclusive upper boundaries, in the base unit of the histogram.
+         * @return The cumulative count at each of the boundaries.
+         */
+        public CountAtBucket[] cumulativeCountsAt(double[] boundaries) {
+            CountAtBucket[] cumulative = new CountAtBucket[boundaries.length];
+            long count = 0;
+            boolean zeroCounted = false;
+            int i = 0;
+            for (int b = 0; b < boundaries.length; b++) {
+                if (!zeroCounted && zeroThreshold <= boundaries[b]) {
+                    count += zeroCount;
+                    zeroCounted = true;
+                }
+                for (; i < counts.length && upperBound(i) <= boundaries[b]; i++) {
+                    count += counts[i];
+                }
+                cumulative[b] = new CountAtBucket(boundaries[b], count);
+            }
+            return cumulative;
+        }
+
+        CountAtBucket[] cumulativeCounts() {
+            List<CountAtBucket> cumulative = new ArrayList<>();
+            long count = zeroCount;
+            if (zeroCount > 0) {
+                cumulative.add(new CountAtBucket(zeroThreshold, count));
+            }
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    count += counts[i];
+                    cumulative.add(new CountAtBucket(upperBound(i), count));
+                }
+            }
+            return cumulative.toArray(new CountAtBucket[0]);
+        }
+    }
+}
@@ -54,6 +54,9 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
     @Nullable
     private Integer percentilePrecision;
 
+    @Nullable
+    private Double percentileRelativeAccuracy;
+
     @Nullable
     private double[] sla;
 
@@ -69,6 +72,9 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
     @Nullable
     private Integer bufferLength;
 
+    @Nullable
+    private Integer recordingBatchSize;
+
     public static Builder builder() {
         return new Builder();
     }
@@ -87,10 +93,12 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
                 .percentiles(this.percentiles == null ? parent.percentiles : this.percentiles)
                 .sla(this.sla == null ? parent.sla : this.sla)
                 .percentilePrecision(this.percentilePrecision == null ? parent.percentilePrecision : this.percentilePrecision)
+                .percentileRelativeAccuracy(this.percentileRelativeAccuracy == null ? parent.percentileRelativeAccuracy : this.percentileRelativeAccuracy)
                 .minimumExpectedValue(this.minimumExpectedValue == null ? parent.minimumExpectedValue : this.minimumExpectedValue)
                 .maximumExpectedValue(this.maximumExpectedValue == null ? parent.maximumExpectedValue : this.maximumExpectedValue)
                 .expiry(this.expiry == null ? parent.expiry : this.expiry)
                 .bufferLength(this.bufferLength == null ? parent.bufferLength : this.bufferLength)
+                .recordingBatchSize(this.recordingBatchSize == null ? parent.recordingBatchSize : this.recordingBatchSize)
                 .build();
     }
 
@@ -152,6 +160,20 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
         return percentilePrecision;
     }
 
+    /**
+     * When set, percentiles are computed from a mergeable sketch that guarantees this relative error on every
+     * percentile, instead of from a dynamic range histogram. The sketch only allocates memory for the range
+     * of values actually observed, so it is usually much smaller. {@link #getPercentilePrecision()} is ignored
+     * when this is set.
+     *
+     * @return The relative error to guarantee on computed percentiles, e.g. {@code 0.01} for 1%.
+     * @since 1.5.0
+     */
+    @Nullable
+    public Double getPercentileRelativeAccuracy() {
+        return percentileRelativeAccuracy;
+    }
+
     /**
      * The minimum value that the meter is expected to observe. Sets a lower bound
      * on histogram buckets that are shipped to monitoring systems that support aggregable percentile approximations.
@@ -200,6 +222,21 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
         return bufferLength;
     }
 
+    /**
+     * When set, each thread recording to a timer appends samples to a buffer of its own, which is only drained into
+     * the timer's histogram and aggregates when it fills up or when a snapshot is taken. This makes recording
+     * to very hot timers much cheaper, at the expense of count, total and max lagging behind by up to this many
+     * samples per thread between snapshots. Only applies to timers.
+     *
+     * @return The number of samples each thread buffers before they are recorded, or {@code null} to record
+     * every sample immediately.
+     * @since 1.5.0
+     */
+    @Nullable
+    public Integer getRecordingBatchSize() {
+        return recordingBatchSize;
+    }
+
     /**
      * Publish at a minimum a histogram containing your defined SLA boundaries. When used in conjunction with
      * {@link #percentileHistogram}, the boundaries defined here are included alongside other buckets used to
@@ -248,6 +285,23 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
             return this;
         }
 
+        /**
+         * When set, percentiles are computed from a mergeable sketch that guarantees this relative error on every
+         * percentile, instead of from a dynamic range histogram. The sketch only allocates memory for the range
+         * of values actually observed, so it is usually much smaller. The percentile precision is ignored
+         * when this is set.
+         *
+         * @param relativeAccuracy The relative error to guarantee on computed percentiles, e.g. {@code 0.01} for 1%.
+         *                         Must be at least {@code 0.0001}. The guarantee holds for values within a factor of
+         *                         10^14 of the largest value recorded, e.g. from 1ns to more than a day.
+         * @return This builder.
+         * @since 1.5.0
+         */
+        public Builder percentileRelativeAccuracy(@Nullable Double relativeAccuracy) {
+            config.percentileRelativeAccuracy = relativeAccuracy;
+            return this;
+        }
+
         /**
          * Publish at a minimum a histogram containing your defined SLA boundaries. When used in conjunction with
          * {@link #percentileHistogram}, the boundaries defined here are included alongside other buckets used to
@@ -356,6 +410,21 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
             return this;
         }
 
+        /**
+         * When set, each thread recording to a timer appends samples to a buffer of its own, which is only drained
+         * into the timer's histogram and aggregates when it fills up or when a snapshot is taken. This makes
+         * recording to very hot timers much cheaper, at the expense of count, total and max lagging behind by up
+         * to this many samples per thread between snapshots. Only applies to timers.
+         *
+         * @param recordingBatchSize The number of samples each thread buffers before they are recorded.
+         * @return This builder.
+         * @since 1.5.0
+         */
+        public Builder recordingBatchSize(@Nullable Integer recordingBatchSize) {
+            config.recordingBatchSize = recordingBatchSize;
+            return this;
+        }
+
         /**
          * @return A new immutable distribution configuration.
          */
@@ -54,6 +54,11 @@ public class FixedBoundaryVictoriaMetricsHistogram implements Histogram {
     private static final String[] VMRANGES;
     private static final Double[] UPPER_BOUNDS;
 
+    // Powers of 10 from 10^E10MIN to 10^E10MAX, to find the decimal exponent of a sample without a logarithm.
+    private static final double[] POWERS_OF_10;
+
+    private static final double LOG10_2 = Math.log10(2);
+
     static {
         VMRANGES = new String[3 + BUCKETS_COUNT * BUCKET_SIZE];
         VMRANGES[0] = "0...0";
@@ -65,6 +70,11 @@ public class FixedBoundaryVictoriaMetricsHistogram implements Histogram {
         UPPER_BOUNDS[1] = BigDecimal.TEN.pow(E10MIN, MathContext.DECIMAL128).doubleValue();
         UPPER_BOUNDS[2] = Double.POSITIVE_INFINITY;
 
+        POWERS_OF_10 = new double[BUCKETS_COUNT + 1];
+        for (int i = 0; i < POWERS_OF_10.length; i++) {
+            POWERS_OF_10[i] = Math.pow(10, E10MIN + i);
+        }
+
         int idx = 3;
         String start = String.format("%.1fe%d", 1.0, E10MIN);
 
@@ -113,46 +123,50 @@ public class FixedBoundaryVictoriaMetricsHistogram implements Histogram {
     @Override
     public void recordDouble(double value) {
         if (Double.isNaN(value) || value < 0) return;
-        IdxOffset inxs = getBucketIdxAndOffset(value);
+        int rangeIdx = getRangeIndex(value);
         sum.add(value);
-        if (inxs.bucketIdx < 0) {
-            if (inxs.offset == 0) zeros.incrementAndGet();
-            else if (inxs.offset == 1) lower.incrementAndGet();
+        if (rangeIdx < 3) {
+            if (rangeIdx == 0) zeros.incrementAndGet();
+            else if (rangeIdx == 1) lower.incrementAndGet();
             else upper.incrementAndGet();
             return;
         }
-        AtomicLongArray hb = values.get(inxs.bucketIdx);
+        int bucketIdx = (rangeIdx - 3) / BUCKET_SIZE;
+        AtomicLongArray hb = values.get(bucketIdx);
         if (hb == null) {
             hb = new AtomicLongArray(BUCKET_SIZE);
-            if (!values.compareAndSet(inxs.bucketIdx, null, hb))
-                hb = values.get(inxs.bucketIdx);
+            if (!values.compareAndSet(bucketIdx, null, hb))
+                hb = values.get(bucketIdx);
         }
 
-        hb.incrementAndGet(inxs.offset);
+        hb.incrementAndGet((rangeIdx - 3) % BUCKET_SIZE);
     }
 
-    private static IdxOffset getBucketIdxAndOffset(double value) {
+    /**
+     * @return The index into {@link #VMRANGES} of the range a value falls into.
+     */
+    private static int getRangeIndex(double value) {
         if (value < 0)
             throw new RuntimeException(String.format("BUG: v must be positive; got %f", value));
         if (value == 0)
-            return ZERO;
+            return getRangeIndex(ZERO.bucketIdx, ZERO.offset);
         if (Double.POSITIVE_INFINITY == value)
-            return UPPER;
+            return getRangeIndex(UPPER.bucketIdx, UPPER.offset);
 
-        int e10 = (int) Math.floor(Math.log10(value));
+        int e10 = floorLog10(value);
         int bucketIdx = e10 - E10MIN;
         if (bucketIdx < 0)
-            return LOWER;
+            return getRangeIndex(LOWER.bucketIdx, LOWER.offset);
 
         if (bucketIdx >= BUCKETS_COUNT) {
             if ((bucketIdx == BUCKETS_COUNT) && (Math.abs(Math.pow(10, e10) - value) < DECIMAL_PRECISION)) {
                 // Adjust m to be on par with Prometheus 'le' buckets (aka 'less or equal')
-                return new IdxOffset(BUCKETS_COUNT - 1, BUCKET_SIZE - 1);
+                return getRangeIndex(BUCKETS_COUNT - 1, BUCKET_SIZE - 1);
             }
-            return UPPER;
+            return getRangeIndex(UPPER.bucketIdx, UPPER.offset);
         }
 
-        double m = ((value / Math.pow(10, e10)) - 1) * DECIMAL_MULTIPLIER;
+        double m = ((value / POWERS_OF_10[bucketIdx]) - 1) * DECIMAL_MULTIPLIER;
         int offset = (int) m;
         if (offset < 0)
             offset = 0;
@@ -166,11 +180,24 @@ public class FixedBoundaryVictoriaMetricsHistogram implements Histogram {
                 bucketIdx--;
                 offset = BUCKET_SIZE - 1;
                 if (bucketIdx < 0)
-                    return LOWER;
+                    return getRangeIndex(LOWER.bucketIdx, LOWER.offset);
             }
         }
 
-        return new IdxOffset(bucketIdx, offset);
+        return getRangeIndex(bucketIdx, offset);
+    }
+
+    /**
+     * The binary exponent of a positive value bounds its decimal exponent to one of two neighboring integers,
+     * so the decimal exponent can be found with a single comparison against a power of 10.
+     */
+    private static int floorLog10(double value) {
+        int e10 = (int) Math.floor(Math.getExponent(value) * LOG10_2);
+        int next = e10 + 1 - E10MIN;
+        if (next < 0 || next >= POWERS_OF_10.length) {
+            return (int) Math.floor(Math.log10(value));
+        }
+        return value >= POWERS_OF_10[next] ? e10 + 1 : e10;
     }
 
     private static int getRangeIndex(int index, int offset) {
@@ -183,8 +210,7 @@ public class FixedBoundaryVictoriaMetricsHistogram implements Histogram {
     }
 
     public static String getRangeTagValue(double value) {
-        IdxOffset idxOffset = getBucketIdxAndOffset(value);
-        return VMRANGES[getRangeIndex(idxOffset.bucketIdx, idxOffset.offset)];
+        return VMRANGES[getRangeIndex(value)];
     }
 
     private List<CountAtBucket> nonZeroBuckets() {
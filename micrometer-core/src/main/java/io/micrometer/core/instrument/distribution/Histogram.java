@@ -15,6 +15,7 @@
  */
 package io.micrometer.core.instrument.distribution;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Timer;
 
@@ -30,6 +31,51 @@ public interface Histogram extends AutoCloseable {
 
     void recordDouble(double value);
 
+    /**
+     * Record all of the values at once. Implementations may count them without repeating the work that is the
+     * same for every value.
+     *
+     * @param values The values to record.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    default void recordLongs(long[] values) {
+        for (long value : values) {
+            recordLong(value);
+        }
+    }
+
+    /**
+     * Record all of the values at once. Implementations may count them without repeating the work that is the
+     * same for every value.
+     *
+     * @param values The values to record.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    default void recordDoubles(double[] values) {
+        for (double value : values) {
+            recordDouble(value);
+        }
+    }
+
+    /**
+     * Record the evenly spaced values {@code first}, {@code first + stride}, ..., {@code first + (count - 1) * stride},
+     * for example the samples that were presumably missed during a pause of the recording application.
+     * Implementations may count them without iterating over every value.
+     *
+     * @param first  The smallest value.
+     * @param stride The non-negative distance between consecutive values.
+     * @param count  The number of values to record.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    default void recordLongsWithStride(long first, long stride, long count) {
+        for (long i = 0; i < count; i++) {
+            recordLong(first + i * stride);
+        }
+    }
+
     HistogramSnapshot takeSnapshot(long count, double total, double max);
 
     @Override
@@ -19,19 +19,19 @@ import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.util.DoubleFormat;
 
-import java.util.concurrent.CountDownLatch;
 import java.util.function.Function;
 import java.util.function.ToDoubleFunction;
 
 @Incubating(since = "1.0.3")
 public class HistogramGauges {
-    // How many gauges have been polled so far on this publish cycle
-    volatile CountDownLatch polledGaugesLatch;
-
-    private volatile HistogramSnapshot snapshot;
-
     private final HistogramSupport meter;
-    private final int totalGauges;
+
+    // Every gauge is polled once per publish. A publish epoch ends as soon as any gauge is polled for a second
+    // time, regardless of the order in which the gauges are polled, and all gauges polled during an epoch read
+    // the same snapshot. Guarded by this.
+    private long epoch;
+    private final long[] lastPolledEpochByGauge;
+    private HistogramSnapshot snapshot;
 
     /**
      * Register a set of gauges for percentiles and histogram buckets that follow a common format when
@@ -88,20 +88,14 @@ public class HistogramGauges {
         ValueAtPercentile[] valueAtPercentiles = initialSnapshot.percentileValues();
         CountAtBucket[] countAtBuckets = initialSnapshot.histogramCounts();
 
-        this.totalGauges = valueAtPercentiles.length + countAtBuckets.length;
-
-        // set to zero initially, so the first polling of one of the gauges on each publish cycle results in a
-        // new snapshot
-        this.polledGaugesLatch = new CountDownLatch(0);
+        // all gauges start out as polled in the current epoch, so the first poll of any of them takes a new snapshot
+        this.lastPolledEpochByGauge = new long[valueAtPercentiles.length + countAtBuckets.length];
 
         for (int i = 0; i < valueAtPercentiles.length; i++) {
             final int index = i;
 
-            ToDoubleFunction<HistogramSupport> percentileValueFunction = m -> {
-                snapshotIfNecessary();
-                polledGaugesLatch.countDown();
-                return percentileValue.apply(snapshot.percentileValues()[index]);
-            };
+            ToDoubleFunction<HistogramSupport> percentileValueFunction = m ->
+                    percentileValue.apply(poll(index).percentileValues()[index]);
 
             Gauge.builder(percentileName.apply(valueAtPercentiles[i]), meter, percentileValueFunction)
                     .tags(percentileTags.apply(valueAtPercentiles[i]))
@@ -112,12 +106,9 @@ public class HistogramGauges {
 
         for (int i = 0; i < countAtBuckets.length; i++) {
             final int index = i;
+            final int gauge = valueAtPercentiles.length + i;
 
-            ToDoubleFunction<HistogramSupport> bucketCountFunction = m -> {
-                snapshotIfNecessary();
-                polledGaugesLatch.countDown();
-                return snapshot.histogramCounts()[index].count();
-            };
+            ToDoubleFunction<HistogramSupport> bucketCountFunction = m -> poll(gauge).histogramCounts()[index].count();
 
             Gauge.builder(bucketName.apply(countAtBuckets[i]), meter, bucketCountFunction)
                     .tags(bucketTags.apply(countAtBuckets[i]))
@@ -126,10 +117,17 @@ public class HistogramGauges {
         }
     }
 
-    private void snapshotIfNecessary() {
-        if (polledGaugesLatch.getCount() == 0) {
+    /**
+     * @param gauge The index of the gauge being polled.
+     * @return The snapshot of the current publish epoch, which begins with a new snapshot if the gauge has
+     * already been polled in the previous one.
+     */
+    private synchronized HistogramSnapshot poll(int gauge) {
+        if (lastPolledEpochByGauge[gauge] == epoch) {
             snapshot = meter.takeSnapshot();
-            polledGaugesLatch = new CountDownLatch(totalGauges);
+            epoch++;
         }
+        lastPolledEpochByGauge[gauge] = epoch;
+        return snapshot;
     }
 }
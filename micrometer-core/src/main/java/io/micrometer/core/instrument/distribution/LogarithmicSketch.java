@@ -0,0 +1,331 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.annotation.Incubating;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable quantile sketch with relative error guarantees, in the style of
+ * <a href="https://arxiv.org/abs/1908.10693">DDSketch</a>. Non-negative samples are counted in buckets whose
+ * boundaries grow geometrically by a factor of {@code gamma}, so that bucket {@code i} covers the range
+ * {@code (gamma^(i-1), gamma^i]}. Any quantile is then known to within a relative error of
+ * {@code (gamma - 1) / (gamma + 1)}.
+ * <p>
+ * Only the range of buckets between the smallest and largest observed sample is allocated, and it grows
+ * on demand. Two sketches with the same {@code gamma} can be merged without any loss of accuracy, which makes
+ * the sketch suitable for shipping to monitoring systems that aggregate distributions across instances.
+ *
+ * @since 1.5.0
+ */
+@Incubating(since = "1.5.0")
+public class LogarithmicSketch {
+    private static final int INITIAL_BUCKETS = 32;
+
+    private final double gamma;
+    private final double logGamma;
+    private final double minIndexableValue;
+    private final int maxBuckets;
+
+    private long[] counts = new long[0];
+
+    /**
+     * The bucket index corresponding to {@code counts[0]}.
+     */
+    private int offset;
+
+    private long zeroCount;
+    private long count;
+
+    /**
+     * @param gamma      The ratio between the upper boundaries of consecutive buckets. Must be greater than 1.
+     * @param maxBuckets The maximum number of buckets to allocate. When exceeded, the lowest buckets are collapsed
+     *                   into one, sacrificing accuracy of the lowest quantiles first.
+     */
+    public LogarithmicSketch(double gamma, int maxBuckets) {
+        if (!(gamma > 1)) {
+            throw new IllegalArgumentException("gamma must be greater than 1");
+        }
+        if (maxBuckets < 2) {
+            throw new IllegalArgumentException("maxBuckets must be at least 2");
+        }
+        this.gamma = gamma;
+        this.logGamma = Math.log(gamma);
+        this.minIndexableValue = Math.max(Math.exp((Integer.MIN_VALUE + 1) * logGamma), Double.MIN_NORMAL * gamma);
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * @param relativeAccuracy The relative error to guarantee on any quantile, e.g. {@code 0.01} for 1%.
+     * @param maxBuckets       The maximum number of buckets to allocate.
+     * @return A new, empty sketch.
+     */
+    public static LogarithmicSketch withRelativeAccuracy(double relativeAccuracy, int maxBuckets) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("relativeAccuracy must be between 0 and 1 (exclusive)");
+        }
+        return new LogarithmicSketch((1 + relativeAccuracy) / (1 - relativeAccuracy), maxBuckets);
+    }
+
+    public double gamma() {
+        return gamma;
+    }
+
+    /**
+     * @param value A sample value.
+     * @return The index of the bucket the value is counted in.
+     */
+    public int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    /**
+     * @param index A bucket index.
+     * @return The inclusive upper boundary of the bucket.
+     */
+    public double upperBound(int index) {
+        return Math.pow(gamma, index);
+    }
+
+    /**
+     * @param index A bucket index.
+     * @return The value within the bucket that minimizes the relative error to any sample in the bucket.
+     */
+    public double representativeValue(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    public synchronized void record(double value) {
+        record(value, 1);
+    }
+
+    /**
+     * Count a sample value more than once.
+     *
+     * @param value      A sample value. Negative values and {@code NaN} are ignored.
+     * @param occurrences The number of times the value was observed.
+     */
+    public synchronized void record(double value, long occurrences) {
+        if (!(value >= 0) || occurrences <= 0) {
+            return;
+        }
+
+        count += occurrences;
+        if (value < minIndexableValue) {
+            zeroCount += occurrences;
+            return;
+        }
+
+        int index = index(value);
+        ensureCapacity(index, index);
+        counts[Math.max(index, offset) - offset] += occurrences;
+    }
+
+    /**
+     * Grow the allocated range of buckets to include {@code [minIndex, maxIndex]}, or as much of it as
+     * {@link #maxBuckets} allows, collapsing the lowest buckets if necessary.
+     */
+    private void ensureCapacity(int minIndex, int maxIndex) {
+        if (counts.length == 0) {
+            int length = Math.min(maxBuckets, Math.max(INITIAL_BUCKETS, maxIndex - minIndex + 1));
+            counts = new long[length];
+            offset = Math.max(minIndex, maxIndex - length + 1);
+            return;
+        }
+
+        int lowest = Math.min(minIndex, offset);
+        int highest = Math.max(maxIndex, offset + counts.length - 1);
+        if ((long) highest - lowest + 1 > maxBuckets) {
+            lowest = highest - maxBuckets + 1;
+        }
+        if (lowest == offset && highest == offset + counts.length - 1) {
+            return;
+        }
+
+        int required = highest - lowest + 1;
+        int length = (int) Math.min(maxBuckets, Math.max(required, 2L * counts.length));
+
+        // leave room to grow in the direction we are growing in
+        int newOffset = minIndex < offset ? highest - length + 1 : lowest;
+        long[] newCounts = new long[length];
+        for (int i = 0; i < counts.length; i++) {
+            int target = Math.max(offset + i, newOffset) - newOffset;
+            newCounts[target] += counts[i];
+        }
+        counts = newCounts;
+        offset = newOffset;
+    }
+
+    /**
+     * Add the samples of another sketch to this one.
+     *
+     * @param other A sketch with the same {@code gamma}.
+     */
+    public void merge(LogarithmicSketch other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a sketch into itself");
+        }
+        if (Double.compare(gamma, other.gamma) != 0) {
+            throw new IllegalArgumentException("Cannot merge sketches with different gamma (" + gamma +
+                    " and " + other.gamma + ")");
+        }
+
+        long[] otherCounts;
+        int otherOffset;
+        long otherZeroCount;
+        long otherCount;
+        synchronized (other) {
+            otherCounts = other.counts.clone();
+            otherOffset = other.offset;
+            otherZeroCount = other.zeroCount;
+            otherCount = other.count;
+        }
+
+        synchronized (this) {
+            count += otherCount;
+            zeroCount += otherZeroCount;
+
+            int first = -1;
+            int last = -1;
+            for (int i = 0; i < otherCounts.length; i++) {
+                if (otherCounts[i] != 0) {
+                    if (first == -1) {
+                        first = i;
+                    }
+                    last = i;
+                }
+            }
+            if (first == -1) {
+                return;
+            }
+
+            ensureCapacity(otherOffset + first, otherOffset + last);
+            for (int i = first; i <= last; i++) {
+                counts[Math.max(otherOffset + i, offset) - offset] += otherCounts[i];
+            }
+        }
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        zeroCount = 0;
+        count = 0;
+    }
+
+    /**
+     * @return The total number of samples in the sketch.
+     */
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * @return The number of samples that were too small to be indexed, including zeros.
+     */
+    public synchronized long zeroCount() {
+        return zeroCount;
+    }
+
+    /**
+     * @param quantile A quantile between 0 and 1.
+     * @return An approximation of the value at the quantile, or 0 if the sketch is empty.
+     */
+    public synchronized double valueAtQuantile(double quantile) {
+        return valuesAtQuantiles(new double[]{quantile})[0];
+    }
+
+    /**
+     * Compute several quantiles in a single pass over the buckets.
+     *
+     * @param quantiles Quantiles between 0 and 1, in any order.
+     * @return Approximations of the values at each of the quantiles, in the same order.
+     */
+    public synchronized double[] valuesAtQuantiles(double[] quantiles) {
+        double[] values = new double[quantiles.length];
+        if (count == 0) {
+            return values;
+        }
+
+        Integer[] order = new Integer[quantiles.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(quantiles[a], quantiles[b]));
+
+        int next = 0;
+        long seen = zeroCount;
+        while (next < order.length && rank(quantiles[order[next]]) < seen) {
+            values[order[next++]] = 0;
+        }
+        for (int i = 0; i < counts.length && next < order.length; i++) {
+            seen += counts[i];
+            while (next < order.length && rank(quantiles[order[next]]) < seen) {
+                values[order[next++]] = representativeValue(offset + i);
+            }
+        }
+        while (next < order.length) {
+            values[order[next++]] = counts.length == 0 ? 0 : representativeValue(offset + counts.length - 1);
+        }
+        return values;
+    }
+
+    private double rank(double quantile) {
+        return Math.max(0, Math.min(1, quantile)) * (count - 1);
+    }
+
+    /**
+     * @param value A value.
+     * @return The number of samples in buckets whose upper boundary is less than or equal to the value.
+     */
+    public synchronized long countAtOrBelow(double value) {
+        if (value < 0) {
+            return 0;
+        }
+        long total = zeroCount;
+        for (int i = 0; i < counts.length && upperBound(offset + i) <= value; i++) {
+            total += counts[i];
+        }
+        return total;
+    }
+
+    /**
+     * Visit every non-empty bucket in ascending order of its index.
+     *
+     * @param consumer Receives the bucket index and count.
+     */
+    public synchronized void forEachBucket(BucketConsumer consumer) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                consumer.accept(offset + i, counts[i]);
+            }
+        }
+    }
+
+    /**
+     * @return A copy of this sketch that is not affected by subsequent samples recorded to this one.
+     */
+    public LogarithmicSketch copy() {
+        LogarithmicSketch copy = new LogarithmicSketch(gamma, maxBuckets);
+        copy.merge(this);
+        return copy;
+    }
+
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(int index, long count);
+    }
+}
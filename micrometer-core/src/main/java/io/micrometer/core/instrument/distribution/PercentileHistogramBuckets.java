@@ -15,6 +15,7 @@
  */
 package io.micrometer.core.instrument.distribution;
 
+import java.util.Arrays;
 import java.util.NavigableSet;
 import java.util.TreeSet;
 
@@ -29,6 +30,18 @@ public class PercentileHistogramBuckets {
     // Bucket values to use, see static block for initialization.
     private static final NavigableSet<Double> PERCENTILE_BUCKETS;
 
+    // The same buckets in ascending order, ending with positive infinity.
+    private static final double[] PERCENTILE_BUCKET_VALUES;
+
+    // Number of bits below the highest set bit of a sample that select a cell in the index table.
+    private static final int CELL_BITS = 3;
+
+    // For each cell, the index of the first bucket greater than or equal to the smallest sample in the cell.
+    // Samples less than 2^CELL_BITS have a cell of their own. Larger samples are assigned to cells by their highest
+    // set bit and the CELL_BITS bits below it. Every cell is narrower than the distance between buckets, so the
+    // bucket of any sample is at most one bucket away from the first bucket of its cell.
+    private static final int[] CELL_INDEX = new int[64 << CELL_BITS];
+
     // The set of buckets is generated by using powers of 4 and incrementing by one-third of the
     // previous power of 4 in between as long as the value is less than the next power of 4 minus
     // the delta.
@@ -64,6 +77,23 @@ public class PercentileHistogramBuckets {
             exp += DIGITS;
         }
         PERCENTILE_BUCKETS.add(Double.POSITIVE_INFINITY);
+
+        PERCENTILE_BUCKET_VALUES = PERCENTILE_BUCKETS.stream().mapToDouble(Double::doubleValue).toArray();
+
+        for (int cell = 0; cell < 1 << CELL_BITS; cell++) {
+            CELL_INDEX[cell] = leastGreaterThanOrEqualTo(cell);
+        }
+        for (int highestBit = CELL_BITS; highestBit < 63; highestBit++) {
+            for (int bits = 0; bits < 1 << CELL_BITS; bits++) {
+                long smallestInCell = ((1L << CELL_BITS) | bits) << (highestBit - CELL_BITS);
+                CELL_INDEX[(highestBit << CELL_BITS) | bits] = leastGreaterThanOrEqualTo(smallestInCell);
+            }
+        }
+    }
+
+    private static int leastGreaterThanOrEqualTo(long value) {
+        int index = Arrays.binarySearch(PERCENTILE_BUCKET_VALUES, value);
+        return index >= 0 ? index : -index - 1;
     }
 
     /**
@@ -79,4 +109,34 @@ public class PercentileHistogramBuckets {
         return PERCENTILE_BUCKETS.subSet(distributionStatisticConfig.getMinimumExpectedValue(), true,
                 distributionStatisticConfig.getMaximumExpectedValue(), true);
     }
+
+    /**
+     * Compute the index of the least percentile bucket that is greater than or equal to a sample, without searching
+     * through the buckets.
+     *
+     * @param value A sample.
+     * @return An index into {@link #percentileBucketValues()}.
+     */
+    static int index(long value) {
+        int cell;
+        if (value < 1 << CELL_BITS) {
+            cell = (int) Math.max(value, 0);
+        } else {
+            int highestBit = 63 - Long.numberOfLeadingZeros(value);
+            cell = (highestBit << CELL_BITS) | (int) ((value >>> (highestBit - CELL_BITS)) & ((1 << CELL_BITS) - 1));
+        }
+
+        int index = CELL_INDEX[cell];
+        while (PERCENTILE_BUCKET_VALUES[index] < value) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * @return Every percentile bucket in ascending order, ending with positive infinity. Must not be modified.
+     */
+    static double[] percentileBucketValues() {
+        return PERCENTILE_BUCKET_VALUES;
+    }
 }
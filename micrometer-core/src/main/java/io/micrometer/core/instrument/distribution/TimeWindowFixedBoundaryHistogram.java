@@ -16,6 +16,7 @@
 package io.micrometer.core.instrument.distribution;
 
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.lang.Nullable;
 
 import java.io.PrintStream;
 import java.util.Arrays;
@@ -23,6 +24,7 @@ import java.util.Locale;
 import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A histogram implementation that does not support precomputed percentiles but supports
@@ -34,8 +36,29 @@ import java.util.concurrent.atomic.AtomicLongArray;
  */
 public class TimeWindowFixedBoundaryHistogram
         extends AbstractTimeWindowHistogram<TimeWindowFixedBoundaryHistogram.FixedBoundaryHistogram, Void> {
+    /**
+     * The number of buckets whose counts are allocated together.
+     */
+    private static final int CHUNK_SIZE = 8;
+
+    /**
+     * Past this many buckets between two consecutive percentile buckets, looking a sample's bucket up from its
+     * percentile bucket is no longer cheaper than a binary search.
+     */
+    private static final int MAX_BUCKETS_PER_PERCENTILE_BUCKET = 2;
+
     private final double[] buckets;
 
+    /**
+     * The index into {@link #buckets} from which to start looking for the bucket of a sample, by the index of the
+     * sample's percentile bucket relative to {@link #firstPercentileBucket}. {@code null} if buckets are found
+     * by binary search instead.
+     */
+    @Nullable
+    private final int[] searchStartByPercentileBucket;
+
+    private final int firstPercentileBucket;
+
     public TimeWindowFixedBoundaryHistogram(Clock clock, DistributionStatisticConfig config, boolean supportsAggregablePercentiles) {
         super(clock, config, FixedBoundaryHistogram.class, supportsAggregablePercentiles);
 
@@ -47,9 +70,56 @@ public class TimeWindowFixedBoundaryHistogram
         }
 
         this.buckets = histogramBuckets.stream().filter(Objects::nonNull).mapToDouble(Double::doubleValue).toArray();
+
+        double[] percentileBuckets = PercentileHistogramBuckets.percentileBucketValues();
+        this.firstPercentileBucket = buckets.length == 0 ? 0 : leastGreaterThanOrEqualTo(percentileBuckets, buckets[0]);
+        this.searchStartByPercentileBucket = percentileHistogram != null && percentileHistogram ?
+                searchStartByPercentileBucket(percentileBuckets) : null;
+
         initRingBuffer();
     }
 
+    /**
+     * Map each percentile bucket between the smallest and largest of {@link #buckets} to the first of
+     * {@link #buckets} that is greater than the preceding percentile bucket. Any sample that falls into the
+     * percentile bucket falls into that bucket or one of the few that follow it. Custom SLA boundaries can
+     * crowd several buckets between two percentile buckets, in which case we fall back to binary search.
+     */
+    @Nullable
+    private int[] searchStartByPercentileBucket(double[] percentileBuckets) {
+        if (buckets.length == 0) {
+            return null;
+        }
+
+        int lastPercentileBucket = leastGreaterThanOrEqualTo(percentileBuckets, buckets[buckets.length - 1]);
+        int[] searchStart = new int[lastPercentileBucket - firstPercentileBucket + 1];
+
+        int bucket = 0;
+        for (int i = 0; i < searchStart.length; i++) {
+            int percentileBucket = firstPercentileBucket + i;
+            if (percentileBucket > 0) {
+                while (bucket < buckets.length && buckets[bucket] <= percentileBuckets[percentileBucket - 1]) {
+                    bucket++;
+                }
+            }
+            searchStart[i] = bucket;
+
+            int bucketsInPercentileBucket = 0;
+            while (bucket + bucketsInPercentileBucket < buckets.length &&
+                    buckets[bucket + bucketsInPercentileBucket] <= percentileBuckets[percentileBucket]) {
+                if (++bucketsInPercentileBucket > MAX_BUCKETS_PER_PERCENTILE_BUCKET) {
+                    return null;
+                }
+            }
+        }
+        return searchStart;
+    }
+
+    private static int leastGreaterThanOrEqualTo(double[] sorted, double value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
     @Override
     FixedBoundaryHistogram newBucket() {
         return new FixedBoundaryHistogram();
@@ -60,6 +130,47 @@ public class TimeWindowFixedBoundaryHistogram
         bucket.record(value);
     }
 
+    /**
+     * Every bucket of the ring buffer has the same boundaries, so samples are counted by bucket once and the
+     * counts are then added to each bucket of the ring buffer.
+     */
+    @Override
+    void recordLongs(FixedBoundaryHistogram[] ringBuffer, long[] values) {
+        long[] counts = new long[buckets.length];
+        for (long value : values) {
+            int index = ringBuffer[0].leastLessThanOrEqualTo(value);
+            if (index > -1)
+                counts[index]++;
+        }
+        add(ringBuffer, counts);
+    }
+
+    @Override
+    void recordDoubles(FixedBoundaryHistogram[] ringBuffer, double[] values) {
+        long[] counts = new long[buckets.length];
+        for (double value : values) {
+            int index = ringBuffer[0].leastLessThanOrEqualTo((long) Math.ceil(value));
+            if (index > -1)
+                counts[index]++;
+        }
+        add(ringBuffer, counts);
+    }
+
+    private void add(FixedBoundaryHistogram[] ringBuffer, long[] counts) {
+        for (int index = 0; index < counts.length; index++) {
+            if (counts[index] > 0) {
+                for (FixedBoundaryHistogram bucket : ringBuffer) {
+                    bucket.add(index, counts[index]);
+                }
+            }
+        }
+    }
+
+    @Override
+    void recordLongsWithStride(FixedBoundaryHistogram bucket, long first, long stride, long count) {
+        bucket.recordWithStride(first, stride, count);
+    }
+
     @Override
     final void recordDouble(FixedBoundaryHistogram bucket, double value) {
         recordLong(bucket, (long) Math.ceil(value));
@@ -103,7 +214,7 @@ public class TimeWindowFixedBoundaryHistogram
         for (int i = 0; i < buckets.length; i++) {
             printStream.format(Locale.US, bucketFormatString,
                     buckets[i] / bucketScaling,
-                    currentHistogram().values.get(i));
+                    currentHistogram().count(i));
         }
 
         printStream.write('\n');
@@ -112,12 +223,15 @@ public class TimeWindowFixedBoundaryHistogram
     class FixedBoundaryHistogram {
         /**
          * For recording efficiency, this is a normal histogram. We turn these values into
-         * cumulative counts only on calls to {@link #countAtValue(long)}.
+         * cumulative counts only on calls to {@link #countAtValue(double)}.
+         * <p>
+         * Most distributions only ever hit a handful of neighboring buckets, so counts are kept in chunks
+         * of {@link #CHUNK_SIZE} buckets that are only allocated the first time one of their buckets is hit.
          */
-        final AtomicLongArray values;
+        final AtomicReferenceArray<AtomicLongArray> chunks;
 
         FixedBoundaryHistogram() {
-            this.values = new AtomicLongArray(buckets.length);
+            this.chunks = new AtomicReferenceArray<>((buckets.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
         }
 
         long countAtValue(double value) {
@@ -125,28 +239,99 @@ public class TimeWindowFixedBoundaryHistogram
             if (index < 0)
                 return 0;
             long count = 0;
-            for (int i = 0; i <= index; i++)
-                count += values.get(i);
+            for (int chunkIndex = 0; chunkIndex <= index / CHUNK_SIZE; chunkIndex++) {
+                AtomicLongArray chunk = chunks.get(chunkIndex);
+                if (chunk == null)
+                    continue;
+                int last = Math.min(CHUNK_SIZE - 1, index - chunkIndex * CHUNK_SIZE);
+                for (int i = 0; i <= last; i++)
+                    count += chunk.get(i);
+            }
             return count;
         }
 
-        void reset() {
-            for (int i = 0; i < values.length(); i++) {
-               values.set(i, 0);
+        /**
+         * @param index A bucket index.
+         * @return The (non-cumulative) count of samples in the bucket.
+         */
+        long count(int index) {
+            AtomicLongArray chunk = chunks.get(index / CHUNK_SIZE);
+            return chunk == null ? 0 : chunk.get(index % CHUNK_SIZE);
+        }
 
+        void reset() {
+            // Chunks stay allocated, since buckets that were hit once are likely to be hit again.
+            for (int chunkIndex = 0; chunkIndex < chunks.length(); chunkIndex++) {
+                AtomicLongArray chunk = chunks.get(chunkIndex);
+                if (chunk != null) {
+                    for (int i = 0; i < chunk.length(); i++) {
+                        chunk.set(i, 0);
+                    }
+                }
             }
         }
 
         void record(long value) {
             int index = leastLessThanOrEqualTo(value);
-            if (index > -1)
-                values.incrementAndGet(index);
+            if (index > -1) {
+                add(index, 1);
+            }
+        }
+
+        /**
+         * Rather than looking up the bucket of every value in the sequence, count how many of them fall below
+         * each bucket boundary, starting from the bucket of the smallest value.
+         */
+        void recordWithStride(long first, long stride, long count) {
+            int index = leastLessThanOrEqualTo(first);
+            if (index < 0)
+                return;
+            if (stride <= 0) {
+                add(index, count);
+                return;
+            }
+
+            long recorded = 0;
+            for (; index < buckets.length && recorded < count; index++) {
+                double bucket = buckets[index];
+                // the number of values in the sequence that are less than or equal to this bucket
+                long upToBucket = bucket >= Long.MAX_VALUE ? count :
+                        Math.min(count, ((long) Math.floor(bucket) - first) / stride + 1);
+                if (upToBucket > recorded) {
+                    add(index, upToBucket - recorded);
+                    recorded = upToBucket;
+                }
+            }
+        }
+
+        void add(int index, long count) {
+            int chunkIndex = index / CHUNK_SIZE;
+            AtomicLongArray chunk = chunks.get(chunkIndex);
+            if (chunk == null) {
+                chunk = new AtomicLongArray(CHUNK_SIZE);
+                if (!chunks.compareAndSet(chunkIndex, null, chunk))
+                    chunk = chunks.get(chunkIndex);
+            }
+            chunk.addAndGet(index % CHUNK_SIZE, count);
         }
 
         /**
          * The least bucket that is less than or equal to a sample.
          */
         int leastLessThanOrEqualTo(long key) {
+            if (searchStartByPercentileBucket != null) {
+                int percentileBucket = PercentileHistogramBuckets.index(key) - firstPercentileBucket;
+                if (percentileBucket < 0)
+                    return 0;
+                if (percentileBucket >= searchStartByPercentileBucket.length)
+                    return -1;
+
+                int index = searchStartByPercentileBucket[percentileBucket];
+                while (index < buckets.length && buckets[index] < key)
+                    index++;
+                return index < buckets.length ? index : -1;
+            }
+
             int low = 0;
             int high = buckets.length - 1;
 
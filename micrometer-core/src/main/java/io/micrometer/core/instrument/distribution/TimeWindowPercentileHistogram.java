@@ -17,9 +17,12 @@ package io.micrometer.core.instrument.distribution;
 
 import io.micrometer.core.instrument.Clock;
 import org.HdrHistogram.DoubleHistogram;
+import org.HdrHistogram.DoubleHistogramIterationValue;
 import org.HdrHistogram.DoubleRecorder;
 
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Comparator;
 
 /**
  * A histogram implementation that supports the computation of percentiles by Micrometer for
@@ -80,6 +83,43 @@ public class TimeWindowPercentileHistogram extends AbstractTimeWindowHistogram<D
         return accumulatedHistogram().getValueAtPercentile(percentile);
     }
 
+    /**
+     * Walks the counts of the accumulated histogram once for all percentiles, rather than once per percentile
+     * as {@link DoubleHistogram#getValueAtPercentile(double)} does, with the same result.
+     */
+    @Override
+    double[] valuesAtPercentiles(double[] percentiles) {
+        DoubleHistogram histogram = accumulatedHistogram();
+        double[] values = new double[percentiles.length];
+        long totalCount = histogram.getTotalCount();
+        if (totalCount == 0) {
+            return values;
+        }
+
+        long[] countAtPercentile = new long[percentiles.length];
+        Integer[] order = new Integer[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            // the same rounding as DoubleHistogram#getValueAtPercentile
+            double requestedPercentile = Math.min(Math.max(Math.nextAfter(percentiles[i], Double.NEGATIVE_INFINITY), 0), 100);
+            countAtPercentile[i] = Math.max(1, (long) Math.ceil(requestedPercentile * totalCount / 100));
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> countAtPercentile[i]));
+
+        int next = 0;
+        for (DoubleHistogramIterationValue value : histogram.recordedValues()) {
+            while (next < order.length && value.getTotalCountToThisValue() >= countAtPercentile[order[next]]) {
+                int i = order[next++];
+                // the lowest rather than highest equivalent value, which is simpler to leave to the histogram
+                values[i] = percentiles[i] == 0 ? histogram.getValueAtPercentile(0) : value.getValueIteratedTo();
+            }
+            if (next == order.length) {
+                break;
+            }
+        }
+        return values;
+    }
+
     @Override
     double countAtValue(double value) {
         return accumulatedHistogram().getCountBetweenValues(0, value);
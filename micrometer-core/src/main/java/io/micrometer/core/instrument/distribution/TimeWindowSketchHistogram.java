@@ -0,0 +1,142 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.config.InvalidConfigurationException;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * A histogram implementation that supports the computation of percentiles by Micrometer from a
+ * {@link LogarithmicSketch}. Compared to {@link TimeWindowPercentileHistogram}, its memory footprint only
+ * grows with the range of observed values, and the accumulated sketch can be merged with sketches from other
+ * instances.
+ *
+ * @since 1.5.0
+ */
+@Incubating(since = "1.5.0")
+public class TimeWindowSketchHistogram extends AbstractTimeWindowHistogram<LogarithmicSketch, LogarithmicSketch> {
+    /**
+     * The ratio between the largest and smallest values kept apart, e.g. 1ns to more than a day. Values further
+     * below the largest value recorded are collapsed into the lowest bucket.
+     */
+    static final double DYNAMIC_RANGE = 1e14;
+
+    /**
+     * The finest relative accuracy supported. Covering the dynamic range then takes about 160,000 buckets.
+     */
+    static final double MIN_RELATIVE_ACCURACY = 1e-4;
+
+    private final double relativeAccuracy;
+    private final int maxBuckets;
+
+    public TimeWindowSketchHistogram(Clock clock, DistributionStatisticConfig distributionStatisticConfig,
+                                     boolean supportsAggregablePercentiles) {
+        super(clock, distributionStatisticConfig, LogarithmicSketch.class, supportsAggregablePercentiles);
+
+        Double relativeAccuracy = distributionStatisticConfig.getPercentileRelativeAccuracy();
+        if (relativeAccuracy != null && relativeAccuracy < MIN_RELATIVE_ACCURACY) {
+            throw new InvalidConfigurationException("Invalid distribution configuration: percentileRelativeAccuracy (" +
+                    relativeAccuracy + ") must be at least " + MIN_RELATIVE_ACCURACY + ".");
+        }
+        this.relativeAccuracy = relativeAccuracy == null ? 0.01 : relativeAccuracy;
+        this.maxBuckets = maxBuckets(this.relativeAccuracy);
+
+        initRingBuffer();
+    }
+
+    /**
+     * @return The number of buckets that covers {@link #DYNAMIC_RANGE} with the given relative accuracy.
+     */
+    static int maxBuckets(double relativeAccuracy) {
+        double gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        return (int) Math.ceil(Math.log(DYNAMIC_RANGE) / Math.log(gamma)) + 1;
+    }
+
+    @Override
+    LogarithmicSketch newBucket() {
+        return LogarithmicSketch.withRelativeAccuracy(relativeAccuracy, maxBuckets);
+    }
+
+    @Override
+    void recordLong(LogarithmicSketch bucket, long value) {
+        bucket.record(value);
+    }
+
+    @Override
+    void recordDouble(LogarithmicSketch bucket, double value) {
+        bucket.record(value);
+    }
+
+    @Override
+    void resetBucket(LogarithmicSketch bucket) {
+        bucket.reset();
+    }
+
+    @Override
+    LogarithmicSketch newAccumulatedHistogram(LogarithmicSketch[] ringBuffer) {
+        return newBucket();
+    }
+
+    @Override
+    void accumulate() {
+        accumulatedHistogram().reset();
+        accumulatedHistogram().merge(currentHistogram());
+    }
+
+    @Override
+    void resetAccumulatedHistogram() {
+        accumulatedHistogram().reset();
+    }
+
+    @Override
+    double valueAtPercentile(double percentile) {
+        return accumulatedHistogram().valueAtQuantile(percentile / 100);
+    }
+
+    @Override
+    double[] valuesAtPercentiles(double[] percentiles) {
+        double[] quantiles = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            quantiles[i] = percentiles[i] / 100;
+        }
+        return accumulatedHistogram().valuesAtQuantiles(quantiles);
+    }
+
+    @Override
+    double countAtValue(double value) {
+        return accumulatedHistogram().countAtOrBelow(value);
+    }
+
+    /**
+     * @return A copy of the sketch from which percentiles were computed on the last snapshot, suitable for
+     * shipping to monitoring systems that can merge sketches across instances.
+     */
+    public synchronized LogarithmicSketch sketch() {
+        return accumulatedHistogram().copy();
+    }
+
+    @Override
+    void outputSummary(PrintStream out, double bucketScaling) {
+        out.format("%14s %10s\n\n", "Bucket", "Count");
+        accumulatedHistogram().forEachBucket((index, count) -> out.format(Locale.US, "%14.1f %10d\n",
+                accumulatedHistogram().upperBound(index) / bucketScaling, count));
+        out.write('\n');
+    }
+}
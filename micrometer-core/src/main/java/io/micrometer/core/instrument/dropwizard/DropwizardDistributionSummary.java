@@ -48,6 +48,19 @@ public class DropwizardDistributionSummary extends AbstractDistributionSummary {
         }
     }
 
+    @Override
+    protected void recordNonNegative(double[] amounts) {
+        double totalAmount = 0;
+        double maxAmount = 0;
+        for (double amount : amounts) {
+            impl.update((long) amount);
+            totalAmount += amount;
+            maxAmount = Math.max(maxAmount, amount);
+        }
+        this.totalAmount.add(totalAmount);
+        max.record(maxAmount);
+    }
+
     @Override
     public long count() {
         return impl.getCount();
@@ -48,6 +48,19 @@ public class DropwizardTimer extends AbstractTimer {
         }
     }
 
+    @Override
+    protected void recordNonNegative(long[] nanoAmounts) {
+        long totalNanos = 0;
+        long maxNanos = 0;
+        for (long nanoAmount : nanoAmounts) {
+            impl.update(nanoAmount, TimeUnit.NANOSECONDS);
+            totalNanos += nanoAmount;
+            maxNanos = Math.max(maxNanos, nanoAmount);
+        }
+        max.record(maxNanos, TimeUnit.NANOSECONDS);
+        totalTime.addAndGet(totalNanos);
+    }
+
     @Override
     public long count() {
         return impl.getCount();
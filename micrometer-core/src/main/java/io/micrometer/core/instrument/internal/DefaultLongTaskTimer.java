@@ -15,65 +15,122 @@
  */
 package io.micrometer.core.instrument.internal;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.AbstractMeter;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.LongTaskTimer;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.util.MeterEquivalence;
 import io.micrometer.core.instrument.util.TimeUtils;
+import io.micrometer.core.lang.Nullable;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Active tasks are spread over stripes picked by the starting thread, each of which keeps the start times of its
+ * tasks in primitive arrays. Slots of stopped tasks are reused, and each stripe maintains the number and the sum of
+ * the start times of its active tasks, so that starting and stopping a task are constant time and the total
+ * duration is computed without visiting every task.
+ */
 public class DefaultLongTaskTimer extends AbstractMeter implements LongTaskTimer {
-    private final ConcurrentMap<Long, Long> tasks = new ConcurrentHashMap<>();
-    private final AtomicLong nextTask = new AtomicLong(0L);
+    private static final int STRIPE_BITS = 4;
+    private static final int STRIPE_MASK = (1 << STRIPE_BITS) - 1;
+
+    private final Stripe[] stripes;
     private final Clock clock;
 
     public DefaultLongTaskTimer(Meter.Id id, Clock clock) {
         super(id);
         this.clock = clock;
+
+        // no more stripes than processors, since each of them at least costs a few small arrays once used
+        int stripeCount = Math.min(1 << STRIPE_BITS, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * A task is identified by its stripe, its slot within the stripe, and the generation of the slot, which
+     * changes whenever the slot is used or freed so that the ids of stopped tasks never match a later task.
+     */
+    private static long task(int stripe, int slot, int generation) {
+        return ((long) generation << 32) | ((long) slot << STRIPE_BITS) | stripe;
+    }
+
+    @Nullable
+    private Stripe stripe(long task) {
+        int stripe = (int) task & STRIPE_MASK;
+        return stripe < stripes.length ? stripes[stripe] : null;
+    }
+
+    private static int slot(long task) {
+        return (int) task >>> STRIPE_BITS;
+    }
+
+    private static int generation(long task) {
+        return (int) (task >>> 32);
     }
 
     @Override
     public Sample start() {
-        long task = nextTask.getAndIncrement();
-        tasks.put(task, clock.monotonicTime());
-        return new Sample(this, task);
+        int stripe = (int) Thread.currentThread().getId() & (stripes.length - 1);
+        return new Sample(this, stripes[stripe].start(stripe, clock));
     }
 
     @Override
     public long stop(long task) {
-        Long startTime = tasks.get(task);
-        if (startTime != null) {
-            tasks.remove(task);
-            return clock.monotonicTime() - startTime;
-        } else {
+        Stripe stripe = stripe(task);
+        if (stripe == null) {
             return -1L;
         }
+        long startTime = stripe.stop(slot(task), generation(task));
+        return startTime == Long.MIN_VALUE ? -1L : clock.monotonicTime() - startTime;
     }
 
     @Override
     public double duration(long task, TimeUnit unit) {
-        Long startTime = tasks.get(task);
-        return (startTime != null) ? TimeUtils.nanosToUnit(clock.monotonicTime() - startTime, unit) : -1L;
+        Stripe stripe = stripe(task);
+        if (stripe == null) {
+            return -1L;
+        }
+        long startTime = stripe.startTime(slot(task), generation(task));
+        return startTime == Long.MIN_VALUE ? -1L : TimeUtils.nanosToUnit(clock.monotonicTime() - startTime, unit);
     }
 
     @Override
     public double duration(TimeUnit unit) {
         long now = clock.monotonicTime();
         long sum = 0L;
-        for (long startTime : tasks.values()) {
-            sum += now - startTime;
+        for (Stripe stripe : stripes) {
+            sum += stripe.duration(now);
         }
         return TimeUtils.nanosToUnit(sum, unit);
     }
 
+    /**
+     * @param unit The time unit to scale the duration to.
+     * @return The duration of the longest running active task, or 0 if there is none.
+     * @since 1.5.0
+     */
+    @Incubating(since = "1.5.0")
+    public double max(TimeUnit unit) {
+        long oldest = Long.MAX_VALUE;
+        for (Stripe stripe : stripes) {
+            oldest = Math.min(oldest, stripe.oldestStartTime());
+        }
+        return oldest == Long.MAX_VALUE ? 0 : TimeUtils.nanosToUnit(clock.monotonicTime() - oldest, unit);
+    }
+
     @Override
     public int activeTasks() {
-        return tasks.size();
+        int activeTasks = 0;
+        for (Stripe stripe : stripes) {
+            activeTasks += stripe.activeTasks();
+        }
+        return activeTasks;
     }
 
     @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
@@ -86,4 +143,117 @@ public class DefaultLongTaskTimer extends AbstractMeter implements LongTaskTimer
     public int hashCode() {
         return MeterEquivalence.hashCode(this);
     }
+
+    /**
+     * The active tasks of a stripe, in a doubly linked list ordered by start time whose links are slot indices.
+     * Free slots are chained through {@code next}.
+     */
+    private static class Stripe {
+        private static final int NONE = -1;
+
+        private long[] startTimes = new long[0];
+        private int[] generations = new int[0];
+        private int[] previous = new int[0];
+        private int[] next = new int[0];
+
+        private int freeSlot = NONE;
+        private int oldest = NONE;
+        private int newest = NONE;
+
+        private int activeTasks;
+        private long startTimeSum;
+
+        synchronized long start(int stripe, Clock clock) {
+            int slot = freeSlot;
+            if (slot == NONE) {
+                slot = grow();
+            } else {
+                freeSlot = next[slot];
+            }
+
+            generations[slot]++;
+
+            // read under the lock, so that the list stays ordered by start time
+            long startTime = clock.monotonicTime();
+            startTimes[slot] = startTime;
+            previous[slot] = newest;
+            next[slot] = NONE;
+            if (newest == NONE) {
+                oldest = slot;
+            } else {
+                next[newest] = slot;
+            }
+            newest = slot;
+
+            activeTasks++;
+            startTimeSum += startTime;
+            return task(stripe, slot, generations[slot]);
+        }
+
+        private int grow() {
+            int slot = startTimes.length;
+            int length = Math.max(4, slot * 2);
+            startTimes = Arrays.copyOf(startTimes, length);
+            generations = Arrays.copyOf(generations, length);
+            previous = Arrays.copyOf(previous, length);
+            next = Arrays.copyOf(next, length);
+
+            // chain the new slots beyond the one about to be used into the free list
+            for (int i = slot + 1; i < length; i++) {
+                next[i] = i + 1 < length ? i + 1 : NONE;
+            }
+            freeSlot = slot + 1 < length ? slot + 1 : NONE;
+            return slot;
+        }
+
+        /**
+         * @return The start time of the stopped task, or {@link Long#MIN_VALUE} if it is not active.
+         */
+        synchronized long stop(int slot, int generation) {
+            if (!isActive(slot, generation)) {
+                return Long.MIN_VALUE;
+            }
+
+            if (previous[slot] == NONE) {
+                oldest = next[slot];
+            } else {
+                next[previous[slot]] = next[slot];
+            }
+            if (next[slot] == NONE) {
+                newest = previous[slot];
+            } else {
+                previous[next[slot]] = previous[slot];
+            }
+
+            generations[slot]++;
+            next[slot] = freeSlot;
+            freeSlot = slot;
+
+            activeTasks--;
+            startTimeSum -= startTimes[slot];
+            return startTimes[slot];
+        }
+
+        synchronized long startTime(int slot, int generation) {
+            return isActive(slot, generation) ? startTimes[slot] : Long.MIN_VALUE;
+        }
+
+        // Guarded by this
+        private boolean isActive(int slot, int generation) {
+            // the generation of a slot is odd while it is in use, and moves on when it is freed
+            return slot < generations.length && generations[slot] == generation && (generation & 1) == 1;
+        }
+
+        synchronized long duration(long now) {
+            return activeTasks * now - startTimeSum;
+        }
+
+        synchronized long oldestStartTime() {
+            return oldest == NONE ? Long.MAX_VALUE : startTimes[oldest];
+        }
+
+        synchronized int activeTasks() {
+            return activeTasks;
+        }
+    }
 }
@@ -27,6 +27,10 @@ public class NoopDistributionSummary extends NoopMeter implements DistributionSu
     public void record(double amount) {
     }
 
+    @Override
+    public void record(double[] amounts) {
+    }
+
     @Override
     public long count() {
         return 0;
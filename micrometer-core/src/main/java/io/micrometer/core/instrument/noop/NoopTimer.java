@@ -31,6 +31,10 @@ public class NoopTimer extends NoopMeter implements Timer {
     public void record(long amount, TimeUnit unit) {
     }
 
+    @Override
+    public void record(long[] amounts, TimeUnit unit) {
+    }
+
     @Override
     public <T> T record(Supplier<T> f) {
         return f.get();
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.push;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+import io.micrometer.core.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Sends the requests of a publication on up to a fixed number of threads at once, for push registries that publish
+ * their meters in batches. The publishing thread blocks while that many requests are in flight, so that it builds
+ * no more requests ahead of them than there are threads.
+ * <p>
+ * With a single thread, requests are sent on the publishing thread. They also are once the sender is closed, so that
+ * the last publication of a closing registry is still sent.
+ *
+ * @since 1.5.0
+ */
+@Incubating(since = "1.5.0")
+public class ConcurrentRequestSender implements AutoCloseable {
+    @Nullable
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    /**
+     * @param numThreads       The maximum number of requests in flight at once.
+     * @param threadNamePrefix The name of the threads sending requests.
+     */
+    public ConcurrentRequestSender(int numThreads, String threadNamePrefix) {
+        int threads = Math.max(1, numThreads);
+        this.executor = threads > 1 ? Executors.newFixedThreadPool(threads, new NamedThreadFactory(threadNamePrefix)) : null;
+        this.permits = new Semaphore(threads);
+    }
+
+    /**
+     * @return The requests of one publication, which several publications can send at the same time.
+     */
+    public Requests newRequests() {
+        return new Requests();
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The requests of one publication.
+     */
+    public class Requests {
+        private final List<Future<?>> sent = new ArrayList<>();
+
+        private Requests() {
+        }
+
+        /**
+         * Send a request, waiting for a thread to become free if necessary. A request that is sent on the calling
+         * thread throws its failures to the caller.
+         *
+         * @param request Sends the request.
+         * @throws InterruptedException If interrupted while waiting for a thread.
+         */
+        public void send(Runnable request) throws InterruptedException {
+            if (executor == null) {
+                request.run();
+                return;
+            }
+            permits.acquire();
+            try {
+                sent.add(executor.submit(() -> {
+                    try {
+                        request.run();
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                request.run();
+            }
+        }
+
+        /**
+         * Wait for every request sent so far to complete.
+         *
+         * @param onFailure Handles a failure that a request sent on another thread didn't handle itself.
+         * @throws InterruptedException If interrupted while waiting.
+         */
+        public void await(Consumer<Throwable> onFailure) throws InterruptedException {
+            for (Future<?> request : sent) {
+                try {
+                    request.get();
+                } catch (ExecutionException e) {
+                    onFailure.accept(e.getCause());
+                }
+            }
+        }
+    }
+}
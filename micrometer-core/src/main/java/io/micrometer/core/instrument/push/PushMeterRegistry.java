@@ -46,7 +46,7 @@ public abstract class PushMeterRegistry extends MeterRegistry {
      */
     private void publishSafely() {
         try {
-            publish();
+            collectFunctionMeters(this::publish);
         } catch (Throwable e) {
             logger.warn("Unexpected exception thrown while publishing metrics for " + this.getClass().getSimpleName(), e);
         }
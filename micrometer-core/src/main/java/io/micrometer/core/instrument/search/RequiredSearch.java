@@ -68,6 +68,7 @@ public final class RequiredSearch {
      */
     public RequiredSearch name(Predicate<String> nameMatches) {
         this.nameMatches = nameMatches;
+        this.exactNameMatch = null;
         return this;
     }
 
@@ -227,8 +228,10 @@ public final class RequiredSearch {
     }
 
     private Stream<Meter> meterStream() {
-        Stream<Meter> meterStream = registry.getMeters().stream()
-                .filter(m -> nameMatches == null || nameMatches.test(m.getId().getName()));
+        Stream<Meter> meterStream = exactNameMatch != null ?
+                registry.getMeters(exactNameMatch).stream() :
+                registry.getMeters().stream()
+                        .filter(m -> nameMatches == null || nameMatches.test(m.getId().getName()));
 
         if (!requiredTags.isEmpty() || !requiredTagKeys.isEmpty()) {
             meterStream = meterStream.filter(m -> {
@@ -35,6 +35,12 @@ public final class Search {
     private final MeterRegistry registry;
     private final List<Tag> tags = new ArrayList<>();
     private Predicate<String> nameMatches = n -> true;
+
+    /**
+     * Set when the name is matched exactly, so that meters can be looked up by name rather than scanned.
+     */
+    @Nullable
+    private String exactName;
     private final Set<String> requiredTagKeys = new HashSet<>();
 
     private Search(MeterRegistry registry) {
@@ -48,7 +54,9 @@ public final class Search {
      * @return This search.
      */
     public Search name(String exactName) {
-        return name(n -> n.equals(exactName));
+        name(n -> n.equals(exactName));
+        this.exactName = exactName;
+        return this;
     }
 
     /**
@@ -58,8 +66,10 @@ public final class Search {
      * @return This search.
      */
     public Search name(@Nullable Predicate<String> nameMatches) {
-        if (nameMatches != null)
+        if (nameMatches != null) {
             this.nameMatches = nameMatches;
+            this.exactName = null;
+        }
         return this;
     }
 
@@ -195,7 +205,9 @@ public final class Search {
     }
 
     private Stream<Meter> meterStream() {
-        Stream<Meter> meterStream = registry.getMeters().stream().filter(m -> nameMatches.test(m.getId().getName()));
+        Stream<Meter> meterStream = exactName != null ?
+                registry.getMeters(exactName).stream() :
+                registry.getMeters().stream().filter(m -> nameMatches.test(m.getId().getName()));
 
         if (!tags.isEmpty() || !requiredTagKeys.isEmpty()) {
             meterStream = meterStream.filter(m -> {
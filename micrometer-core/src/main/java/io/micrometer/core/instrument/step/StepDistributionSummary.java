@@ -60,6 +60,19 @@ public class StepDistributionSummary extends AbstractDistributionSummary {
         max.record(amount);
     }
 
+    @Override
+    protected void recordNonNegative(double[] amounts) {
+        double totalAmount = 0;
+        double maxAmount = 0;
+        for (double amount : amounts) {
+            totalAmount += amount;
+            maxAmount = Math.max(maxAmount, amount);
+        }
+        count.getCurrent().add(amounts.length);
+        total.getCurrent().add(totalAmount);
+        max.record(maxAmount);
+    }
+
     @Override
     public long count() {
         return count.poll();
@@ -61,6 +61,26 @@ public class StepTimer extends AbstractTimer {
         max.record(nanoAmount);
     }
 
+    @Override
+    protected void recordNonNegative(final long[] nanoAmounts) {
+        long totalNanos = 0;
+        long maxNanos = 0;
+        for (long nanoAmount : nanoAmounts) {
+            totalNanos += nanoAmount;
+            maxNanos = Math.max(maxNanos, nanoAmount);
+        }
+        count.getCurrent().add(nanoAmounts.length);
+        total.getCurrent().add(totalNanos);
+        max.record(maxNanos);
+    }
+
+    @Override
+    protected void recordNonNegativeWithStride(long first, long stride, long count) {
+        this.count.getCurrent().add(count);
+        total.getCurrent().add(sumWithStride(first, stride, count));
+        max.record(first + (count - 1) * stride);
+    }
+
     @Override
     public long count() {
         return count.poll();
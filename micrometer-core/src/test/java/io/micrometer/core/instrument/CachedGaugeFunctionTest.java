@@ -0,0 +1,147 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedGaugeFunctionTest {
+    private final MockClock clock = new MockClock();
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final Counter busy = registry.counter("busy");
+    private final Counter timedOut = registry.counter("timed.out");
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private final AtomicInteger evaluations = new AtomicInteger();
+
+    private final CachedGaugeFunction<AtomicInteger> f = new CachedGaugeFunction<>(n -> {
+        evaluations.incrementAndGet();
+        return n.get();
+    }, clock, TimeUnit.SECONDS.toNanos(10), refresher(refreshes::add));
+
+    @Test
+    void valueIsRefreshedInTheBackgroundOnceStale() {
+        AtomicInteger n = new AtomicInteger(1);
+
+        assertThat(f.applyAsDouble(n)).isNaN();
+        assertThat(f.applyAsDouble(n)).isNaN();
+        assertThat(refreshes).hasSize(1);
+        runRefreshes();
+        assertThat(f.applyAsDouble(n)).isEqualTo(1);
+
+        n.set(2);
+        clock.add(9, TimeUnit.SECONDS);
+        assertThat(f.applyAsDouble(n)).isEqualTo(1);
+        assertThat(refreshes).isEmpty();
+
+        clock.add(1, TimeUnit.SECONDS);
+        assertThat(f.applyAsDouble(n)).isEqualTo(1);
+        runRefreshes();
+        assertThat(f.applyAsDouble(n)).isEqualTo(2);
+        assertThat(evaluations).hasValue(2);
+    }
+
+    @Test
+    void failedRefreshReportsNaN() {
+        CachedGaugeFunction<AtomicInteger> failing = new CachedGaugeFunction<>(n -> {
+            throw new IllegalStateException("unavailable");
+        }, clock, TimeUnit.SECONDS.toNanos(10), refresher(Runnable::run));
+
+        assertThat(failing.applyAsDouble(new AtomicInteger())).isNaN();
+    }
+
+    @Test
+    void refreshThatCannotBeScheduledIsSkipped() {
+        AtomicInteger rejections = new AtomicInteger();
+        CachedGaugeFunction<AtomicInteger> busy = new CachedGaugeFunction<>(AtomicInteger::get, clock,
+                TimeUnit.SECONDS.toNanos(10), refresher(refresh -> {
+            if (rejections.getAndIncrement() == 0) {
+                throw new RejectedExecutionException();
+            }
+            refresh.run();
+        }));
+        AtomicInteger n = new AtomicInteger(1);
+
+        assertThat(busy.applyAsDouble(n)).isNaN();
+        assertThat(busy.applyAsDouble(n)).isEqualTo(1);
+        assertThat(rejections).hasValue(2);
+        assertThat(this.busy.count()).isEqualTo(1);
+    }
+
+    @Test
+    void refreshThatRunsLongerThanTheMaxAgeIsAbandoned() {
+        AtomicInteger n = new AtomicInteger(1);
+
+        assertThat(f.applyAsDouble(n)).isNaN();
+        clock.add(10, TimeUnit.SECONDS);
+        assertThat(f.applyAsDouble(n)).isNaN();
+        assertThat(timedOut.count()).isEqualTo(1);
+
+        // the abandoned refresh is retried once the max age has passed again
+        clock.add(10, TimeUnit.SECONDS);
+        assertThat(f.applyAsDouble(n)).isNaN();
+        runRefreshes();
+        assertThat(f.applyAsDouble(n)).isEqualTo(1);
+        assertThat(evaluations).hasValue(1);
+    }
+
+    @Test
+    void slowValueFunctionDoesNotBlockReads() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger n = new AtomicInteger(42);
+
+        Gauge gauge = Gauge.builder("slow", n, obj -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+            return obj.get();
+        }).cacheValue(Duration.ofMinutes(1)).register(new SimpleMeterRegistry());
+
+        assertThat(gauge.value()).isNaN();
+        release.countDown();
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (Double.isNaN(gauge.value()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(gauge.value()).isEqualTo(42);
+    }
+
+    private GaugeRefresher refresher(Executor executor) {
+        return new GaugeRefresher(executor, busy, timedOut);
+    }
+
+    private void runRefreshes() {
+        List<Runnable> pending = new ArrayList<>(refreshes);
+        refreshes.clear();
+        pending.forEach(Runnable::run);
+    }
+}
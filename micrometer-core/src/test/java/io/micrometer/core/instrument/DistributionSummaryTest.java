@@ -40,6 +40,34 @@ class DistributionSummaryTest {
         assertThat(summary.takeSnapshot().histogramCounts()).containsExactly(new CountAtBucket(1.0, 0));
     }
 
+    @Test
+    void recordManyAtOnceInStepMode() {
+        MockClock clock = new MockClock();
+        MeterRegistry registry = new SimpleMeterRegistry(new SimpleConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public CountingMode mode() {
+                return CountingMode.STEP;
+            }
+        }, clock);
+
+        DistributionSummary summary = DistributionSummary.builder("my.summary")
+                .sla(1.0)
+                .scale(2)
+                .register(registry);
+
+        summary.record(new double[]{0.5, 3, -1});
+        clock.add(SimpleConfig.DEFAULT.step());
+
+        assertThat(summary.count()).isEqualTo(2);
+        assertThat(summary.totalAmount()).isEqualTo(7);
+        assertThat(summary.max()).isEqualTo(6);
+    }
+
     @Test
     void histogramsInStepMode() {
         MockClock clock = new MockClock();
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FunctionMeterCollectorTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void releaseAndClose() {
+        release.countDown();
+        registry.close();
+    }
+
+    @Test
+    void slowFunctionDoesNotDelayOtherMeters() {
+        registry.config().collectFunctionMeters(2, Duration.ofMillis(100));
+
+        AtomicInteger slow = new AtomicInteger(1);
+        AtomicLong fast = new AtomicLong(2);
+        Gauge slowGauge = Gauge.builder("slow", slow, n -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return n.get();
+        }).register(registry);
+        Gauge fastGauge = Gauge.builder("fast", fast, AtomicLong::get).register(registry);
+        FunctionCounter counter = FunctionCounter.builder("counter", fast, AtomicLong::get).register(registry);
+
+        double[] published = new double[3];
+        long start = System.nanoTime();
+        registry.collectFunctionMeters(() -> {
+            published[0] = slowGauge.value();
+            published[1] = fastGauge.value();
+            published[2] = counter.count();
+        });
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        assertThat(published[0]).isNaN();
+        assertThat(published[1]).isEqualTo(2);
+        assertThat(published[2]).isEqualTo(2);
+
+        Timer collectionTimer = registry.get("micrometer.meter.collection").tag("meter", "fast").timer();
+        assertThat(collectionTimer.count()).isEqualTo(1);
+        assertThat(collectionTimer.takeSnapshot().histogramCounts()).extracting(c -> c.bucket(TimeUnit.MILLISECONDS))
+                .containsExactly(1.0, 10.0, 50.0, 100.0);
+    }
+
+    @Test
+    void collectedValuesArePublished() {
+        registry.config().collectFunctionMeters(2, Duration.ofSeconds(10));
+
+        AtomicInteger evaluations = new AtomicInteger();
+        Gauge gauge = Gauge.builder("gauge", evaluations, AtomicInteger::incrementAndGet).register(registry);
+
+        double[] published = new double[2];
+        registry.collectFunctionMeters(() -> {
+            published[0] = gauge.value();
+            published[1] = gauge.value();
+        });
+
+        assertThat(published).containsExactly(1, 1);
+        assertThat(gauge.value()).isEqualTo(2);
+    }
+
+    @Test
+    void removedMetersAreNoLongerCollected() {
+        registry.config().collectFunctionMeters(2, Duration.ofSeconds(10));
+
+        AtomicInteger evaluations = new AtomicInteger();
+        Gauge gauge = Gauge.builder("gauge", evaluations, AtomicInteger::incrementAndGet).register(registry);
+        registry.remove(gauge);
+
+        registry.collectFunctionMeters(() -> {
+        });
+        assertThat(evaluations).hasValue(0);
+    }
+
+    @Test
+    void collectionTimerIsRemovedWithTheLastMeterOfItsName() {
+        registry.config().collectFunctionMeters(2, Duration.ofSeconds(10));
+
+        AtomicInteger n = new AtomicInteger();
+        Gauge first = Gauge.builder("gauge", n, AtomicInteger::get).tag("k", "1").register(registry);
+        Gauge second = Gauge.builder("gauge", n, AtomicInteger::get).tag("k", "2").register(registry);
+        registry.collectFunctionMeters(() -> {
+        });
+        assertThat(registry.find("micrometer.meter.collection").tag("meter", "gauge").timer().count()).isEqualTo(2);
+
+        registry.remove(first);
+        assertThat(registry.find("micrometer.meter.collection").tag("meter", "gauge").timer()).isNotNull();
+
+        registry.remove(second);
+        assertThat(registry.find("micrometer.meter.collection").timer()).isNull();
+    }
+
+    @Test
+    void configuredOnlyOnce() {
+        registry.config().collectFunctionMeters(2, Duration.ofSeconds(10));
+        assertThatThrownBy(() -> registry.config().collectFunctionMeters(2, Duration.ofSeconds(10)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -17,6 +17,7 @@ package io.micrometer.core.instrument;
 
 import io.micrometer.core.Issue;
 import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.config.MeterFilterChain;
 import io.micrometer.core.instrument.config.MeterFilterReply;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
@@ -106,6 +107,91 @@ class MeterFilterTest {
         assertThat(filter.accept(id2)).isEqualTo(MeterFilterReply.DENY);
     }
 
+    @Test
+    void neighboringBuiltInFiltersAreFused() {
+        MeterFilter[] compiled = MeterFilterChain.compile(new MeterFilter[]{
+                MeterFilter.commonTags(Tags.of("k1", "v1", "k2", "v2")),
+                MeterFilter.commonTags(Tags.of("k2", "overridden", "k3", "v3")),
+                MeterFilter.ignoreTags("k1"),
+                MeterFilter.ignoreTags("k4"),
+                MeterFilter.acceptNameStartsWith("my.counter"),
+                MeterFilter.denyNameStartsWith("my"),
+                MeterFilter.acceptNameStartsWith("my.timer"),
+                MeterFilter.deny()
+        });
+        assertThat(compiled).hasSize(4);
+
+        Meter.Id id = new Meter.Id("my.counter", Tags.of("k3", "own", "k4", "v4"), null, null, Meter.Type.COUNTER);
+        for (MeterFilter filter : compiled) {
+            id = filter.map(id);
+        }
+        assertThat(id.getTags()).containsExactly(Tag.of("k2", "v2"), Tag.of("k3", "own"));
+
+        MeterFilter namePrefixes = compiled[2];
+        assertThat(namePrefixes.accept(id)).isEqualTo(MeterFilterReply.ACCEPT);
+        assertThat(namePrefixes.accept(id.withName("my.timer"))).isEqualTo(MeterFilterReply.DENY);
+        assertThat(namePrefixes.accept(id.withName("other"))).isEqualTo(MeterFilterReply.NEUTRAL);
+    }
+
+    @Test
+    void maximumAllowableMetricsDoesNotRememberDeniedIds() {
+        MeterFilter filter = MeterFilter.maximumAllowableMetrics(1);
+
+        Meter.Id id = new Meter.Id("name", Tags.empty(), null, null, Meter.Type.COUNTER);
+        Meter.Id id2 = new Meter.Id("name2", Tags.empty(), null, null, Meter.Type.COUNTER);
+
+        assertThat(filter.accept(id2)).isEqualTo(MeterFilterReply.NEUTRAL);
+        assertThat(filter.accept(id)).isEqualTo(MeterFilterReply.DENY);
+        assertThat(filter.accept(id)).isEqualTo(MeterFilterReply.DENY);
+        assertThat(filter.accept(id2)).isEqualTo(MeterFilterReply.NEUTRAL);
+    }
+
+    @Test
+    void maximumAllowableMetricsPerName() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(MeterFilter.maximumAllowableMetricsPerName(registry, 10, 2));
+
+        for (int userId = 0; userId < 10; userId++) {
+            registry.counter("requests", "user", Integer.toString(userId)).increment();
+        }
+        registry.counter("logins", "user", "0").increment();
+
+        assertThat(registry.find("requests").counters()).hasSize(2);
+        assertThat(registry.get("logins").counter().count()).isEqualTo(1);
+        assertThat(registry.get("micrometer.meter.denied").counter().count()).isEqualTo(8);
+    }
+
+    @Test
+    void maximumAllowableMetricsPerNameForgetsRemovedMeters() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(MeterFilter.maximumAllowableMetricsPerName(registry, 10, 1));
+
+        registry.remove(registry.counter("requests", "user", "0"));
+        registry.counter("requests", "user", "1");
+
+        assertThat(registry.find("requests").tag("user", "1").counter()).isNotNull();
+        assertThat(registry.get("micrometer.meter.denied").counter().count()).isZero();
+    }
+
+    @Test
+    void maximumAllowableMetricsPerNameForgetsTheLeastRecentlyRegisteredNames() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(MeterFilter.maximumAllowableMetricsPerName(registry, 2, 1));
+
+        registry.counter("requests", "user", "0");
+        registry.counter("logins", "user", "0");
+        registry.counter("logouts", "user", "0");
+
+        // requests has been forgotten, so it gets a new allowance
+        registry.counter("requests", "user", "1");
+        // logouts is still remembered
+        registry.counter("logouts", "user", "1");
+
+        assertThat(registry.find("requests").counters()).hasSize(2);
+        assertThat(registry.find("logouts").counters()).hasSize(1);
+        assertThat(registry.get("micrometer.meter.denied").counter().count()).isEqualTo(1);
+    }
+
     @Test
     void maximumAllowableTags() {
         AtomicInteger n = new AtomicInteger(0);
@@ -15,6 +15,7 @@
  */
 package io.micrometer.core.instrument;
 
+import io.micrometer.core.instrument.config.NamingConvention;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -34,4 +35,14 @@ class MeterIdTest {
         assertThat(id).isEqualTo(id2);
         assertThat(id.hashCode()).isEqualTo(id2.hashCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void conventionNameAndTagsFollowTheNamingConvention() {
+        Meter.Id id = new Meter.Id("my.id", Tags.of("tag.key", "value"), null, null, Meter.Type.COUNTER);
+
+        assertThat(id.getConventionName(NamingConvention.snakeCase)).isEqualTo("my_id");
+        assertThat(id.getConventionTags(NamingConvention.snakeCase)).containsExactly(Tag.of("tag_key", "value"));
+        assertThat(id.getConventionName(NamingConvention.camelCase)).isEqualTo("myId");
+        assertThat(id.getConventionTags(NamingConvention.camelCase)).containsExactly(Tag.of("tagKey", "value"));
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
@@ -63,6 +64,23 @@ class MultiGaugeTest {
         }
     }
 
+    @Test
+    void onlyAddedAndRemovedRowsTouchTheRegistry() {
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger removed = new AtomicInteger();
+        registry.config().onMeterAdded(m -> added.incrementAndGet()).onMeterRemoved(m -> removed.incrementAndGet());
+
+        colorGauges.register(Stream.of(RED, GREEN).map(c -> c.toRow(1.0)).collect(toList()));
+        Gauge red = registry.get("colors").tag("color", "red").gauge();
+
+        colorGauges.register(Stream.of(RED, BLUE).map(c -> c.toRow(2.0)).collect(toList()), true);
+
+        assertThat(added.get()).isEqualTo(3);
+        assertThat(removed.get()).isEqualTo(1);
+        assertThat(registry.get("colors").tag("color", "red").gauge()).isSameAs(red);
+        assertThat(red.value()).isEqualTo(2);
+    }
+
     @Test
     void dontOverwriteFunctionDefinitions() {
         List<Color> colors = Arrays.asList(RED, GREEN, BLUE);
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument;
+
+import io.micrometer.core.instrument.config.InvalidConfigurationException;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.pause.NoPauseDetector;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimerTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, new MockClock());
+
+    @Test
+    void batchedRecordingsAreDrainedWhenBufferFills() {
+        Timer timer = Timer.builder("my.timer")
+                .recordingBatchSize(3)
+                .register(registry);
+
+        timer.record(1, TimeUnit.SECONDS);
+        timer.record(2, TimeUnit.SECONDS);
+        assertThat(timer.count()).isZero();
+
+        timer.record(3, TimeUnit.SECONDS);
+        assertThat(timer.count()).isEqualTo(3);
+        assertThat(timer.totalTime(TimeUnit.SECONDS)).isEqualTo(6);
+        assertThat(timer.max(TimeUnit.SECONDS)).isEqualTo(3);
+    }
+
+    @Test
+    void batchedRecordingsAreDrainedOnSnapshot() throws InterruptedException {
+        Timer timer = Timer.builder("my.timer")
+                .sla(Duration.ofMillis(10))
+                .recordingBatchSize(100)
+                .register(registry);
+
+        timer.record(5, TimeUnit.MILLISECONDS);
+
+        Thread other = new Thread(() -> timer.record(20, TimeUnit.MILLISECONDS));
+        other.start();
+        other.join();
+
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        assertThat(snapshot.count()).isEqualTo(2);
+        assertThat(snapshot.total(TimeUnit.MILLISECONDS)).isEqualTo(25);
+        assertThat(snapshot.histogramCounts()).containsExactly(
+                new CountAtBucket((double) Duration.ofMillis(10).toNanos(), 1));
+    }
+
+    @Test
+    void recordManyAtOnce() {
+        Timer timer = Timer.builder("my.timer")
+                .sla(Duration.ofMillis(10))
+                .register(registry);
+
+        timer.record(new long[]{5, -1, 20, 8}, TimeUnit.MILLISECONDS);
+
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        assertThat(snapshot.count()).isEqualTo(3);
+        assertThat(snapshot.total(TimeUnit.MILLISECONDS)).isEqualTo(33);
+        assertThat(snapshot.max(TimeUnit.MILLISECONDS)).isEqualTo(20);
+        assertThat(snapshot.histogramCounts()).containsExactly(
+                new CountAtBucket((double) Duration.ofMillis(10).toNanos(), 2));
+    }
+
+    @Test
+    void onlyTimersRegisteredForSharingHaveShareableHistograms() {
+        Timer timer = Timer.builder("my.timer").publishPercentiles(0.5).register(registry);
+        Timer shareable = AbstractTimer.withShareableHistograms(() ->
+                Timer.builder("my.shareable.timer").publishPercentiles(0.5).register(registry));
+
+        assertThat(((AbstractTimer) timer).histogram).isNotInstanceOf(ShareableHistogram.class);
+        assertThat(((AbstractTimer) shareable).histogram).isInstanceOf(ShareableHistogram.class);
+        assertThat(((AbstractTimer) timer).shareHistogramOf((AbstractTimer) shareable)).isFalse();
+        assertThat(((AbstractTimer) shareable).shareHistogramOf((AbstractTimer) timer)).isTrue();
+    }
+
+    @Test
+    void recordingBatchSizeMustBePositive() {
+        assertThatThrownBy(() -> Timer.builder("my.timer").recordingBatchSize(0).register(registry))
+                .isInstanceOf(InvalidConfigurationException.class);
+    }
+
+    @Test
+    void batchedRecordingsAreDrainedInBulk() {
+        BulkRecordingTimer timer = new BulkRecordingTimer(DistributionStatisticConfig.builder()
+                .recordingBatchSize(3)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT));
+
+        timer.record(1, TimeUnit.NANOSECONDS);
+        timer.record(new long[]{2, 3, 4, 5}, TimeUnit.NANOSECONDS);
+        assertThat(timer.bulkRecordings).containsExactly(new long[]{1, 2, 3});
+
+        timer.takeSnapshot();
+        assertThat(timer.bulkRecordings).containsExactly(new long[]{1, 2, 3}, new long[]{4, 5});
+        assertThat(timer.singleRecordings).isZero();
+    }
+
+    @Test
+    void pauseCompensationRecordsTheWholeSequenceAtOnce() {
+        Timer timer = Timer.builder("my.timer")
+                .sla(Duration.ofMillis(50))
+                .register(registry);
+
+        ((AbstractTimer) timer).recordValueWithExpectedInterval(Duration.ofMillis(100).toNanos(), Duration.ofMillis(10).toNanos());
+
+        // 10ms, 20ms, ..., 100ms
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        assertThat(snapshot.count()).isEqualTo(10);
+        assertThat(snapshot.total(TimeUnit.MILLISECONDS)).isEqualTo(550);
+        assertThat(snapshot.max(TimeUnit.MILLISECONDS)).isEqualTo(100);
+        assertThat(snapshot.histogramCounts()).containsExactly(
+                new CountAtBucket((double) Duration.ofMillis(50).toNanos(), 5));
+    }
+
+    @Test
+    void sumWithStrideSaturates() {
+        assertThat(AbstractTimer.sumWithStride(10, 10, 10)).isEqualTo(550);
+        assertThat(AbstractTimer.sumWithStride(5, 0, 1)).isEqualTo(5);
+        assertThat(AbstractTimer.sumWithStride(1, Long.MAX_VALUE / 2, 4)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void bulkRecordingsAreSampledForIntervalsInProportionToTheirSize() {
+        for (int samples : new int[]{1, 5, 16, 40, 1000}) {
+            int intervals = 0;
+            for (int random = 0; random < 16; random++) {
+                intervals += AbstractTimer.sampledIntervals(samples, random);
+            }
+            // averaged over every random draw, one in 16 samples is timestamped
+            assertThat(intervals).isEqualTo(samples);
+        }
+        assertThat(AbstractTimer.sampledIntervals(100_000, 0)).isEqualTo(128);
+    }
+
+    private static class BulkRecordingTimer extends AbstractTimer {
+        final List<long[]> bulkRecordings = new ArrayList<>();
+        int singleRecordings;
+
+        BulkRecordingTimer(DistributionStatisticConfig distributionStatisticConfig) {
+            super(new Meter.Id("my.timer", Tags.empty(), null, null, Type.TIMER), new MockClock(),
+                    distributionStatisticConfig, new NoPauseDetector(), TimeUnit.SECONDS, false);
+        }
+
+        @Override
+        protected void recordNonNegative(long amount, TimeUnit unit) {
+            singleRecordings++;
+        }
+
+        @Override
+        protected void recordNonNegative(long[] nanoAmounts) {
+            bulkRecordings.add(nanoAmounts);
+        }
+
+        @Override
+        public long count() {
+            return 0;
+        }
+
+        @Override
+        public double totalTime(TimeUnit unit) {
+            return 0;
+        }
+
+        @Override
+        public double max(TimeUnit unit) {
+            return 0;
+        }
+    }
+}
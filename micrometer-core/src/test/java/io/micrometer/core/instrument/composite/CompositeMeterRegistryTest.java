@@ -20,6 +20,8 @@ import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.binder.BaseUnits;
 import io.micrometer.core.instrument.config.MeterFilter;
 import io.micrometer.core.instrument.config.NamingConvention;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
 import io.micrometer.core.instrument.distribution.pause.ClockDriftPauseDetector;
 import io.micrometer.core.instrument.simple.SimpleConfig;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
@@ -44,6 +46,8 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+import static org.assertj.core.api.Assertions.withinPercentage;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -475,4 +479,111 @@ class CompositeMeterRegistryTest {
         }
     }
 
+    @Test
+    void childTimersShareOneHistogramWhenEnabled() {
+        SimpleMeterRegistry other = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        CompositeMeterRegistry sharing = new CompositeMeterRegistry(clock, emptyList(), true);
+        sharing.add(simple).add(other);
+
+        Timer timer = Timer.builder("timer").publishPercentiles(0.5).register(sharing);
+        timer.record(1, TimeUnit.SECONDS);
+
+        Meter[] children = ((CompositeTimer) timer).children();
+        Timer primary = (Timer) children[0];
+        Timer secondary = (Timer) children[1];
+        assertThat(secondary.count()).isEqualTo(1);
+        assertThat(secondary.takeSnapshot().percentileValues()[0].value(TimeUnit.SECONDS)).isEqualTo(1, offset(0.1));
+
+        // only the first child records to the shared histogram
+        primary.record(10, TimeUnit.SECONDS);
+        primary.record(10, TimeUnit.SECONDS);
+        assertThat(secondary.count()).isEqualTo(1);
+        assertThat(secondary.takeSnapshot().percentileValues()[0].value(TimeUnit.SECONDS)).isEqualTo(10, offset(1.0));
+
+        // the remaining child takes over recording to a histogram of its own
+        sharing.remove(simple.find("timer").timer() == primary ? simple : other);
+        timer.record(3, TimeUnit.SECONDS);
+        assertThat(secondary.takeSnapshot().percentileValues()[0].value(TimeUnit.SECONDS)).isEqualTo(3, offset(0.3));
+    }
+
+    @Test
+    void childSummariesWithDifferentDistributionsDoNotShareHistograms() {
+        SimpleMeterRegistry other = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        other.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentiles(0.9).build().merge(config);
+            }
+        });
+        CompositeMeterRegistry sharing = new CompositeMeterRegistry(clock, emptyList(), true);
+        sharing.add(simple).add(other);
+
+        DistributionSummary summary = DistributionSummary.builder("summary").publishPercentiles(0.5).register(sharing);
+        summary.record(1);
+        simple.get("summary").summary().record(100);
+        simple.get("summary").summary().record(100);
+
+        HistogramSnapshot snapshot = other.get("summary").summary().takeSnapshot();
+        assertThat(snapshot.percentileValues()[0].percentile()).isEqualTo(0.9);
+        assertThat(snapshot.percentileValues()[0].value()).isEqualTo(1, offset(0.1));
+    }
+
+    @Test
+    void childTimerThatCannotShareTheNextPrimaryGoesBackToItsOwnHistogram() {
+        SimpleMeterRegistry differentDistribution = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        differentDistribution.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentiles(0.9).build().merge(config);
+            }
+        });
+        SimpleMeterRegistry sameDistribution = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        CompositeMeterRegistry sharing = new CompositeMeterRegistry(clock, emptyList(), true);
+        sharing.add(simple);
+        Timer timer = Timer.builder("timer").publishPercentiles(0.5).register(sharing);
+        sharing.add(differentDistribution).add(sameDistribution);
+
+        Timer secondary = sameDistribution.get("timer").timer();
+        timer.record(10, TimeUnit.SECONDS);
+        assertThat(secondary.takeSnapshot().percentileValues()[0].value(TimeUnit.SECONDS)).isEqualTo(10, offset(1.0));
+
+        // the next primary has a different distribution, so its histogram can't be shared
+        sharing.remove(simple);
+        timer.record(3, TimeUnit.SECONDS);
+        timer.record(3, TimeUnit.SECONDS);
+        assertThat(secondary.takeSnapshot().percentileValues()[0].value(TimeUnit.SECONDS)).isEqualTo(3, offset(0.3));
+        assertThat(differentDistribution.get("timer").timer().takeSnapshot().percentileValues()[0].percentile())
+                .isEqualTo(0.9);
+    }
+
+    @Test
+    void percentileRelativeAccuracyIsForwardedToChildren() {
+        composite.add(simple);
+
+        Timer timer = Timer.builder("timer").publishPercentiles(0.5).percentileRelativeAccuracy(0.01).register(composite);
+        DistributionSummary summary = DistributionSummary.builder("summary").publishPercentiles(0.5)
+                .percentileRelativeAccuracy(0.01).register(composite);
+        for (int i = 0; i < 10; i++) {
+            timer.record(123, TimeUnit.MILLISECONDS);
+            summary.record(123);
+        }
+
+        assertThat(simple.get("timer").timer().takeSnapshot().percentileValues()[0].value(TimeUnit.MILLISECONDS))
+                .isCloseTo(123, withinPercentage(1));
+        assertThat(simple.get("summary").summary().takeSnapshot().percentileValues()[0].value())
+                .isCloseTo(123, withinPercentage(1));
+    }
+
+    @Test
+    void recordingBatchSizeIsForwardedToChildren() {
+        composite.add(simple);
+
+        Timer timer = Timer.builder("timer").recordingBatchSize(3).register(composite);
+        timer.record(1, TimeUnit.SECONDS);
+        timer.record(2, TimeUnit.SECONDS);
+        assertThat(simple.get("timer").timer().count()).isZero();
+
+        timer.record(3, TimeUnit.SECONDS);
+        assertThat(simple.get("timer").timer().count()).isEqualTo(3);
+    }
 }
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.cumulative;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link MappedCumulativeStateStore}.
+ */
+class MappedCumulativeStateStoreTest {
+    @TempDir
+    Path tempDir;
+
+    private MeterRegistry newRegistry() {
+        return new SimpleMeterRegistry(SimpleConfig.DEFAULT, new MockClock());
+    }
+
+    @Test
+    void restoresCumulativeStateAfterRestart() throws IOException {
+        Path file = tempDir.resolve("meters.state");
+
+        MeterRegistry registry = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, 4096)) {
+            store.bindTo(registry);
+            registry.counter("requests", "uri", "/api").increment(3.5);
+            registry.timer("latency").record(10, TimeUnit.MILLISECONDS);
+            registry.summary("payload").record(42);
+        }
+
+        MeterRegistry restarted = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, 4096)) {
+            store.bindTo(restarted);
+            restarted.counter("requests", "uri", "/api").increment();
+            restarted.timer("latency").record(5, TimeUnit.MILLISECONDS);
+
+            assertThat(restarted.get("requests").counter().count()).isEqualTo(4.5);
+            assertThat(restarted.get("latency").timer().count()).isEqualTo(2);
+            assertThat(restarted.get("latency").timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(15);
+        }
+
+        // the summary was not registered in the second run, but its state was carried forward
+        MeterRegistry lazilyRegistered = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, 4096)) {
+            store.bindTo(lazilyRegistered);
+            assertThat(lazilyRegistered.summary("payload").totalAmount()).isEqualTo(42);
+            assertThat(lazilyRegistered.counter("requests", "uri", "/api").count()).isEqualTo(4.5);
+        }
+    }
+
+    @Test
+    void restoresMetersRegisteredBeforeBinding() throws IOException {
+        Path file = tempDir.resolve("meters.state");
+
+        MeterRegistry registry = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, 4096)) {
+            store.bindTo(registry);
+            registry.counter("requests").increment(2);
+        }
+
+        MeterRegistry restarted = newRegistry();
+        restarted.counter("requests").increment();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, 4096)) {
+            store.bindTo(restarted);
+            assertThat(restarted.counter("requests").count()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void tornCheckpointFallsBackToPreviousCheckpoint() throws IOException {
+        Path file = tempDir.resolve("meters.state");
+        int pageBytes = 4096;
+
+        MeterRegistry registry = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, pageBytes)) {
+            store.bindTo(registry);
+            registry.counter("requests").increment();
+            store.checkpoint(); // page 0
+
+            registry.counter("requests").increment();
+        } // final checkpoint on close goes to page 1
+
+        // simulate a crash in the middle of writing page 1
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), MappedCumulativeStateStore.FILE_HEADER_BYTES +
+                    pageBytes + MappedCumulativeStateStore.PAGE_HEADER_BYTES);
+        }
+
+        MeterRegistry restarted = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, pageBytes)) {
+            store.bindTo(restarted);
+            assertThat(restarted.counter("requests").count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void unrecognizedFileIsReinitialized() throws IOException {
+        Path file = tempDir.resolve("meters.state");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap("not a state file at all".getBytes()));
+        }
+
+        MeterRegistry registry = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, 4096)) {
+            store.bindTo(registry);
+            assertThat(registry.counter("requests").count()).isZero();
+            registry.counter("requests").increment();
+        }
+
+        MeterRegistry restarted = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, 4096)) {
+            store.bindTo(restarted);
+            assertThat(restarted.counter("requests").count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void metersThatDoNotFitAreSkipped() throws IOException {
+        Path file = tempDir.resolve("meters.state");
+
+        MeterRegistry registry = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, 128)) {
+            store.bindTo(registry);
+            for (int i = 0; i < 10; i++) {
+                registry.counter("requests", "index", Integer.toString(i)).increment();
+            }
+        }
+
+        MeterRegistry restarted = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file, 128)) {
+            store.bindTo(restarted);
+            double total = 0;
+            for (int i = 0; i < 10; i++) {
+                total += restarted.counter("requests", "index", Integer.toString(i)).count();
+            }
+            assertThat(total).isBetween(1.0, 9.0);
+        }
+    }
+
+    @Test
+    void idsWithSeparatorsInTagsDoNotShareState() throws IOException {
+        Path file = tempDir.resolve("meters.state");
+
+        MeterRegistry registry = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file)) {
+            store.bindTo(registry);
+            registry.counter("requests", "k", "v;x=y").increment(1);
+            registry.counter("requests", "k", "v", "x", "y").increment(2);
+        }
+
+        MeterRegistry restarted = newRegistry();
+        try (MappedCumulativeStateStore store = new MappedCumulativeStateStore(file)) {
+            store.bindTo(restarted);
+            assertThat(restarted.counter("requests", "k", "v;x=y").count()).isEqualTo(1);
+            assertThat(restarted.counter("requests", "k", "v", "x", "y").count()).isEqualTo(2);
+        }
+    }
+}
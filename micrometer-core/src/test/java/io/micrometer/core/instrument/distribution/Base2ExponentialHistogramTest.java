@@ -0,0 +1,121 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Base2ExponentialHistogramTest {
+    @Test
+    void bucketIndices() {
+        // schema 0: (2^(i-1), 2^i]
+        assertThat(Base2ExponentialHistogram.index(1, 0)).isEqualTo(0);
+        assertThat(Base2ExponentialHistogram.index(1.5, 0)).isEqualTo(1);
+        assertThat(Base2ExponentialHistogram.index(2, 0)).isEqualTo(1);
+        assertThat(Base2ExponentialHistogram.index(0.25, 0)).isEqualTo(-2);
+        assertThat(Base2ExponentialHistogram.index(0.3, 0)).isEqualTo(-1);
+
+        // schema 2: (2^((i-1)/4), 2^(i/4)]
+        assertThat(Base2ExponentialHistogram.index(2, 2)).isEqualTo(4);
+        assertThat(Base2ExponentialHistogram.index(2.1, 2)).isEqualTo(5);
+        assertThat(Base2ExponentialHistogram.index(Math.pow(2, 0.25), 2)).isIn(1, 2);
+        assertThat(Base2ExponentialHistogram.index(0.5, 2)).isEqualTo(-4);
+
+        // schema -1: (4^(i-1), 4^i]
+        assertThat(Base2ExponentialHistogram.index(4, -1)).isEqualTo(1);
+        assertThat(Base2ExponentialHistogram.index(5, -1)).isEqualTo(2);
+        assertThat(Base2ExponentialHistogram.index(8, -1)).isEqualTo(2);
+        assertThat(Base2ExponentialHistogram.index(0.25, -1)).isEqualTo(-1);
+        assertThat(Base2ExponentialHistogram.index(0.125, -1)).isEqualTo(-1);
+
+        for (int schema = Base2ExponentialHistogram.MIN_SCHEMA; schema <= Base2ExponentialHistogram.MAX_SCHEMA; schema++) {
+            for (double value : new double[]{1e-9, 0.003, 0.7, 1, 3, 1000, 1e12}) {
+                int index = Base2ExponentialHistogram.index(value, schema);
+                assertThat(value).isLessThanOrEqualTo(Base2ExponentialHistogram.upperBound(index, schema) * (1 + 1e-12));
+                assertThat(value).isGreaterThan(Base2ExponentialHistogram.upperBound(index - 1, schema) * (1 - 1e-12));
+            }
+        }
+    }
+
+    @Test
+    void recordsSparseBuckets() {
+        Base2ExponentialHistogram histogram = new Base2ExponentialHistogram(0, 160, 0);
+        histogram.recordDouble(0);
+        histogram.recordDouble(1);
+        histogram.recordDouble(1);
+        histogram.recordDouble(100);
+
+        Base2ExponentialHistogram.Buckets buckets = histogram.buckets();
+        assertThat(buckets.schema()).isZero();
+        assertThat(buckets.zeroCount()).isEqualTo(1);
+        assertThat(buckets.firstIndex()).isZero();
+        assertThat(buckets.length()).isEqualTo(8);
+        assertThat(buckets.count(0)).isEqualTo(2);
+        assertThat(buckets.count(7)).isEqualTo(1);
+        assertThat(buckets.upperBound(7)).isEqualTo(128);
+
+        assertThat(histogram.takeSnapshot(4, 102, 100).histogramCounts()).containsExactly(
+                new CountAtBucket(0.0, 1),
+                new CountAtBucket(1.0, 3),
+                new CountAtBucket(128.0, 4));
+    }
+
+    @Test
+    void scalesDownWhenBucketsOverflow() {
+        Base2ExponentialHistogram histogram = new Base2ExponentialHistogram(3, 20, 0);
+        histogram.recordDouble(1);
+        assertThat(histogram.buckets().schema()).isEqualTo(3);
+
+        // 1 and 2^10 are 80 buckets apart at schema 3, and 10 buckets apart at schema 0
+        histogram.recordDouble(1024);
+
+        Base2ExponentialHistogram.Buckets buckets = histogram.buckets();
+        assertThat(buckets.schema()).isEqualTo(0);
+        assertThat(buckets.firstIndex()).isEqualTo(0);
+        assertThat(buckets.length()).isEqualTo(11);
+        assertThat(buckets.count(0)).isEqualTo(1);
+        assertThat(buckets.count(10)).isEqualTo(1);
+
+        histogram.recordDouble(3);
+        assertThat(histogram.buckets().count(2)).isEqualTo(1);
+    }
+
+    @Test
+    void cumulativeCountsAtFixedBoundariesDontDependOnTheSchema() {
+        double[] boundaries = {1, 4, 16, 1024};
+        Base2ExponentialHistogram histogram = new Base2ExponentialHistogram(3, 20, 0);
+        histogram.recordDouble(0);
+        histogram.recordDouble(1);
+        histogram.recordDouble(3);
+
+        assertThat(histogram.buckets().schema()).isEqualTo(3);
+        assertThat(histogram.buckets().cumulativeCountsAt(boundaries)).containsExactly(
+                new CountAtBucket(1.0, 2),
+                new CountAtBucket(4.0, 3),
+                new CountAtBucket(16.0, 3),
+                new CountAtBucket(1024.0, 3));
+
+        histogram.recordDouble(1024);
+
+        assertThat(histogram.buckets().schema()).isEqualTo(0);
+        assertThat(histogram.buckets().cumulativeCountsAt(boundaries)).containsExactly(
+                new CountAtBucket(1.0, 2),
+                new CountAtBucket(4.0, 3),
+                new CountAtBucket(16.0, 3),
+                new CountAtBucket(1024.0, 4));
+    }
+}
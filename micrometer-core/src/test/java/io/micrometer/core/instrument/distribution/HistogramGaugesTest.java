@@ -38,12 +38,33 @@ class HistogramGaugesTest {
                 .sla(Duration.ofMillis(1))
                 .register(registry);
 
-        HistogramGauges gauges = HistogramGauges.registerWithCommonFormat(timer, registry);
+        HistogramGauges.registerWithCommonFormat(timer, registry);
 
         timer.record(1, TimeUnit.MILLISECONDS);
-
         assertThat(registry.get("my.timer.histogram").gauge().value()).isEqualTo(1);
-        assertThat(gauges.polledGaugesLatch.getCount()).isEqualTo(0);
+
+        timer.record(1, TimeUnit.MILLISECONDS);
+        assertThat(registry.get("my.timer.histogram").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void gaugesPolledInAnyOrderShareOneSnapshotPerPublish() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+
+        Timer timer = Timer.builder("my.timer")
+                .sla(Duration.ofMillis(1), Duration.ofMillis(2))
+                .register(registry);
+
+        timer.record(1, TimeUnit.MILLISECONDS);
+        assertThat(registry.get("my.timer.histogram").tag("le", "0.002").gauge().value()).isEqualTo(1);
+
+        // still in the same publish, so the other gauge doesn't see this sample yet
+        timer.record(1, TimeUnit.MILLISECONDS);
+        assertThat(registry.get("my.timer.histogram").tag("le", "0.001").gauge().value()).isEqualTo(1);
+
+        // polling a gauge for the second time starts the next publish
+        assertThat(registry.get("my.timer.histogram").tag("le", "0.002").gauge().value()).isEqualTo(2);
+        assertThat(registry.get("my.timer.histogram").tag("le", "0.001").gauge().value()).isEqualTo(2);
     }
 
     @Test
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.Assertions.withinPercentage;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LogarithmicSketchTest {
+    @Test
+    void quantilesAreWithinRelativeAccuracy() {
+        LogarithmicSketch sketch = LogarithmicSketch.withRelativeAccuracy(0.01, 2048);
+        for (int i = 1; i <= 10_000; i++) {
+            sketch.record(i);
+        }
+
+        assertThat(sketch.count()).isEqualTo(10_000);
+        assertThat(sketch.valueAtQuantile(0.5)).isCloseTo(5000, withinPercentage(1));
+        assertThat(sketch.valueAtQuantile(0.99)).isCloseTo(9900, withinPercentage(1));
+        assertThat(sketch.valuesAtQuantiles(new double[]{0.99, 0.5, 0.0}))
+                .containsExactly(sketch.valueAtQuantile(0.99), sketch.valueAtQuantile(0.5), sketch.valueAtQuantile(0.0));
+    }
+
+    @Test
+    void zerosAreCounted() {
+        LogarithmicSketch sketch = LogarithmicSketch.withRelativeAccuracy(0.01, 2048);
+        sketch.record(0);
+        sketch.record(0);
+        sketch.record(100);
+
+        assertThat(sketch.zeroCount()).isEqualTo(2);
+        assertThat(sketch.valueAtQuantile(0.5)).isZero();
+        assertThat(sketch.valueAtQuantile(1)).isCloseTo(100, withinPercentage(1));
+        assertThat(sketch.countAtOrBelow(0)).isEqualTo(2);
+    }
+
+    @Test
+    void mergeIsLossless() {
+        Random random = new Random(42);
+        LogarithmicSketch all = LogarithmicSketch.withRelativeAccuracy(0.02, 2048);
+        LogarithmicSketch a = LogarithmicSketch.withRelativeAccuracy(0.02, 2048);
+        LogarithmicSketch b = LogarithmicSketch.withRelativeAccuracy(0.02, 2048);
+
+        for (int i = 0; i < 5000; i++) {
+            double low = random.nextDouble() * 1e3;
+            double high = 1e6 + random.nextDouble() * 1e9;
+            all.record(low);
+            all.record(high);
+            a.record(low);
+            b.record(high);
+        }
+
+        a.merge(b);
+        assertThat(a.count()).isEqualTo(all.count());
+        for (double q : new double[]{0, 0.1, 0.5, 0.9, 0.99, 1}) {
+            assertThat(a.valueAtQuantile(q)).isEqualTo(all.valueAtQuantile(q));
+        }
+    }
+
+    @Test
+    void mergeRequiresSameGamma() {
+        assertThrows(IllegalArgumentException.class, () -> LogarithmicSketch.withRelativeAccuracy(0.01, 16)
+                .merge(LogarithmicSketch.withRelativeAccuracy(0.02, 16)));
+    }
+
+    @Test
+    void lowestBucketsCollapseWhenMaxBucketsIsReached() {
+        LogarithmicSketch sketch = new LogarithmicSketch(2, 4);
+        for (int i = 0; i < 10; i++) {
+            sketch.record(Math.pow(2, i));
+        }
+
+        int[] buckets = new int[1];
+        sketch.forEachBucket((index, count) -> buckets[0]++);
+        assertThat(buckets[0]).isEqualTo(4);
+        assertThat(sketch.count()).isEqualTo(10);
+        assertThat(sketch.valueAtQuantile(1)).isCloseTo(sketch.representativeValue(9), within(1e-9));
+    }
+}
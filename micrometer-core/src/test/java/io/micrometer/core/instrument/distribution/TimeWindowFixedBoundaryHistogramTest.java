@@ -19,6 +19,10 @@ import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.MockClock;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.NavigableSet;
+import java.util.Random;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class TimeWindowFixedBoundaryHistogramTest {
@@ -40,6 +44,99 @@ class TimeWindowFixedBoundaryHistogramTest {
         }
     }
 
+    @Test
+    void percentileBucketLookupAgreesWithSearch() {
+        assertLookupAgreesWithSearch(DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                .maximumExpectedValue((double) Duration.ofSeconds(30).toNanos())
+                .sla((double) Duration.ofMillis(100).toNanos(), (double) Duration.ofMillis(250).toNanos())
+                .build());
+
+        assertLookupAgreesWithSearch(DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(Double.POSITIVE_INFINITY)
+                .build());
+
+        // too crowded to look up from percentile buckets, so falls back to binary search
+        assertLookupAgreesWithSearch(DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1000.0)
+                .sla(100.0, 101.0, 102.0, 103.0, 104.0)
+                .build());
+    }
+
+    private void assertLookupAgreesWithSearch(DistributionStatisticConfig config) {
+        DistributionStatisticConfig merged = config.merge(DistributionStatisticConfig.DEFAULT);
+        NavigableSet<Double> buckets = merged.getHistogramBuckets(true);
+        buckets.addAll(PercentileHistogramBuckets.buckets(merged));
+
+        Random random = new Random(0);
+        try (TimeWindowFixedBoundaryHistogram histogram = new TimeWindowFixedBoundaryHistogram(Clock.SYSTEM, merged, true)) {
+            TimeWindowFixedBoundaryHistogram.FixedBoundaryHistogram bucket = histogram.newBucket();
+            for (int i = 0; i < 100_000; i++) {
+                long value = i % 2 == 0 ? random.nextLong() >>> random.nextInt(64) : random.nextInt(2000) - 10;
+                Double expected = buckets.ceiling((double) value);
+                assertThat(bucket.leastLessThanOrEqualTo(value))
+                        .as("index of %d", value)
+                        .isEqualTo(expected == null ? -1 : buckets.headSet(expected, false).size());
+            }
+        }
+    }
+
+    @Test
+    void recordWithStrideCountsLikeRecordingEachValue() {
+        DistributionStatisticConfig config = DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1e6)
+                .sla(150.0, 1000.5)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+
+        long[][] sequences = {{7, 13, 500}, {1, 1, 2000}, {990, 10, 3}, {400, 0, 5}, {999_000, 500, 10}};
+        for (long[] sequence : sequences) {
+            try (TimeWindowFixedBoundaryHistogram bulk = new TimeWindowFixedBoundaryHistogram(new MockClock(), config, false);
+                 TimeWindowFixedBoundaryHistogram single = new TimeWindowFixedBoundaryHistogram(new MockClock(), config, false)) {
+                bulk.recordLongsWithStride(sequence[0], sequence[1], sequence[2]);
+                for (long i = 0; i < sequence[2]; i++) {
+                    single.recordLong(sequence[0] + i * sequence[1]);
+                }
+
+                assertThat(bulk.takeSnapshot(0, 0, 0).histogramCounts())
+                        .isEqualTo(single.takeSnapshot(0, 0, 0).histogramCounts());
+            }
+        }
+    }
+
+    @Test
+    void recordManyCountsLikeRecordingEachValue() {
+        DistributionStatisticConfig config = DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1e6)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+
+        Random random = new Random(0);
+        long[] values = random.longs(1000, 0, 2_000_000).toArray();
+        try (TimeWindowFixedBoundaryHistogram bulk = new TimeWindowFixedBoundaryHistogram(new MockClock(), config, false);
+             TimeWindowFixedBoundaryHistogram single = new TimeWindowFixedBoundaryHistogram(new MockClock(), config, false)) {
+            bulk.recordLongs(values);
+            bulk.recordDoubles(new double[]{0.5, 999.1});
+            for (long value : values) {
+                single.recordLong(value);
+            }
+            single.recordDouble(0.5);
+            single.recordDouble(999.1);
+
+            assertThat(bulk.takeSnapshot(0, 0, 0).histogramCounts())
+                    .isEqualTo(single.takeSnapshot(0, 0, 0).histogramCounts());
+        }
+    }
+
     @Test
     void histogramsAreCumulative() {
         try (TimeWindowFixedBoundaryHistogram histogram = new TimeWindowFixedBoundaryHistogram(new MockClock(),
@@ -19,6 +19,7 @@ import io.micrometer.core.instrument.MockClock;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import static io.micrometer.core.instrument.util.TimeUtils.millisToUnit;
@@ -104,6 +105,25 @@ class TimeWindowPercentileHistogramTest {
         }
     }
 
+    @Test
+    void percentilesInOnePassAgreeWithOnePassPerPercentile() {
+        DistributionStatisticConfig config = DistributionStatisticConfig.builder()
+                .percentiles(0.99, 0.5, 0, 1, 0.75, 0.999, 0.9, 0.95)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+
+        try (TimeWindowPercentileHistogram histogram = new TimeWindowPercentileHistogram(new MockClock(), config, false)) {
+            Random random = new Random(0);
+            for (int i = 0; i < 10_000; i++) {
+                histogram.recordLong((long) (millisToUnit(10, TimeUnit.NANOSECONDS) * Math.exp(random.nextGaussian())));
+            }
+
+            for (ValueAtPercentile percentile : histogram.takeSnapshot(0, 0, 0).percentileValues()) {
+                assertThat(percentile.value()).isEqualTo(histogram.valueAtPercentile(percentile.percentile() * 100));
+            }
+        }
+    }
+
     @Test
     void percentilesWithNoSamples() {
         DistributionStatisticConfig config = DistributionStatisticConfig.builder()
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.InvalidConfigurationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimeWindowSketchHistogramTest {
+    @Test
+    void percentiles() {
+        MockClock clock = new MockClock();
+        try (TimeWindowSketchHistogram histogram = new TimeWindowSketchHistogram(clock,
+                DistributionStatisticConfig.builder()
+                        .percentiles(0.5, 0.9)
+                        .percentileRelativeAccuracy(0.01)
+                        .expiry(Duration.ofMinutes(1))
+                        .bufferLength(2)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            for (int i = 1; i <= 100; i++) {
+                histogram.recordLong(TimeUnit.MILLISECONDS.toNanos(i));
+            }
+
+            ValueAtPercentile[] percentiles = histogram.takeSnapshot(0, 0, 0).percentileValues();
+            assertThat(percentiles[0].value(TimeUnit.MILLISECONDS)).isCloseTo(50, withinPercentage(2));
+            assertThat(percentiles[1].value(TimeUnit.MILLISECONDS)).isCloseTo(90, withinPercentage(2));
+            assertThat(histogram.sketch().count()).isEqualTo(100);
+
+            // samples decay as the ring buffer rotates
+            clock.add(Duration.ofMinutes(1));
+            histogram.recordLong(TimeUnit.MILLISECONDS.toNanos(500));
+            assertThat(histogram.takeSnapshot(0, 0, 0).percentileValues()[0].value(TimeUnit.MILLISECONDS))
+                    .isCloseTo(500, withinPercentage(2));
+        }
+    }
+
+    @Test
+    void selectedThroughDistributionStatisticConfig() {
+        Timer timer = Timer.builder("my.timer")
+                .publishPercentiles(0.99)
+                .percentileRelativeAccuracy(0.01)
+                .register(new SimpleMeterRegistry());
+
+        timer.record(10, TimeUnit.MILLISECONDS);
+        assertThat(timer.takeSnapshot().percentileValues()[0].value(TimeUnit.MILLISECONDS))
+                .isCloseTo(10, withinPercentage(1));
+    }
+
+    @Test
+    void relativeAccuracyMustBeAFraction() {
+        assertThrows(InvalidConfigurationException.class, () -> new TimeWindowSketchHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .percentiles(0.5)
+                        .percentileRelativeAccuracy(1.5)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false));
+    }
+
+    @Test
+    void relativeAccuracyMustNotBeTooFine() {
+        assertThrows(InvalidConfigurationException.class, () -> new TimeWindowSketchHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .percentiles(0.5)
+                        .percentileRelativeAccuracy(1e-6)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false));
+    }
+
+    @Test
+    void bucketsCoverTheDynamicRangeAtEveryAccuracy() {
+        for (double relativeAccuracy : new double[]{0.1, 0.01, 0.001, TimeWindowSketchHistogram.MIN_RELATIVE_ACCURACY}) {
+            LogarithmicSketch sketch = LogarithmicSketch.withRelativeAccuracy(relativeAccuracy,
+                    TimeWindowSketchHistogram.maxBuckets(relativeAccuracy));
+            assertThat(sketch.index(TimeWindowSketchHistogram.DYNAMIC_RANGE) - sketch.index(1) + 1)
+                    .isLessThanOrEqualTo(TimeWindowSketchHistogram.maxBuckets(relativeAccuracy));
+        }
+    }
+
+    @Test
+    void smallestValueKeepsItsAccuracyAtFinerAccuracies() {
+        MockClock clock = new MockClock();
+        try (TimeWindowSketchHistogram histogram = new TimeWindowSketchHistogram(clock,
+                DistributionStatisticConfig.builder()
+                        .percentiles(0.0)
+                        .percentileRelativeAccuracy(0.001)
+                        .expiry(Duration.ofMinutes(1))
+                        .bufferLength(2)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            histogram.recordLong(1);
+            histogram.recordLong(TimeUnit.DAYS.toNanos(1));
+
+            assertThat(histogram.takeSnapshot(0, 0, 0).percentileValues()[0].value()).isCloseTo(1, withinPercentage(0.2));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.internal;
+
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Tags;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DefaultLongTaskTimerTest {
+    private final MockClock clock = new MockClock();
+    private final DefaultLongTaskTimer timer = new DefaultLongTaskTimer(
+            new Meter.Id("tasks", Tags.empty(), null, null, Meter.Type.LONG_TASK_TIMER), clock);
+
+    @Test
+    void durationsOfActiveTasks() {
+        LongTaskTimer.Sample first = timer.start();
+        clock.add(10, TimeUnit.SECONDS);
+        LongTaskTimer.Sample second = timer.start();
+        clock.add(5, TimeUnit.SECONDS);
+
+        assertThat(timer.activeTasks()).isEqualTo(2);
+        assertThat(timer.duration(TimeUnit.SECONDS)).isEqualTo(20);
+        assertThat(timer.max(TimeUnit.SECONDS)).isEqualTo(15);
+        assertThat(second.duration(TimeUnit.SECONDS)).isEqualTo(5);
+
+        assertThat(first.stop()).isEqualTo(TimeUnit.SECONDS.toNanos(15));
+        assertThat(timer.activeTasks()).isEqualTo(1);
+        assertThat(timer.duration(TimeUnit.SECONDS)).isEqualTo(5);
+        assertThat(timer.max(TimeUnit.SECONDS)).isEqualTo(5);
+
+        second.stop();
+        assertThat(timer.activeTasks()).isZero();
+        assertThat(timer.duration(TimeUnit.SECONDS)).isZero();
+        assertThat(timer.max(TimeUnit.SECONDS)).isZero();
+    }
+
+    @Test
+    void stoppedTasksAreNotConfusedWithTasksReusingTheirSlot() {
+        LongTaskTimer.Sample stopped = timer.start();
+        stopped.stop();
+        LongTaskTimer.Sample active = timer.start();
+
+        assertThat(stopped.stop()).isEqualTo(-1);
+        assertThat(stopped.duration(TimeUnit.SECONDS)).isEqualTo(-1);
+        assertThat(timer.activeTasks()).isEqualTo(1);
+        assertThat(active.stop()).isZero();
+    }
+
+    @Test
+    void tasksStartedAndStoppedOnManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<LongTaskTimer.Sample>>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                List<LongTaskTimer.Sample> samples = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    samples.add(timer.start());
+                }
+                return samples;
+            }));
+        }
+
+        List<LongTaskTimer.Sample> samples = new ArrayList<>();
+        for (Future<List<LongTaskTimer.Sample>> future : futures) {
+            samples.addAll(future.get());
+        }
+        assertThat(timer.activeTasks()).isEqualTo(8000);
+
+        // stop half of the tasks on other threads than the ones that started them
+        List<Future<?>> stops = new ArrayList<>();
+        for (int i = 0; i < samples.size(); i += 2) {
+            LongTaskTimer.Sample sample = samples.get(i);
+            stops.add(executor.submit(sample::stop));
+        }
+        for (Future<?> stop : stops) {
+            stop.get();
+        }
+        executor.shutdown();
+
+        clock.add(1, TimeUnit.SECONDS);
+        assertThat(timer.activeTasks()).isEqualTo(4000);
+        assertThat(timer.duration(TimeUnit.SECONDS)).isEqualTo(4000);
+    }
+}
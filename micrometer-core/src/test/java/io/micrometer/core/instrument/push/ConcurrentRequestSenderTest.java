@@ -0,0 +1,90 @@
+/**
+ * Copyright 2020 Pivotal Software, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.push;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ConcurrentRequestSender}.
+ */
+class ConcurrentRequestSenderTest {
+    private final ConcurrentRequestSender sender = new ConcurrentRequestSender(2, "concurrent-request-sender-test");
+
+    @AfterEach
+    void close() {
+        sender.close();
+    }
+
+    @Test
+    void requestsAreSentConcurrentlyUpToTheNumberOfThreads() throws InterruptedException {
+        CountDownLatch bothInFlight = new CountDownLatch(2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        ConcurrentRequestSender.Requests requests = sender.newRequests();
+        for (int i = 0; i < 6; i++) {
+            requests.send(() -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                bothInFlight.countDown();
+                try {
+                    bothInFlight.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+            });
+        }
+        List<Throwable> failures = new ArrayList<>();
+        requests.await(failures::add);
+
+        assertThat(maxInFlight).hasValue(2);
+        assertThat(failures).isEmpty();
+    }
+
+    @Test
+    void failuresAreHandedToTheCaller() throws InterruptedException {
+        ConcurrentRequestSender.Requests requests = sender.newRequests();
+        requests.send(() -> {
+            throw new IllegalStateException("unavailable");
+        });
+        List<Throwable> failures = new ArrayList<>();
+        requests.await(failures::add);
+
+        assertThat(failures).hasSize(1);
+        assertThat(failures.get(0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void requestsAreSentOnTheCallingThreadOnceClosed() throws InterruptedException {
+        sender.close();
+        List<Thread> threads = new ArrayList<>();
+        ConcurrentRequestSender.Requests requests = sender.newRequests();
+        requests.send(() -> threads.add(Thread.currentThread()));
+        requests.await(e -> {
+        });
+
+        assertThat(threads).containsExactly(Thread.currentThread());
+    }
+}
@@ -47,6 +47,21 @@ class SearchTest {
         assertThat(Search.in(registry).name(n -> n.startsWith("my")).timer()).isNotNull();
     }
 
+    @Test
+    void exactNameReflectsRemovedMeters() {
+        registry.remove(Search.in(registry).name("my.timer").timer());
+        assertThat(Search.in(registry).name("my.timer").meters()).isEmpty();
+        assertThat(registry.getMeters("my.timer")).isEmpty();
+
+        registry.timer("my.timer", "k", "v2");
+        assertThat(Search.in(registry).name("my.timer").tag("k", "v2").timer()).isNotNull();
+    }
+
+    @Test
+    void namePredicateReplacesExactName() {
+        assertThat(Search.in(registry).name("my.counter").name(n -> n.equals("my.timer")).meters()).hasSize(1);
+    }
+
     @Test
     void allMetersWithTag() {
         assertThat(Search.in(registry).tag("k2", "v2").meters()).hasSize(1);